@@ -0,0 +1,261 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import io.fabric8.kubernetes.api.model.LabelSelector;
+import io.fabric8.kubernetes.api.model.LabelSelectorBuilder;
+import io.fabric8.kubernetes.api.model.LabelSelectorRequirement;
+import io.fabric8.kubernetes.api.model.LabelSelectorRequirementBuilder;
+
+/**
+ * A label selector compiled from its expression by {@link LabelSelectorExpressions#compile(String)}.
+ * It is both sent to the API server as a {@link LabelSelector} and evaluated in-process by {@link #matches(Map)},
+ * with the same semantics: every requirement must be satisfied, {@code NotIn} and {@code !=} are satisfied by an
+ * absent label.
+ * Instances are immutable and thread safe.
+ */
+final class CompiledLabelSelector {
+
+    private static final int EXISTS = 0;
+    private static final int DOES_NOT_EXIST = 1;
+    private static final int IN = 2;
+    private static final int NOT_IN = 3;
+
+    /** Matches no labels, see {@link #nothing()} */
+    private static final CompiledLabelSelector NOTHING = new CompiledLabelSelector(new LabelSelector(), new String[0], new int[0], new String[0][]);
+
+    private final LabelSelector labelSelector;
+    /** The key of each requirement, by requirement index */
+    private final String[] keys;
+    /** The operator of each requirement, by requirement index */
+    private final int[] operators;
+    /** The values of each requirement, by requirement index, empty for {@code Exists} and {@code DoesNotExist} */
+    private final String[][] values;
+
+    private CompiledLabelSelector(LabelSelector labelSelector, String[] keys, int[] operators, String[][] values) {
+        this.labelSelector = labelSelector;
+        this.keys = keys;
+        this.operators = operators;
+        this.values = values;
+    }
+
+    /**
+     * A selector used in place of a selector that could not be parsed, so that nothing is selected rather than
+     * everything. It can only be evaluated in-process.
+     * @return the selector that does not match any set of labels.
+     */
+    static CompiledLabelSelector nothing() {
+        return NOTHING;
+    }
+
+    /**
+     * @return the selector to send to the API server.
+     */
+    LabelSelector getLabelSelector() {
+        return labelSelector;
+    }
+
+    /**
+     * @return {@code true} if the selector has no requirement and matches every set of labels.
+     */
+    boolean isEmpty() {
+        return keys.length == 0 && this != NOTHING;
+    }
+
+    /**
+     * Evaluate the selector against the labels of an object, without allocating.
+     * @param labels the labels, {@code null} if the object has none.
+     * @return {@code true} iff the labels satisfy every requirement.
+     */
+    boolean matches(@CheckForNull Map<String, String> labels) {
+        if (this == NOTHING) {
+            return false;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            String value = labels == null ? null : labels.get(keys[i]);
+            switch (operators[i]) {
+                case EXISTS:
+                    if (value == null && (labels == null || !labels.containsKey(keys[i]))) {
+                        return false;
+                    }
+                    break;
+                case DOES_NOT_EXIST:
+                    if (value != null || (labels != null && labels.containsKey(keys[i]))) {
+                        return false;
+                    }
+                    break;
+                case IN:
+                    if (value == null || !contains(values[i], value)) {
+                        return false;
+                    }
+                    break;
+                default:
+                    if (value != null && contains(values[i], value)) {
+                        return false;
+                    }
+                    break;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contains(String[] values, String value) {
+        for (String candidate : values) {
+            if (candidate.equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Identifies the requirements of the selector, in any order. Unlike {@link #toString()} the encoding is
+     * unambiguous: the keys and values are length prefixed, so {@code team in ("a,b")} and {@code team in (a,b)} have
+     * different keys.
+     * @return the same key for the selectors with the same requirements, {@code ""} for an empty selector.
+     */
+    String getKey() {
+        if (this == NOTHING) {
+            // the encoding of a requirement starts with a digit
+            return "-";
+        }
+        List<String> requirements = new ArrayList<>(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            StringBuilder sb = new StringBuilder().append(operators[i]);
+            appendLengthPrefixed(sb, keys[i]);
+            String[] sorted = values[i].clone();
+            Arrays.sort(sorted);
+            for (String value : sorted) {
+                appendLengthPrefixed(sb, value);
+            }
+            requirements.add(sb.toString());
+        }
+        Collections.sort(requirements);
+        return String.join(";", requirements);
+    }
+
+    private static void appendLengthPrefixed(StringBuilder sb, String s) {
+        sb.append(':').append(s.length()).append(':').append(s);
+    }
+
+    /**
+     * @return the canonical expression of the selector, for display: values holding separators are not quoted.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            switch (operators[i]) {
+                case EXISTS:
+                    sb.append(keys[i]);
+                    break;
+                case DOES_NOT_EXIST:
+                    sb.append('!').append(keys[i]);
+                    break;
+                default:
+                    sb.append(keys[i]).append(operators[i] == IN ? " in (" : " notin (")
+                            .append(String.join(",", values[i])).append(')');
+                    break;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Collects the requirements of a selector, in expression order.
+     */
+    static final class Builder {
+
+        /** The equality requirements, sent as {@code matchLabels} */
+        private final Map<String, String> matchLabels = new LinkedHashMap<>();
+        /** The other requirements, including the equality requirements on a key already in {@link #matchLabels} */
+        private final List<LabelSelectorRequirement> matchExpressions = new ArrayList<>();
+
+        Builder exists(String key) {
+            return expression(key, "Exists", List.of());
+        }
+
+        Builder doesNotExist(String key) {
+            return expression(key, "DoesNotExist", List.of());
+        }
+
+        Builder equal(String key, String value) {
+            if (matchLabels.containsKey(key)) {
+                // matchLabels can only hold one value per key, each requirement must still be satisfied
+                return in(key, List.of(value));
+            }
+            matchLabels.put(key, value);
+            return this;
+        }
+
+        Builder in(String key, List<String> values) {
+            return expression(key, "In", values);
+        }
+
+        Builder notIn(String key, List<String> values) {
+            return expression(key, "NotIn", values);
+        }
+
+        private Builder expression(String key, String operator, List<String> values) {
+            LabelSelectorRequirementBuilder requirement = new LabelSelectorRequirementBuilder()
+                    .withKey(key)
+                    .withOperator(operator);
+            if (!values.isEmpty()) {
+                requirement.withValues(values);
+            }
+            matchExpressions.add(requirement.build());
+            return this;
+        }
+
+        CompiledLabelSelector build() {
+            int size = matchLabels.size() + matchExpressions.size();
+            String[] keys = new String[size];
+            int[] operators = new int[size];
+            String[][] values = new String[size][];
+            int i = 0;
+            for (Map.Entry<String, String> label : matchLabels.entrySet()) {
+                keys[i] = label.getKey();
+                operators[i] = IN;
+                values[i] = new String[] {label.getValue()};
+                i++;
+            }
+            for (LabelSelectorRequirement requirement : matchExpressions) {
+                keys[i] = requirement.getKey();
+                operators[i] = operator(requirement.getOperator());
+                List<String> requirementValues = requirement.getValues();
+                values[i] = requirementValues == null ? new String[0] : requirementValues.toArray(new String[0]);
+                i++;
+            }
+            LabelSelectorBuilder lsb = new LabelSelectorBuilder();
+            for (Map.Entry<String, String> label : matchLabels.entrySet()) {
+                lsb.addToMatchLabels(label.getKey(), label.getValue());
+            }
+            for (LabelSelectorRequirement requirement : matchExpressions) {
+                lsb.addToMatchExpressions(requirement);
+            }
+            return new CompiledLabelSelector(lsb.build(), keys, operators, values);
+        }
+
+        private static int operator(String operator) {
+            switch (operator) {
+                case "Exists":
+                    return EXISTS;
+                case "DoesNotExist":
+                    return DOES_NOT_EXIST;
+                case "In":
+                    return IN;
+                default:
+                    return NOT_IN;
+            }
+        }
+    }
+}
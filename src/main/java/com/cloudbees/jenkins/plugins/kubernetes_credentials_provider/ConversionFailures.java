@@ -0,0 +1,183 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import io.fabric8.kubernetes.api.model.Secret;
+
+/**
+ * The secrets that could not be converted to credentials, keyed by secret name.
+ * A failing secret is not converted again until its {@code resourceVersion} changes (or the available converters
+ * change), so relists and unrelated events do not convert and log the same broken secret over and over, and the
+ * warning for a secret that keeps failing is logged at most once per {@link #LOG_INTERVAL_MS}.
+ */
+class ConversionFailures {
+
+    /** Minimum interval between two warnings logged for the same secret */
+    private static final long LOG_INTERVAL_MS = TimeUnit.MINUTES.toMillis(
+            Long.getLong(KubernetesCredentialProvider.class.getName() + ".failureLogIntervalMins", 60));
+
+    private final ConcurrentMap<String, Failure> failures = new ConcurrentHashMap<>();
+
+    /**
+     * Check if a secret is known to fail conversion with the given converters.
+     * Secrets without a {@code resourceVersion} are never known to fail as their changes can not be detected.
+     * @param secret the secret to convert.
+     * @param registry the converters the secret would be converted with.
+     * @return {@code true} iff this version of the secret already failed with the same converters.
+     */
+    boolean isKnown(Secret secret, SecretToCredentialConverterRegistry registry) {
+        String resourceVersion = secret.getMetadata().getResourceVersion();
+        Failure failure = failures.get(secret.getMetadata().getName());
+        return failure != null && resourceVersion != null && resourceVersion.equals(failure.resourceVersion)
+                && failure.registry == registry;
+    }
+
+    /**
+     * Record that a secret failed conversion.
+     * @param secret the secret.
+     * @param registry the converters the secret was converted with.
+     * @param type the type of the secret.
+     * @param reason why the conversion failed.
+     * @return {@code true} if the failure should be logged as a warning, {@code false} if a warning was recently
+     *         logged for the same failure.
+     */
+    boolean record(Secret secret, SecretToCredentialConverterRegistry registry, @CheckForNull String type, String reason) {
+        long now = System.currentTimeMillis();
+        String name = secret.getMetadata().getName();
+        Failure failure = failures.compute(name, (k, previous) -> {
+            if (previous == null) {
+                return new Failure(name, secret.getMetadata().getResourceVersion(), registry, type, reason, now, now, 1, true);
+            }
+            boolean log = !reason.equals(previous.reason) || now - previous.lastLogged >= LOG_INTERVAL_MS;
+            return new Failure(name, secret.getMetadata().getResourceVersion(), registry, type, reason, previous.since,
+                    log ? now : previous.lastLogged, previous.occurrences + 1, log);
+        });
+        return failure.logged;
+    }
+
+    /**
+     * Forget a secret that was converted or deleted.
+     * @param name the name of the secret.
+     */
+    void clear(String name) {
+        failures.remove(name);
+    }
+
+    /**
+     * Forget the secrets that no longer exist.
+     * @param secrets the current secrets.
+     */
+    void retainAll(Collection<Secret> secrets) {
+        Set<String> names = new HashSet<>();
+        for (Secret secret : secrets) {
+            names.add(secret.getMetadata().getName());
+        }
+        failures.keySet().retainAll(names);
+    }
+
+    boolean isEmpty() {
+        return failures.isEmpty();
+    }
+
+    /**
+     * @return the failing secrets, sorted by name.
+     */
+    List<Failure> getAll() {
+        List<Failure> all = new ArrayList<>(failures.values());
+        all.sort(Comparator.comparing(Failure::getName));
+        return all;
+    }
+
+    /**
+     * The last failed conversion of a secret.
+     */
+    public static final class Failure {
+
+        private final String name;
+        @CheckForNull
+        private final String resourceVersion;
+        private final SecretToCredentialConverterRegistry registry;
+        @CheckForNull
+        private final String type;
+        private final String reason;
+        private final long since;
+        private final long lastLogged;
+        private final int occurrences;
+        /** If this occurrence was logged as a warning */
+        private final boolean logged;
+
+        private Failure(String name, @CheckForNull String resourceVersion, SecretToCredentialConverterRegistry registry,
+                        @CheckForNull String type, String reason, long since, long lastLogged, int occurrences,
+                        boolean logged) {
+            this.name = name;
+            this.resourceVersion = resourceVersion;
+            this.registry = registry;
+            this.type = type;
+            this.reason = reason;
+            this.since = since;
+            this.lastLogged = lastLogged;
+            this.occurrences = occurrences;
+            this.logged = logged;
+        }
+
+        /**
+         * @return the name of the secret.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the {@code resourceVersion} of the secret that failed, {@code null} if the secret has none.
+         */
+        @CheckForNull
+        public String getResourceVersion() {
+            return resourceVersion;
+        }
+
+        /**
+         * @return the type of the secret, {@code null} if it has no type.
+         */
+        @CheckForNull
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * @return why the secret could not be converted.
+         */
+        public String getReason() {
+            return reason;
+        }
+
+        /**
+         * @return when the secret started failing.
+         */
+        public Date getSince() {
+            return new Date(since);
+        }
+
+        /**
+         * @return the number of versions of the secret, or of converters, that failed since {@link #getSince()}.
+         */
+        public int getOccurrences() {
+            return occurrences;
+        }
+
+        @Override
+        public String toString() {
+            return "Failure[" + name + "@" + Objects.toString(resourceVersion) + ": " + reason + "]";
+        }
+    }
+}
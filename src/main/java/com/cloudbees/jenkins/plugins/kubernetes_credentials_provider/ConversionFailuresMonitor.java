@@ -0,0 +1,35 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import java.util.List;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.AdministrativeMonitor;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Lists the secrets that could not be converted to credentials, and why, to administrators.
+ */
+@Extension
+@Restricted(NoExternalUse.class)
+public class ConversionFailuresMonitor extends AdministrativeMonitor {
+
+    @Override
+    public String getDisplayName() {
+        return "Kubernetes secrets that can not be converted to credentials";
+    }
+
+    @Override
+    public boolean isActivated() {
+        return getProvider().hasConversionFailures();
+    }
+
+    public List<ConversionFailures.Failure> getFailures() {
+        return getProvider().getConversionFailures();
+    }
+
+    private static KubernetesCredentialProvider getProvider() {
+        return ExtensionList.lookupSingleton(KubernetesCredentialProvider.class);
+    }
+}
@@ -0,0 +1,327 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.cloudbees.plugins.credentials.SecretBytes;
+import com.cloudbees.plugins.credentials.common.IdCredentials;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import hudson.util.Secret;
+
+/**
+ * Declarative description of how the data of a secret of a given type maps to a credential: the fields that are
+ * required or optional, how each field is decoded and how the credential is created from the decoded values.
+ * All the error messages are computed when the schema is built.
+ * <em>Note</em>: API may be subject to change.
+ * @param <C> the type of credential created.
+ * @see SchemaSecretToCredentialConverter
+ */
+public final class CredentialSchema<C extends IdCredentials> {
+
+    /**
+     * How the base64 encoded value of a field is decoded.
+     */
+    public enum Decoding {
+        /** The value is a UTF-8 string */
+        UTF8("must be base64 encoded UTF-8"),
+        /** The value is binary data */
+        BYTES("must be base64 encoded data");
+
+        private final String requirement;
+
+        Decoding(String requirement) {
+            this.requirement = requirement;
+        }
+    }
+
+    /**
+     * Creates the credential from the decoded fields of a secret.
+     * @param <C> the type of credential created.
+     */
+    @FunctionalInterface
+    public interface Factory<C extends IdCredentials> {
+        /**
+         * @param context the secret being converted and its metadata.
+         * @param values the decoded fields of the secret.
+         * @return the credential.
+         * @throws CredentialsConvertionException if the credential can not be created from the values.
+         */
+        C create(SecretConversionContext context, Values values) throws CredentialsConvertionException;
+    }
+
+    private final String type;
+    private final Field[] fields;
+    /** The keys of the fields, by field index */
+    private final String[] keys;
+    /** Index of the fields in {@link #fields} keyed by their key */
+    private final Map<String, Integer> indexes;
+    /** The message reported when a required field is missing, by field index */
+    private final String[] missingMessages;
+    /** The message reported when a field can not be decoded, by field index */
+    private final String[] invalidMessages;
+    private final String noDataMessage;
+    private final Factory<C> factory;
+
+    private CredentialSchema(String type, String name, List<Field> fields, Factory<C> factory) {
+        this.type = type;
+        this.fields = fields.toArray(new Field[0]);
+        this.keys = new String[this.fields.length];
+        this.missingMessages = new String[this.fields.length];
+        this.invalidMessages = new String[this.fields.length];
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < this.fields.length; i++) {
+            Field field = this.fields[i];
+            if (indexes.put(field.key, i) != null) {
+                throw new IllegalArgumentException("Field " + field.key + " is declared more than once for " + type);
+            }
+            keys[i] = field.key;
+            missingMessages[i] = name + " credential is missing the " + field.key;
+            invalidMessages[i] = name + " credential has an invalid " + field.key + " (" + field.decoding.requirement + ")";
+        }
+        this.indexes = Collections.unmodifiableMap(indexes);
+        this.noDataMessage = name + " definition contains no data";
+        this.factory = factory;
+    }
+
+    /**
+     * Start the declaration of a schema.
+     * @param type the type of secret, as found in the {@code jenkins.io/credentials-type} label.
+     * @return the builder of the schema.
+     */
+    public static Builder builder(String type) {
+        return new Builder(type);
+    }
+
+    /**
+     * @return the type of secret converted by this schema.
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Decode the fields of a secret and create the credential.
+     * Each field is looked up and decoded once, in declaration order, so the first missing or invalid field is
+     * reported.
+     * If the context shares payloads the {@link Secret} and {@link SecretBytes} material is shared with the other
+     * credentials created from identical fields. The decoded fields are dropped once the credential is created, and the
+     * decoded {@link Decoding#BYTES} fields are zeroed.
+     * @param context the secret to convert and its metadata.
+     * @return the credential.
+     * @throws CredentialsConvertionException if a field is missing or invalid, or if the credential can not be created.
+     */
+    @SuppressFBWarnings(value = "ES_COMPARING_STRINGS_WITH_EQ", justification = "the key name is the same string if not mapped")
+    public C convert(SecretConversionContext context) throws CredentialsConvertionException {
+        Map<String, String> data = SecretUtils.requireNonNull(context.getData(), noDataMessage);
+        Object[] values = new Object[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            Field field = fields[i];
+            String mappedKey = context.getKeyName(field.key);
+            String encoded = data.get(mappedKey);
+            if (encoded == null) {
+                // a present key that is mapped to a missing entry is always an error
+                if (field.required || (mappedKey != field.key && data.containsKey(field.key))) {
+                    throw new CredentialsConvertionException(mappedKey == field.key ? missingMessages[i] : missingMessages[i] + " (mapped to " + mappedKey + ")");
+                }
+                continue;
+            }
+            values[i] = SecretUtils.requireNonNull(field.decoding == Decoding.UTF8 ? SecretUtils.base64DecodeToString(encoded) : SecretUtils.base64Decode(encoded), invalidMessages[i]);
+        }
+        SharedPayloads payloads = context.getSharedPayloads();
+        SharedPayloads.Payload payload = payloads == null ? null : payloads.acquire(type, keys, values);
+        try {
+            C credential = factory.create(context, new Values(this, values, payload));
+            if (payload != null) {
+                context.setPayload(payload);
+            }
+            return credential;
+        } catch (CredentialsConvertionException | RuntimeException e) {
+            if (payload != null) {
+                payload.release();
+            }
+            throw e;
+        } finally {
+            // the decoded data was copied into encrypted SecretBytes, the plaintext is zeroed rather than left until GC
+            for (Object value : values) {
+                if (value instanceof byte[]) {
+                    Arrays.fill((byte[]) value, (byte) 0);
+                }
+            }
+            // the factory may have kept the Values, it must not keep the plaintext alive
+            Arrays.fill(values, null);
+        }
+    }
+
+    /**
+     * The decoded fields of a secret.
+     */
+    public static final class Values {
+
+        private final CredentialSchema<?> schema;
+        private final Object[] values;
+        @CheckForNull
+        private final SharedPayloads.Payload payload;
+
+        private Values(CredentialSchema<?> schema, Object[] values, @CheckForNull SharedPayloads.Payload payload) {
+            this.schema = schema;
+            this.values = values;
+            this.payload = payload;
+        }
+
+        /**
+         * @param key a field declared with {@link Decoding#UTF8}.
+         * @return the value of the field, {@code null} if it is optional and absent.
+         */
+        @CheckForNull
+        public String getString(String key) {
+            return (String) values[indexOf(key, Decoding.UTF8)];
+        }
+
+        /**
+         * @param key a field declared with {@link Decoding#UTF8}.
+         * @param defaultValue the value to use if the field is absent.
+         * @return the value of the field, {@code defaultValue} if it is absent.
+         */
+        public String getString(String key, String defaultValue) {
+            String value = getString(key);
+            return value == null ? defaultValue : value;
+        }
+
+        /**
+         * @param key a field declared as required with {@link Decoding#UTF8}.
+         * @return the value of the field.
+         */
+        public String getRequiredString(String key) {
+            String value = getString(key);
+            if (value == null) {
+                throw new IllegalArgumentException("Field " + key + " is not required by " + schema.type);
+            }
+            return value;
+        }
+
+        /**
+         * The array is zeroed once the credential is created, the factory must not keep it.
+         * @param key a field declared with {@link Decoding#BYTES}.
+         * @return the value of the field, {@code null} if it is optional and absent.
+         */
+        @CheckForNull
+        public byte[] getBytes(String key) {
+            return (byte[]) values[indexOf(key, Decoding.BYTES)];
+        }
+
+        /**
+         * @param key a field declared as required with {@link Decoding#BYTES}.
+         * @return the value of the field.
+         */
+        public byte[] getRequiredBytes(String key) {
+            byte[] value = getBytes(key);
+            if (value == null) {
+                throw new IllegalArgumentException("Field " + key + " is not required by " + schema.type);
+            }
+            return value;
+        }
+
+        /**
+         * @param key a field declared as required with {@link Decoding#UTF8}.
+         * @return the value of the field as a {@link Secret}, shared with the credentials created from identical fields.
+         */
+        public Secret getRequiredSecret(String key) {
+            String value = getRequiredString(key);
+            return payload == null ? Secret.fromString(value) : payload.getMaterial(indexOf(key, Decoding.UTF8), Secret.class, 2L * value.length(), () -> Secret.fromString(value));
+        }
+
+        /**
+         * @param key a field declared as required with {@link Decoding#BYTES}.
+         * @return the value of the field as {@link SecretBytes}, shared with the credentials created from identical fields.
+         */
+        public SecretBytes getRequiredSecretBytes(String key) {
+            byte[] value = getRequiredBytes(key);
+            return payload == null ? SecretBytes.fromBytes(value) : payload.getMaterial(indexOf(key, Decoding.BYTES), SecretBytes.class, value.length, () -> SecretBytes.fromBytes(value));
+        }
+
+        private int indexOf(String key, Decoding decoding) {
+            Integer index = schema.indexes.get(key);
+            if (index == null || schema.fields[index].decoding != decoding) {
+                throw new IllegalArgumentException("Field " + key + " is not declared as " + decoding + " by " + schema.type);
+            }
+            return index;
+        }
+    }
+
+    private static final class Field {
+        private final String key;
+        private final boolean required;
+        private final Decoding decoding;
+
+        private Field(String key, boolean required, Decoding decoding) {
+            this.key = key;
+            this.required = required;
+            this.decoding = decoding;
+        }
+    }
+
+    /**
+     * Builder of {@link CredentialSchema}.
+     */
+    public static final class Builder {
+
+        private final String type;
+        private String name;
+        private final List<Field> fields = new ArrayList<>();
+
+        private Builder(String type) {
+            this.type = type;
+            this.name = type;
+        }
+
+        /**
+         * Set the name of the credential used in error messages, defaults to the type.
+         * @param name the name of the credential.
+         * @return this builder.
+         */
+        public Builder named(String name) {
+            this.name = name;
+            return this;
+        }
+
+        /**
+         * Declare a field that must be present in the secret data.
+         * @param key the key of the field in the secret data (which may be mapped to another key).
+         * @param decoding how the field is decoded.
+         * @return this builder.
+         */
+        public Builder required(String key, Decoding decoding) {
+            return field(key, true, decoding);
+        }
+
+        /**
+         * Declare a field that may be absent from the secret data.
+         * @param key the key of the field in the secret data (which may be mapped to another key).
+         * @param decoding how the field is decoded.
+         * @return this builder.
+         */
+        public Builder optional(String key, Decoding decoding) {
+            return field(key, false, decoding);
+        }
+
+        private Builder field(String key, boolean required, Decoding decoding) {
+            fields.add(new Field(key, required, decoding));
+            return this;
+        }
+
+        /**
+         * Complete the schema.
+         * @param factory creates the credential from the decoded fields.
+         * @param <C> the type of credential created.
+         * @return the schema.
+         */
+        public <C extends IdCredentials> CredentialSchema<C> build(Factory<C> factory) {
+            return new CredentialSchema<>(type, name, fields, factory);
+        }
+    }
+}
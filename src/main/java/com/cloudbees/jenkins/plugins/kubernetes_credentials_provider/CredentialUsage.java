@@ -0,0 +1,127 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Counts how many times each credential was used, and when it was last used, to find the credentials that are not
+ * used. A use is a lookup of the credential by its ID, or a use tracked by the credentials plugin; listing the
+ * credentials is not a use, as a lookup by ID through the credentials plugin lists all the credentials of the type.
+ * Recording a use does not take any lock: the count is a {@link LongAdder} and the last use time is only written when
+ * it moved by more than {@link #RESOLUTION_MILLIS}, so concurrent uses of a popular credential do not contend on
+ * the same cache line. The usage is kept in memory since Jenkins started and is dropped with the credential.
+ */
+class CredentialUsage {
+
+    /** The precision of the last use time */
+    static final long RESOLUTION_MILLIS = 1000;
+
+    /** Sorts the least used credentials first */
+    static final Comparator<Entry> LEAST_USED_FIRST = Comparator.comparingLong(Entry::getUses)
+            .thenComparingLong(Entry::getLastUsed)
+            .thenComparing(Entry::getId);
+
+    /** The usage of the credentials, keyed by credential ID */
+    private final ConcurrentHashMap<String, Usage> usages = new ConcurrentHashMap<>();
+
+    /**
+     * Record that a credential was used.
+     * @param id the ID of the credential.
+     * @param now the time of the use.
+     */
+    void used(String id, long now) {
+        Usage usage = usages.get(id);
+        if (usage == null) {
+            usage = usages.computeIfAbsent(id, k -> new Usage());
+        }
+        usage.uses.increment();
+        // relaxed: racing uses may write slightly different times, any of them is good enough
+        if (now - usage.lastUsed >= RESOLUTION_MILLIS) {
+            usage.lastUsed = now;
+        }
+    }
+
+    /**
+     * Drop the usage of a credential that was removed.
+     * @param id the ID of the credential.
+     */
+    void remove(String id) {
+        usages.remove(id);
+    }
+
+    /**
+     * Drop the usage of the credentials that are no longer loaded.
+     * @param ids the IDs of the loaded credentials.
+     */
+    void retainAll(Set<String> ids) {
+        usages.keySet().retainAll(ids);
+    }
+
+    /**
+     * @param id the ID of the credential.
+     * @return the usage of the credential, with no use if it was never used.
+     */
+    Entry get(String id) {
+        Usage usage = usages.get(id);
+        return usage == null ? new Entry(id, 0, 0) : new Entry(id, usage.uses.sum(), usage.lastUsed);
+    }
+
+    private static final class Usage {
+        private final LongAdder uses = new LongAdder();
+        private volatile long lastUsed;
+    }
+
+    /**
+     * The usage of a credential.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static final class Entry {
+
+        private final String id;
+        private final long uses;
+        private final long lastUsed;
+
+        Entry(String id, long uses, long lastUsed) {
+            this.id = id;
+            this.uses = uses;
+            this.lastUsed = lastUsed;
+        }
+
+        @Exported
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * @return the number of times the credential was used since Jenkins started.
+         */
+        @Exported
+        public long getUses() {
+            return uses;
+        }
+
+        /**
+         * @return when the credential was last used in milliseconds since the epoch, {@code 0} if it was never used
+         *         since Jenkins started.
+         */
+        @Exported
+        public long getLastUsed() {
+            return lastUsed;
+        }
+
+        /**
+         * @return when the credential was last used, {@code null} if it was never used.
+         */
+        @CheckForNull
+        public Date getLastUsedDate() {
+            return lastUsed == 0 ? null : new Date(lastUsed);
+        }
+    }
+}
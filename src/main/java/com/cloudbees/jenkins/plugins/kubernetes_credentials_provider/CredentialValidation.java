@@ -0,0 +1,97 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+
+/**
+ * The outcome of validating the key material of a credential, shared by the copies of the credential.
+ * @see CredentialValidator
+ */
+public final class CredentialValidation {
+
+    /**
+     * The state of the validation.
+     */
+    public enum Status {
+        /** The credential does not hold key material to validate */
+        NOT_VALIDATED,
+        /** The validation is waiting for, or running on, the validation pool */
+        PENDING,
+        /** The key material is valid */
+        VALID,
+        /** The key material is invalid */
+        INVALID,
+        /** The validation is running past its time budget */
+        TIMED_OUT,
+        /** The validation pool was saturated so the credential was not validated */
+        SKIPPED
+    }
+
+    private Status status = Status.NOT_VALIDATED;
+    @CheckForNull
+    private String message;
+    /** When a running validation times out, in milliseconds since the epoch, {@code 0} if it is not running */
+    private long deadline;
+
+    /**
+     * @return the state of the validation.
+     */
+    public synchronized Status getStatus() {
+        if (status == Status.PENDING && deadline != 0 && System.currentTimeMillis() > deadline) {
+            status = Status.TIMED_OUT;
+            message = "the validation did not complete in time";
+        }
+        return status;
+    }
+
+    /**
+     * @return why the key material is invalid or was not validated, {@code null} if it is valid or not validated yet.
+     */
+    @CheckForNull
+    public synchronized String getMessage() {
+        getStatus();
+        return message;
+    }
+
+    /**
+     * @return {@code true} if the key material is known to be invalid or could not be validated in time.
+     */
+    public boolean isFailed() {
+        Status current = getStatus();
+        return current == Status.INVALID || current == Status.TIMED_OUT;
+    }
+
+    synchronized void queued() {
+        status = Status.PENDING;
+        message = null;
+        deadline = 0;
+    }
+
+    synchronized void started(long timeoutMillis) {
+        deadline = System.currentTimeMillis() + timeoutMillis;
+    }
+
+    /**
+     * Record the outcome of the validation, a validation that timed out is only reported as such while it runs.
+     * @param error why the key material is invalid, {@code null} if it is valid.
+     * @return {@code false} if the validation had already timed out.
+     */
+    synchronized boolean completed(@CheckForNull String error) {
+        boolean inTime = getStatus() == Status.PENDING;
+        status = error == null ? Status.VALID : Status.INVALID;
+        message = error;
+        deadline = 0;
+        return inTime;
+    }
+
+    synchronized void skipped(String reason) {
+        status = Status.SKIPPED;
+        message = reason;
+        deadline = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        Status current = getStatus();
+        return message == null ? current.name() : current + ": " + message;
+    }
+}
@@ -0,0 +1,158 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+/**
+ * Validates the key material of credentials on a bounded pool so that conversion and publication of the credentials
+ * are not delayed.
+ * When the pool is saturated the validation is skipped rather than queued without bounds, and a validation that runs
+ * for longer than its time budget is reported as timed out until it completes (parsing can not be interrupted).
+ * The failed validations are tracked as they complete, so that they can be reported without checking every credential.
+ * Only the outcome of the current validation of a credential ID is tracked, a validation that completes after its
+ * credential was replaced or removed is not recorded.
+ */
+class CredentialValidations {
+
+    private static final Logger LOG = Logger.getLogger(CredentialValidations.class.getName());
+
+    /** Number of threads validating credentials */
+    private static final int THREADS = Integer.getInteger(KubernetesCredentialProvider.class.getName() + ".validationThreads", 2);
+    /** Maximum number of credentials waiting for validation */
+    private static final int QUEUE_SIZE = Integer.getInteger(KubernetesCredentialProvider.class.getName() + ".validationQueueSize", 1000);
+    /** Time budget of the validation of one credential */
+    private static final long TIMEOUT_MS = Long.getLong(KubernetesCredentialProvider.class.getName() + ".validationTimeoutMs", 5000);
+
+    private final Executor executor;
+    private final long timeoutMillis;
+    /** The current validation of the credentials, keyed by credential ID, updated with {@link #failed} under this lock */
+    private final ConcurrentHashMap<String, CredentialValidation> current = new ConcurrentHashMap<>();
+    /** The current validations that failed, keyed by credential ID */
+    private final ConcurrentHashMap<String, CredentialValidation> failed = new ConcurrentHashMap<>();
+    /** The validations being run with the ID of their credential, at most one per validation thread */
+    private final ConcurrentHashMap<CredentialValidation, String> running = new ConcurrentHashMap<>();
+
+    CredentialValidations() {
+        this(newPool(), TIMEOUT_MS);
+    }
+
+    CredentialValidations(Executor executor, long timeoutMillis) {
+        this.executor = executor;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    private static ThreadPoolExecutor newPool() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_SIZE),
+                new NamingThreadFactory(new DaemonThreadFactory(), "Kubernetes credential validation"));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Validate a credential in the background, the outcome is recorded in {@link KubernetesSourcedCredential#getValidation()}.
+     * @param credential the credential to validate.
+     * @param validator the validator of the converter that created the credential.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    void submit(KubernetesSourcedCredential credential, CredentialValidator validator) {
+        CredentialValidation validation = credential.getValidation();
+        String id = credential.getId();
+        synchronized (this) {
+            // the credential replaces any previous credential with the same ID
+            current.put(id, validation);
+            failed.remove(id);
+        }
+        validation.queued();
+        try {
+            executor.execute(() -> {
+                validation.started(timeoutMillis);
+                running.put(validation, id);
+                String error = null;
+                try {
+                    // the credential was created by the converter of the validator so it is of the validated type
+                    validator.validate(credential.getIdCredentials());
+                } catch (CredentialsConvertionException e) {
+                    error = String.valueOf(e.getMessage());
+                } catch (RuntimeException e) {
+                    LOG.log(Level.FINE, "Failed to validate credential " + credential.getId(), e);
+                    error = "validation failed: " + e;
+                } finally {
+                    running.remove(validation);
+                }
+                boolean inTime = validation.completed(error);
+                synchronized (this) {
+                    if (current.get(id) == validation) {
+                        if (error == null) {
+                            failed.remove(id, validation);
+                        } else {
+                            failed.put(id, validation);
+                        }
+                    }
+                }
+                if (!inTime) {
+                    LOG.log(Level.WARNING, "Validation of Secret ''{0}'' took longer than {1}ms", new Object[] {credential.getId(), timeoutMillis});
+                }
+                if (error != null) {
+                    LOG.log(Level.WARNING, "Secret ''{0}'' holds invalid key material: {1}", new Object[] {credential.getId(), error});
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOG.log(Level.FINE, "Validation queue is full, Secret ''{0}'' will not be validated", credential.getId());
+            validation.skipped("the validation queue was full");
+        }
+    }
+
+    /**
+     * Stop tracking the validation of a credential that was removed or replaced.
+     * @param credential the credential.
+     */
+    synchronized void forget(KubernetesSourcedCredential credential) {
+        if (current.remove(credential.getId(), credential.getValidation())) {
+            failed.remove(credential.getId());
+        }
+    }
+
+    /**
+     * @return {@code true} if a validation failed or is running past its time budget.
+     */
+    boolean hasFailures() {
+        if (!failed.isEmpty()) {
+            return true;
+        }
+        for (Map.Entry<CredentialValidation, String> entry : running.entrySet()) {
+            if (isCurrentAndFailed(entry.getValue(), entry.getKey())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the validations that failed or are running past their time budget, keyed by credential ID.
+     */
+    Map<String, CredentialValidation> getFailures() {
+        Map<String, CredentialValidation> failures = new HashMap<>(failed);
+        for (Map.Entry<CredentialValidation, String> entry : running.entrySet()) {
+            if (isCurrentAndFailed(entry.getValue(), entry.getKey())) {
+                failures.put(entry.getValue(), entry.getKey());
+            }
+        }
+        return failures;
+    }
+
+    private boolean isCurrentAndFailed(String id, CredentialValidation validation) {
+        return current.get(id) == validation && validation.isFailed();
+    }
+}
@@ -0,0 +1,23 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import com.cloudbees.plugins.credentials.common.IdCredentials;
+
+/**
+ * Implemented by the {@link SecretToCredentialConverter}s whose credentials hold key material that is costly to check,
+ * such as private keys and certificates.
+ * The conversion accepts the material as is so that the credential is available immediately, the provider then
+ * validates it on a bounded pool with a time budget per credential and records the outcome in
+ * {@link CredentialValidation}.
+ * <em>Note</em>: API may be subject to change.
+ * @param <C> the type of credential validated.
+ * @see KeyMaterial
+ */
+public interface CredentialValidator<C extends IdCredentials> {
+
+    /**
+     * Check the key material of a credential created by this converter.
+     * @param credential the credential to check.
+     * @throws CredentialsConvertionException if the key material is invalid.
+     */
+    void validate(C credential) throws CredentialsConvertionException;
+}
@@ -0,0 +1,241 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import hudson.PluginWrapper;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import jenkins.model.Jenkins;
+
+/**
+ * The label selectors of folders, evaluated in-process against the labels of the credentials already loaded by the
+ * provider so that each folder gets its own view of the secrets without an additional watch.
+ * A folder sees the credentials matching its selector and the selectors of all its ancestors.
+ * The IDs of the matching credentials are cached per distinct set of selectors, shared by the folders with the same
+ * selectors, and kept up to date as credentials are added, modified or removed: only the credential that changed is
+ * evaluated, once per distinct set of selectors. Folders without any selector share a marker and hold no IDs.
+ */
+class FolderLabelSelectors {
+
+    /** The view of the item groups that are not restricted by any selector */
+    private static final View UNRESTRICTED = new View(null, new CompiledLabelSelector[0], "");
+
+    /** The views of the item groups that were looked up, keyed by full name */
+    private final ConcurrentSkipListMap<String, View> views = new ConcurrentSkipListMap<>();
+
+    /** The views in use, keyed by their selectors, guarded by this */
+    private final Map<String, View> bySelectors = new HashMap<>();
+
+    /** Resolves the selector configured on an item group, if any */
+    private final Function<ItemGroup<?>, CompiledLabelSelector> resolver;
+
+    FolderLabelSelectors() {
+        this(FolderLabelSelectors::resolveFolderProperty);
+    }
+
+    FolderLabelSelectors(Function<ItemGroup<?>, CompiledLabelSelector> resolver) {
+        this.resolver = resolver;
+    }
+
+    /**
+     * Get the view of an item group.
+     * @param itemGroup the item group, may be {@code null}.
+     * @param index the current credentials.
+     * @return the view, {@code null} if neither the item group nor any of its ancestors restricts the credentials.
+     */
+    @CheckForNull
+    View get(@CheckForNull ItemGroup<?> itemGroup, KubernetesCredentialIndex index) {
+        if (itemGroup == null || itemGroup instanceof Jenkins) {
+            return null;
+        }
+        String fullName = itemGroup.getFullName();
+        View view = views.get(fullName);
+        if (view != UNRESTRICTED && (view == null || view.index != index)) {
+            view = build(fullName, itemGroup, index);
+        }
+        return view == UNRESTRICTED ? null : view;
+    }
+
+    private synchronized View build(String fullName, ItemGroup<?> itemGroup, KubernetesCredentialIndex index) {
+        View view = views.get(fullName);
+        if (view == UNRESTRICTED || (view != null && view.index == index)) {
+            // built by a concurrent lookup
+            return view;
+        }
+        List<CompiledLabelSelector> selectors = new ArrayList<>();
+        for (ItemGroup<?> group = itemGroup; group != null; group = group instanceof Item ? ((Item) group).getParent() : null) {
+            CompiledLabelSelector selector = resolver.apply(group);
+            if (selector != null && !selector.isEmpty()) {
+                selectors.add(selector);
+            }
+        }
+        View built;
+        if (selectors.isEmpty()) {
+            built = UNRESTRICTED;
+        } else {
+            String key = key(selectors);
+            built = bySelectors.get(key);
+            if (built == null || built.index != index) {
+                built = new View(index, selectors.toArray(new CompiledLabelSelector[0]), key);
+                for (KubernetesSourcedCredential credential : index.all()) {
+                    if (built.matches(credential)) {
+                        built.ids.add(credential.getId());
+                    }
+                }
+                // the folders still using a view of the previous index build the new one when they are looked up
+                bySelectors.put(key, built);
+            }
+            built.users++;
+        }
+        unused(views.put(fullName, built));
+        return built;
+    }
+
+    /**
+     * Identifies a set of selectors, in any order.
+     */
+    private static String key(List<CompiledLabelSelector> selectors) {
+        List<String> keys = new ArrayList<>(selectors.size());
+        for (CompiledLabelSelector selector : selectors) {
+            keys.add(selector.getKey());
+        }
+        Collections.sort(keys);
+        // the keys of the selectors only hold a line feed in their length prefixed keys and values
+        return String.join("\n", keys);
+    }
+
+    /**
+     * Release a view that is no longer used by an item group, guarded by this.
+     */
+    private void unused(@CheckForNull View view) {
+        if (view == null || view == UNRESTRICTED) {
+            return;
+        }
+        view.users--;
+        if (view.users == 0) {
+            bySelectors.remove(view.key, view);
+        }
+    }
+
+    /**
+     * Update the views after a credential was added to or replaced in the index.
+     * Must be called after the index is updated.
+     * @param credential the credential.
+     */
+    synchronized void added(KubernetesSourcedCredential credential) {
+        for (View view : bySelectors.values()) {
+            if (view.matches(credential)) {
+                view.ids.add(credential.getId());
+            } else {
+                view.ids.remove(credential.getId());
+            }
+        }
+    }
+
+    /**
+     * Update the views after a credential was removed from the index.
+     * Must be called after the index is updated.
+     * @param id the ID of the credential.
+     */
+    synchronized void removed(String id) {
+        for (View view : bySelectors.values()) {
+            view.ids.remove(id);
+        }
+    }
+
+    /**
+     * Discard the views of an item group and of its descendants, when the selector of the item group changed or
+     * when it was moved or deleted.
+     * @param fullName the full name of the item group.
+     */
+    synchronized void invalidate(String fullName) {
+        unused(views.remove(fullName));
+        // all the paths starting with "fullName/", '0' is the character following '/'
+        Map<String, View> descendants = views.subMap(fullName + '/', fullName + '0');
+        for (View view : descendants.values()) {
+            unused(view);
+        }
+        descendants.clear();
+    }
+
+    /**
+     * @return the number of item groups whose view is cached.
+     */
+    int size() {
+        return views.size();
+    }
+
+    /**
+     * @return the number of distinct views kept up to date.
+     */
+    synchronized int getSelectorCount() {
+        return bySelectors.size();
+    }
+
+    @CheckForNull
+    private static CompiledLabelSelector resolveFolderProperty(ItemGroup<?> itemGroup) {
+        Jenkins jenkins = Jenkins.getInstanceOrNull();
+        // the property can only be loaded if the folder plugin is installed
+        PluginWrapper folders = jenkins == null ? null : jenkins.getPluginManager().getPlugin("cloudbees-folder");
+        if (folders == null || !folders.isActive()) {
+            return null;
+        }
+        return KubernetesCredentialsFolderProperty.getSelector(itemGroup);
+    }
+
+    /**
+     * The credentials visible in the item groups with the same selectors, for a given index.
+     */
+    static final class View {
+        @CheckForNull
+        private final KubernetesCredentialIndex index;
+        /** The selectors of the item group and its ancestors, all must match */
+        private final CompiledLabelSelector[] selectors;
+        /** Identifies the selectors */
+        private final String key;
+        /** The IDs of the matching credentials */
+        private final Set<String> ids = ConcurrentHashMap.newKeySet();
+        /** The number of item groups using this view, guarded by the {@link FolderLabelSelectors} */
+        private int users;
+
+        private View(@CheckForNull KubernetesCredentialIndex index, CompiledLabelSelector[] selectors, String key) {
+            this.index = index;
+            this.selectors = selectors;
+            this.key = key;
+        }
+
+        private boolean matches(KubernetesSourcedCredential credential) {
+            Map<String, String> labels = credential.getLabels();
+            for (CompiledLabelSelector selector : selectors) {
+                if (!selector.matches(labels)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @param id the ID of a credential.
+         * @return {@code true} iff the credential is visible in the item group.
+         */
+        boolean contains(String id) {
+            return ids.contains(id);
+        }
+
+        /**
+         * @return the IDs of the credentials visible in the item group.
+         */
+        Set<String> getIds() {
+            return Collections.unmodifiableSet(ids);
+        }
+    }
+}
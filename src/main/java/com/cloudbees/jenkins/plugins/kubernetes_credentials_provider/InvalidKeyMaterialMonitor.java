@@ -0,0 +1,33 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import java.util.List;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.AdministrativeMonitor;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Lists the credentials whose private keys or certificates are invalid, or could not be validated in time, to
+ * administrators.
+ * @see CredentialValidator
+ */
+@Extension
+@Restricted(NoExternalUse.class)
+public class InvalidKeyMaterialMonitor extends AdministrativeMonitor {
+
+    @Override
+    public String getDisplayName() {
+        return "Kubernetes credentials with invalid key material";
+    }
+
+    @Override
+    public boolean isActivated() {
+        return ExtensionList.lookupSingleton(KubernetesCredentialProvider.class).hasInvalidCredentials();
+    }
+
+    public List<KubernetesSourcedCredential> getCredentials() {
+        return ExtensionList.lookupSingleton(KubernetesCredentialProvider.class).getInvalidCredentials();
+    }
+}
@@ -0,0 +1,133 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+
+/**
+ * Tracks the items that were moved or renamed, to warn about the secrets that still refer to them by their previous
+ * full name. Only the credentials loaded when an item is moved follow it, the secrets converted afterwards are not
+ * redirected: another item may be created at the previous location, and the relocations are not persisted so a
+ * redirection would not survive a restart anyway.
+ * A relocation is forgotten once an item is created, copied or moved to the previous location, or when the moved item
+ * is deleted. Relocations are resolved in a single step, recording a move rewrites the earlier relocations into the
+ * moved item.
+ * At most {@link #MAX_RELOCATIONS} relocations are kept, the oldest are forgotten first: they are only used to warn
+ * about the secrets that were not updated.
+ */
+class ItemPathRelocations {
+
+    /** Maximum number of relocations kept */
+    static final int MAX_RELOCATIONS = Integer.getInteger(KubernetesCredentialProvider.class.getName() + ".maxItemRelocations", 1000);
+
+    /** The current full name of moved items keyed by their previous full name, the oldest first */
+    private final Map<String, String> relocations = new LinkedHashMap<>();
+
+    /**
+     * Record that an item was moved or renamed.
+     * @param oldFullName the previous full name of the item.
+     * @param newFullName the new full name of the item.
+     */
+    synchronized void record(String oldFullName, String newFullName) {
+        // earlier relocations into the moved item now point to its new location
+        for (Map.Entry<String, String> entry : relocations.entrySet()) {
+            String relocated = relocate(entry.getValue(), oldFullName, newFullName);
+            if (relocated != null) {
+                entry.setValue(relocated);
+            }
+        }
+        // the new location exists so references to it mean the item that is now found there
+        created(newFullName);
+        // moved again, it is now the most recent relocation
+        relocations.remove(oldFullName);
+        relocations.put(oldFullName, newFullName);
+        Iterator<String> oldest = relocations.keySet().iterator();
+        while (relocations.size() > MAX_RELOCATIONS) {
+            oldest.next();
+            oldest.remove();
+        }
+    }
+
+    /**
+     * @return the number of relocations kept.
+     */
+    synchronized int size() {
+        return relocations.size();
+    }
+
+    /**
+     * Record that an item was created or copied, references to its full name mean that item from now on.
+     * @param fullName the full name of the new item.
+     */
+    synchronized void created(String fullName) {
+        relocations.keySet().removeIf(path -> isSameOrDescendant(path, fullName));
+    }
+
+    /**
+     * Record that an item was deleted, references to it are no longer relocated.
+     * @param fullName the full name of the deleted item.
+     */
+    synchronized void forget(String fullName) {
+        relocations.values().removeIf(path -> isSameOrDescendant(path, fullName));
+    }
+
+    /**
+     * Resolve the current location of a path.
+     * @param path an item full name.
+     * @return the relocated path, or {@code null} if the path was not relocated.
+     */
+    @CheckForNull
+    synchronized String resolve(String path) {
+        String longest = null;
+        for (String moved : relocations.keySet()) {
+            if (isSameOrDescendant(path, moved) && (longest == null || moved.length() > longest.length())) {
+                longest = moved;
+            }
+        }
+        return longest == null ? null : relocate(path, longest, relocations.get(longest));
+    }
+
+    /**
+     * Relocate the paths affected by a move.
+     * @param paths item full names.
+     * @param from the previous full name of the moved item.
+     * @param to the new full name of the moved item.
+     * @return {@code paths} if none of them is {@code from} or one of its descendants, otherwise a new set with the
+     *         relocated paths.
+     */
+    static Set<String> relocate(Set<String> paths, String from, String to) {
+        Set<String> result = null;
+        for (String path : paths) {
+            String relocated = relocate(path, from, to);
+            if (relocated != null) {
+                if (result == null) {
+                    result = new HashSet<>(paths);
+                }
+                result.remove(path);
+                result.add(relocated);
+            }
+        }
+        return result == null ? paths : result;
+    }
+
+    /**
+     * @param path an item full name.
+     * @param ancestor another item full name.
+     * @return {@code true} iff {@code path} is {@code ancestor} or one of its descendants.
+     */
+    static boolean isSameOrDescendant(String path, String ancestor) {
+        return path.equals(ancestor) || (path.startsWith(ancestor) && path.charAt(ancestor.length()) == '/');
+    }
+
+    @CheckForNull
+    private static String relocate(String path, String from, String to) {
+        if (!isSameOrDescendant(path, from)) {
+            return null;
+        }
+        return to + path.substring(from.length());
+    }
+}
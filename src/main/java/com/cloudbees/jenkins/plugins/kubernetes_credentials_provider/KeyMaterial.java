@@ -0,0 +1,298 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyFactory;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateExpiredException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.CertificateNotYetValidException;
+import java.security.cert.X509Certificate;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Structural checks of the key material held by credentials: PEM and OpenSSH private keys and X.509 certificates.
+ * The checks only use the JDK, keys whose algorithm the JDK does not support are checked for well-formedness only.
+ * Meant to be called by {@link CredentialValidator}s, off the conversion path.
+ */
+@Restricted(NoExternalUse.class)
+public final class KeyMaterial {
+
+    private static final Pattern PEM = Pattern.compile("-----BEGIN ([A-Z0-9 ]+)-----(.*?)-----END \\1-----", Pattern.DOTALL);
+
+    private static final byte[] OPENSSH_MAGIC = "openssh-key-v1\0".getBytes(StandardCharsets.US_ASCII);
+
+    /** The DER encoded object identifiers of the key algorithms, keyed by their JDK name */
+    private static final Map<String, byte[]> KEY_ALGORITHMS = Map.of(
+            "RSA", new byte[] {0x2A, (byte) 0x86, 0x48, (byte) 0x86, (byte) 0xF7, 0x0D, 0x01, 0x01, 0x01},
+            "EC", new byte[] {0x2A, (byte) 0x86, 0x48, (byte) 0xCE, 0x3D, 0x02, 0x01},
+            "DSA", new byte[] {0x2A, (byte) 0x86, 0x48, (byte) 0xCE, 0x38, 0x04, 0x01},
+            "Ed25519", new byte[] {0x2B, 0x65, 0x70},
+            "Ed448", new byte[] {0x2B, 0x65, 0x71});
+
+    private KeyMaterial() {
+    }
+
+    /**
+     * Check a PEM or OpenSSH encoded private key.
+     * @param what the prefix of the error message, naming the credential and field.
+     * @param text the encoded key.
+     * @param hasPassphrase if a passphrase is available to decrypt an encrypted key.
+     * @return the label of the PEM block, e.g. {@code PRIVATE KEY} or {@code OPENSSH PRIVATE KEY}.
+     * @throws CredentialsConvertionException if the key is malformed or is encrypted without a passphrase.
+     */
+    public static String checkPrivateKey(String what, String text, boolean hasPassphrase) throws CredentialsConvertionException {
+        Matcher block = PEM.matcher(text);
+        if (!block.find()) {
+            throw new CredentialsConvertionException(what + " (not a PEM or OpenSSH encoded private key)");
+        }
+        String label = block.group(1);
+        String body = block.group(2).replace("\r\n", "\n");
+        boolean encrypted = false;
+        int headersEnd = body.indexOf("\n\n");
+        if (body.contains(":") && headersEnd >= 0) {
+            // legacy PEM encryption headers: Proc-Type: 4,ENCRYPTED and DEK-Info
+            encrypted = body.substring(0, headersEnd).contains("ENCRYPTED");
+            body = body.substring(headersEnd + 2);
+        }
+        byte[] der = decode(what, body);
+        switch (label) {
+            case "OPENSSH PRIVATE KEY":
+                checkOpenSsh(what, der, hasPassphrase);
+                break;
+            case "ENCRYPTED PRIVATE KEY":
+                requirePassphrase(what, hasPassphrase);
+                checkDer(what, der);
+                break;
+            case "PRIVATE KEY":
+                checkDer(what, der);
+                checkPkcs8(what, der);
+                break;
+            case "RSA PRIVATE KEY":
+            case "EC PRIVATE KEY":
+            case "DSA PRIVATE KEY":
+                if (encrypted) {
+                    requirePassphrase(what, hasPassphrase);
+                } else {
+                    checkDer(what, der);
+                }
+                break;
+            default:
+                throw new CredentialsConvertionException(what + " (unsupported PEM block " + label + ")");
+        }
+        return label;
+    }
+
+    /**
+     * Check PEM encoded X.509 certificates.
+     * @param what the prefix of the error message, naming the credential and field.
+     * @param text the encoded certificates.
+     * @return the certificates, in the order they are encoded.
+     * @throws CredentialsConvertionException if no certificate can be read or if a certificate is expired or not
+     *         yet valid.
+     */
+    public static List<X509Certificate> checkCertificates(String what, String text) throws CredentialsConvertionException {
+        return checkCertificates(what, text, new Date());
+    }
+
+    static List<X509Certificate> checkCertificates(String what, String text, Date now) throws CredentialsConvertionException {
+        Collection<? extends java.security.cert.Certificate> parsed;
+        try {
+            parsed = CertificateFactory.getInstance("X.509")
+                    .generateCertificates(new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII)));
+        } catch (CertificateException e) {
+            throw new CredentialsConvertionException(what + " (not a PEM encoded X.509 certificate - " + e.getMessage() + ")", e);
+        }
+        if (parsed.isEmpty()) {
+            throw new CredentialsConvertionException(what + " (contains no X.509 certificate)");
+        }
+        List<X509Certificate> certificates = new ArrayList<>(parsed.size());
+        for (java.security.cert.Certificate certificate : parsed) {
+            X509Certificate x509 = (X509Certificate) certificate;
+            try {
+                x509.checkValidity(now);
+            } catch (CertificateExpiredException e) {
+                throw new CredentialsConvertionException(what + " (certificate " + x509.getSubjectX500Principal().getName() + " expired on " + x509.getNotAfter() + ")", e);
+            } catch (CertificateNotYetValidException e) {
+                throw new CredentialsConvertionException(what + " (certificate " + x509.getSubjectX500Principal().getName() + " is not valid before " + x509.getNotBefore() + ")", e);
+            }
+            certificates.add(x509);
+        }
+        return certificates;
+    }
+
+    private static byte[] decode(String what, String body) throws CredentialsConvertionException {
+        try {
+            return Base64.getMimeDecoder().decode(body.trim());
+        } catch (IllegalArgumentException e) {
+            throw new CredentialsConvertionException(what + " (the PEM block is not valid base64)", e);
+        }
+    }
+
+    private static void requirePassphrase(String what, boolean hasPassphrase) throws CredentialsConvertionException {
+        if (!hasPassphrase) {
+            throw new CredentialsConvertionException(what + " (the key is encrypted but no passphrase is provided)");
+        }
+    }
+
+    /**
+     * Check that the data is a single DER encoded SEQUENCE whose elements fit in it.
+     */
+    private static void checkDer(String what, byte[] der) throws CredentialsConvertionException {
+        ByteBuffer buffer = ByteBuffer.wrap(der);
+        if (!buffer.hasRemaining() || buffer.get() != 0x30) {
+            throw new CredentialsConvertionException(what + " (the key is not a DER encoded sequence)");
+        }
+        int length = derLength(what, buffer);
+        if (length != buffer.remaining()) {
+            throw new CredentialsConvertionException(what + " (the key is truncated or has trailing data)");
+        }
+        while (buffer.hasRemaining()) {
+            buffer.get();
+            int elementLength = derLength(what, buffer);
+            if (elementLength > buffer.remaining()) {
+                throw new CredentialsConvertionException(what + " (the key is truncated)");
+            }
+            buffer.position(buffer.position() + elementLength);
+        }
+    }
+
+    private static int derLength(String what, ByteBuffer buffer) throws CredentialsConvertionException {
+        if (!buffer.hasRemaining()) {
+            throw new CredentialsConvertionException(what + " (the key is truncated)");
+        }
+        int first = buffer.get() & 0xFF;
+        if (first < 0x80) {
+            return first;
+        }
+        int bytes = first & 0x7F;
+        if (bytes == 0 || bytes > 3 || buffer.remaining() < bytes) {
+            throw new CredentialsConvertionException(what + " (the key has an invalid DER length)");
+        }
+        int length = 0;
+        for (int i = 0; i < bytes; i++) {
+            length = (length << 8) | (buffer.get() & 0xFF);
+        }
+        return length;
+    }
+
+    /**
+     * Check that the JDK accepts the key for the algorithm it declares, keys of algorithms the JDK does not support
+     * are only checked for well-formedness.
+     */
+    private static void checkPkcs8(String what, byte[] der) throws CredentialsConvertionException {
+        String algorithm = pkcs8Algorithm(what, der);
+        if (algorithm == null) {
+            return;
+        }
+        try {
+            KeyFactory.getInstance(algorithm).generatePrivate(new PKCS8EncodedKeySpec(der));
+        } catch (NoSuchAlgorithmException e) {
+            // e.g. Ed25519 before Java 15
+        } catch (InvalidKeySpecException e) {
+            throw new CredentialsConvertionException(what + " (not a valid " + algorithm + " PKCS#8 private key)", e);
+        }
+    }
+
+    /**
+     * Read the algorithm of a PKCS#8 {@code PrivateKeyInfo}.
+     * @return the JDK name of the algorithm, {@code null} if it is not known.
+     */
+    @CheckForNull
+    private static String pkcs8Algorithm(String what, byte[] der) throws CredentialsConvertionException {
+        ByteBuffer buffer = ByteBuffer.wrap(der);
+        // PrivateKeyInfo SEQUENCE, validated by checkDer
+        buffer.get();
+        derLength(what, buffer);
+        // version INTEGER
+        if (!buffer.hasRemaining() || buffer.get() != 0x02) {
+            throw new CredentialsConvertionException(what + " (not a valid PKCS#8 private key)");
+        }
+        int versionLength = derLength(what, buffer);
+        buffer.position(Math.min(buffer.limit(), buffer.position() + versionLength));
+        // privateKeyAlgorithm AlgorithmIdentifier SEQUENCE starting with the OID
+        if (buffer.remaining() < 2 || buffer.get() != 0x30) {
+            throw new CredentialsConvertionException(what + " (not a valid PKCS#8 private key)");
+        }
+        derLength(what, buffer);
+        if (!buffer.hasRemaining() || buffer.get() != 0x06) {
+            throw new CredentialsConvertionException(what + " (not a valid PKCS#8 private key)");
+        }
+        int oidLength = derLength(what, buffer);
+        if (oidLength > buffer.remaining()) {
+            throw new CredentialsConvertionException(what + " (the key is truncated)");
+        }
+        byte[] oid = new byte[oidLength];
+        buffer.get(oid);
+        for (Map.Entry<String, byte[]> algorithm : KEY_ALGORITHMS.entrySet()) {
+            if (Arrays.equals(algorithm.getValue(), oid)) {
+                return algorithm.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check the structure of an {@code openssh-key-v1} key.
+     * @see <a href="https://cvsweb.openbsd.org/src/usr.bin/ssh/PROTOCOL.key">PROTOCOL.key</a>
+     */
+    private static void checkOpenSsh(String what, byte[] data, boolean hasPassphrase) throws CredentialsConvertionException {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        for (byte b : OPENSSH_MAGIC) {
+            if (!buffer.hasRemaining() || buffer.get() != b) {
+                throw new CredentialsConvertionException(what + " (not an openssh-key-v1 key)");
+            }
+        }
+        String cipher = new String(sshString(what, buffer), StandardCharsets.US_ASCII);
+        sshString(what, buffer); // kdfname
+        sshString(what, buffer); // kdfoptions
+        int keys = sshInt(what, buffer);
+        if (keys < 1) {
+            throw new CredentialsConvertionException(what + " (the key file contains no key)");
+        }
+        for (int i = 0; i < keys; i++) {
+            sshString(what, buffer); // public key
+        }
+        ByteBuffer privateSection = ByteBuffer.wrap(sshString(what, buffer));
+        if (!"none".equals(cipher)) {
+            requirePassphrase(what, hasPassphrase);
+            return;
+        }
+        if (sshInt(what, privateSection) != sshInt(what, privateSection)) {
+            throw new CredentialsConvertionException(what + " (the key is corrupt, the check values do not match)");
+        }
+    }
+
+    private static int sshInt(String what, ByteBuffer buffer) throws CredentialsConvertionException {
+        if (buffer.remaining() < 4) {
+            throw new CredentialsConvertionException(what + " (the key is truncated)");
+        }
+        return buffer.getInt();
+    }
+
+    private static byte[] sshString(String what, ByteBuffer buffer) throws CredentialsConvertionException {
+        int length = sshInt(what, buffer);
+        if (length < 0 || length > buffer.remaining()) {
+            throw new CredentialsConvertionException(what + " (the key is truncated)");
+        }
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return value;
+    }
+}
@@ -0,0 +1,251 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+
+/**
+ * In memory index of the {@link KubernetesSourcedCredential}s known to the {@link KubernetesCredentialProvider}.
+ * Credentials are keyed by their ID, with secondary indexes for the lookups performed by the provider.
+ * Updates are serialized, lookups are lock free.
+ */
+class KubernetesCredentialIndex {
+
+    /** Map of {@link KubernetesSourcedCredential} keyed by their credential ID */
+    private final ConcurrentHashMap<String, KubernetesSourcedCredential> credentials = new ConcurrentHashMap<>();
+
+    /** IDs of the credentials that are not restricted to item groups or items */
+    private final Set<String> unrestricted = ConcurrentHashMap.newKeySet();
+
+    /** IDs of the credentials restricted to an item group, keyed by the full name of the item group */
+    private final ConcurrentSkipListMap<String, Set<String>> byItemGroup = new ConcurrentSkipListMap<>();
+
+    /** IDs of the credentials restricted to a user, keyed by the lower case user ID */
+    private final ConcurrentHashMap<String, Set<String>> byUser = new ConcurrentHashMap<>();
+
+    /** IDs of the credentials restricted to a group, keyed by the lower case group name */
+    private final ConcurrentHashMap<String, Set<String>> byGroup = new ConcurrentHashMap<>();
+
+    /** IDs of the credentials restricted to an item, keyed by the full name of the item */
+    private final ConcurrentSkipListMap<String, Set<String>> byItem = new ConcurrentSkipListMap<>();
+
+    /** The number of credentials, keyed by the type of their secret */
+    private final ConcurrentHashMap<String, Integer> countsByType = new ConcurrentHashMap<>();
+
+    /** The credentials holding a payload, the largest payload first */
+    private final ConcurrentSkipListSet<KubernetesSourcedCredential> bySize = new ConcurrentSkipListSet<>(
+            Comparator.comparingLong(KubernetesSourcedCredential::getPayloadSize).reversed()
+                    .thenComparing(KubernetesSourcedCredential::getId));
+
+    @CheckForNull
+    KubernetesSourcedCredential get(String id) {
+        return credentials.get(id);
+    }
+
+    Collection<KubernetesSourcedCredential> all() {
+        return credentials.values();
+    }
+
+    int size() {
+        return credentials.size();
+    }
+
+    /**
+     * @return the number of credentials keyed by the type of their secret, maintained as credentials are added and
+     *         removed.
+     */
+    Map<String, Integer> getCountsByType() {
+        return Collections.unmodifiableMap(countsByType);
+    }
+
+    /**
+     * @param limit the maximum number of credentials to return.
+     * @return the credentials holding the largest payloads, largest first.
+     */
+    List<KubernetesSourcedCredential> getLargest(int limit) {
+        List<KubernetesSourcedCredential> largest = new ArrayList<>(limit);
+        for (KubernetesSourcedCredential credential : bySize) {
+            if (largest.size() >= limit) {
+                break;
+            }
+            largest.add(credential);
+        }
+        return largest;
+    }
+
+    /**
+     * @return the IDs of the credentials that are neither restricted to item groups nor to items.
+     */
+    Set<String> getUnrestrictedIds() {
+        return unrestricted;
+    }
+
+    /**
+     * Get the IDs of the credentials restricted to the given item group.
+     * @param itemGroupFullName the full name of the item group.
+     * @return the IDs of the credentials explicitly made available to the item group.
+     */
+    Set<String> getIdsForItemGroup(String itemGroupFullName) {
+        Set<String> ids = byItemGroup.get(itemGroupFullName);
+        return ids == null ? Collections.emptySet() : ids;
+    }
+
+    /**
+     * Get the IDs of the credentials that may be restricted to the given user.
+     * The user IDs are compared ignoring case, callers have to check the IDs with the {@code IdStrategy} of the
+     * security realm.
+     * @param userId the user ID.
+     * @return the IDs of the credentials made available to a user with an ID equal to {@code userId} ignoring case.
+     */
+    Set<String> getIdsForUser(String userId) {
+        Set<String> ids = byUser.get(userId.toLowerCase(Locale.ROOT));
+        return ids == null ? Collections.emptySet() : ids;
+    }
+
+    /**
+     * Get the IDs of the credentials that may be restricted to the given group.
+     * The group names are compared ignoring case, callers have to check the names with the {@code IdStrategy} of the
+     * security realm.
+     * @param group the group name.
+     * @return the IDs of the credentials made available to a group with a name equal to {@code group} ignoring case.
+     */
+    Set<String> getIdsForGroup(String group) {
+        Set<String> ids = byGroup.get(group.toLowerCase(Locale.ROOT));
+        return ids == null ? Collections.emptySet() : ids;
+    }
+
+    /**
+     * Get the IDs of the credentials restricted to the given item.
+     * @param itemFullName the full name of the item.
+     * @return the IDs of the credentials explicitly made available to the item.
+     */
+    Set<String> getIdsForItem(String itemFullName) {
+        Set<String> ids = byItem.get(itemFullName);
+        return ids == null ? Collections.emptySet() : ids;
+    }
+
+    /**
+     * Get the IDs of the credentials restricted to the given item group or item or to any of their descendants.
+     * Only the index entries of those paths are visited.
+     * @param fullName the full name of an item group or item.
+     * @return the IDs of the credentials referencing {@code fullName} or one of its descendants.
+     */
+    Set<String> getIdsUnder(String fullName) {
+        Set<String> ids = new HashSet<>();
+        collectIdsUnder(byItemGroup, fullName, ids);
+        collectIdsUnder(byItem, fullName, ids);
+        return ids;
+    }
+
+    private static void collectIdsUnder(ConcurrentNavigableMap<String, Set<String>> index, String fullName, Set<String> ids) {
+        Set<String> exact = index.get(fullName);
+        if (exact != null) {
+            ids.addAll(exact);
+        }
+        // all the paths starting with "fullName/", '0' is the character following '/'
+        for (Set<String> descendants : index.subMap(fullName + '/', fullName + '0').values()) {
+            ids.addAll(descendants);
+        }
+    }
+
+    /**
+     * Add or replace a credential.
+     * @param credential the credential to add.
+     * @return the credential previously stored with the same ID, if any.
+     */
+    @CheckForNull
+    synchronized KubernetesSourcedCredential put(KubernetesSourcedCredential credential) {
+        KubernetesSourcedCredential previous = credentials.put(credential.getId(), credential);
+        if (previous != null) {
+            unindex(previous);
+        }
+        index(credential);
+        return previous;
+    }
+
+    /**
+     * Remove a credential.
+     * @param id the ID of the credential to remove.
+     * @return the removed credential, if any.
+     */
+    @CheckForNull
+    synchronized KubernetesSourcedCredential remove(String id) {
+        KubernetesSourcedCredential previous = credentials.remove(id);
+        if (previous != null) {
+            unindex(previous);
+        }
+        return previous;
+    }
+
+    private void index(KubernetesSourcedCredential credential) {
+        String type = credential.getType();
+        if (type != null) {
+            countsByType.merge(type, 1, Integer::sum);
+        }
+        if (credential.getPayloadSize() > 0) {
+            bySize.add(credential);
+        }
+        if (credential.getItemGroups().isEmpty() && credential.getItems().isEmpty()) {
+            unrestricted.add(credential.getId());
+        }
+        for (String itemGroup : credential.getItemGroups()) {
+            add(byItemGroup, itemGroup, credential.getId());
+        }
+        for (String user : credential.getUsers()) {
+            add(byUser, user.toLowerCase(Locale.ROOT), credential.getId());
+        }
+        for (String group : credential.getGroups()) {
+            add(byGroup, group.toLowerCase(Locale.ROOT), credential.getId());
+        }
+        for (String item : credential.getItems()) {
+            add(byItem, item, credential.getId());
+        }
+    }
+
+    private void unindex(KubernetesSourcedCredential credential) {
+        String type = credential.getType();
+        if (type != null) {
+            countsByType.computeIfPresent(type, (t, count) -> count > 1 ? count - 1 : null);
+        }
+        bySize.remove(credential);
+        unrestricted.remove(credential.getId());
+        for (String itemGroup : credential.getItemGroups()) {
+            remove(byItemGroup, itemGroup, credential.getId());
+        }
+        for (String user : credential.getUsers()) {
+            remove(byUser, user.toLowerCase(Locale.ROOT), credential.getId());
+        }
+        for (String group : credential.getGroups()) {
+            remove(byGroup, group.toLowerCase(Locale.ROOT), credential.getId());
+        }
+        for (String item : credential.getItems()) {
+            remove(byItem, item, credential.getId());
+        }
+    }
+
+    private static void add(Map<String, Set<String>> index, String key, String id) {
+        index.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(id);
+    }
+
+    private static void remove(Map<String, Set<String>> index, String key, String id) {
+        Set<String> ids = index.get(key);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+}
@@ -23,10 +23,13 @@
  */
 package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import io.fabric8.kubernetes.client.KubernetesClientBuilder;
 import io.fabric8.kubernetes.client.WatcherException;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -34,11 +37,14 @@ import java.util.stream.Collectors;
 
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
 import hudson.ExtensionList;
 import hudson.model.AdministrativeMonitor;
 import hudson.model.Item;
+import hudson.model.User;
 import hudson.triggers.SafeTimerTask;
 import hudson.util.AdministrativeError;
+import hudson.util.ListBoxModel;
 import io.fabric8.kubernetes.api.model.LabelSelector;
 import io.fabric8.kubernetes.api.model.Secret;
 import io.fabric8.kubernetes.api.model.SecretList;
@@ -48,9 +54,11 @@ import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.KubernetesClientException;
 import io.fabric8.kubernetes.client.Watch;
 import io.fabric8.kubernetes.client.Watcher;
+import jenkins.model.IdStrategy;
 import jenkins.model.Jenkins;
 import jenkins.util.Timer;
 import org.acegisecurity.Authentication;
+import org.acegisecurity.GrantedAuthority;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.NoExternalUse;
 import hudson.Extension;
@@ -59,12 +67,19 @@ import hudson.init.Initializer;
 import hudson.init.TermMilestone;
 import hudson.init.Terminator;
 import hudson.model.ItemGroup;
+import hudson.model.listeners.ItemListener;
 import hudson.model.ModelObject;
+import hudson.model.Node;
+import hudson.model.Run;
 import hudson.security.ACL;
 import com.cloudbees.plugins.credentials.Credentials;
+import com.cloudbees.plugins.credentials.CredentialsMatcher;
+import com.cloudbees.plugins.credentials.CredentialsNameProvider;
 import com.cloudbees.plugins.credentials.CredentialsProvider;
 import com.cloudbees.plugins.credentials.CredentialsScope;
 import com.cloudbees.plugins.credentials.CredentialsStore;
+import com.cloudbees.plugins.credentials.CredentialsUseListener;
+import com.cloudbees.plugins.credentials.common.IdCredentials;
 import com.cloudbees.plugins.credentials.domains.DomainRequirement;
 
 @Extension
@@ -72,24 +87,72 @@ public class KubernetesCredentialProvider extends CredentialsProvider implements
 
     private static final Logger LOG = Logger.getLogger(KubernetesCredentialProvider.class.getName());
 
-    /** Map of {@link KubernetesSourcedCredential} keyed by their credential ID */
-    private ConcurrentHashMap<String, KubernetesSourcedCredential> credentials = new ConcurrentHashMap<>();
+    /** The {@link KubernetesSourcedCredential}s keyed by their credential ID, replaced and modified while holding the lock of this provider */
+    private volatile KubernetesCredentialIndex credentials = new KubernetesCredentialIndex();
+
+    /** The items moved or renamed, to warn about the secrets still referring to their previous location */
+    private final ItemPathRelocations relocations = new ItemPathRelocations();
+
+    /** The decoded secret data shared by the credentials converted from identical secrets */
+    private final SharedPayloads payloads = new SharedPayloads();
+
+    /** The secrets that failed conversion, not converted again until they change */
+    private final ConversionFailures failures = new ConversionFailures();
+
+    /** Validates the key material of the credentials in the background */
+    private final CredentialValidations validations = new CredentialValidations();
+
+    /** The credentials visible in the folders restricted by a label selector */
+    private final FolderLabelSelectors folderSelectors = new FolderLabelSelectors();
+
+    /** The time it took for the recent changes of the secrets to be visible in the credentials */
+    private final PropagationLag propagationLag = new PropagationLag();
+
+    /** The state of the list and watch of the secrets */
+    private final SyncStatus syncStatus = new SyncStatus();
+
+    /** The credential lookups by context */
+    private final LookupHotSpots hotSpots = new LookupHotSpots();
+
+    /** How many times each credential was used, and when */
+    private final CredentialUsage usage = new CredentialUsage();
+
+    /** Records the activity of the provider, resolved on first use */
+    @CheckForNull
+    private volatile ProviderMetrics metrics;
 
     @CheckForNull
     private KubernetesClient client;
+    /** The watch of the secrets, opened, replaced and closed while holding the lock of this provider */
     @CheckForNull
     private Watch watch;
-    /** Attempt to reconnect k8s client on exception */
-    private boolean reconnectClientOnException = Boolean.parseBoolean(System.getProperty(KubernetesCredentialProvider.class.getName() + ".reconnectClientOnException", "true"));
-    /** Delay in minutes before attempting to reconnect k8s client */
-    private int reconnectClientDelayMins = Integer.getInteger(KubernetesCredentialProvider.class.getName() + ".reconnectClientDelayMins", 5);
 
-    /** A map storing credential scores scoped to ModelObjects, each ModelObject has its own credential store */
-    private final Map<ModelObject, KubernetesCredentialsStore> lazyStoreCache = new HashMap<>();
+    /** The principals of {@link ACL#SYSTEM}, which only sees the credentials not restricted to a principal */
+    private static final String[] NO_PRINCIPALS = new String[0];
+
+    /** Maximum number of credential stores to cache */
+    private static final int STORE_CACHE_MAX_SIZE = Integer.getInteger(KubernetesCredentialProvider.class.getName() + ".storeCacheMaxSize", 10000);
+    /** Minutes after which an unused credential store is evicted from the cache */
+    private static final int STORE_CACHE_EXPIRY_MINS = Integer.getInteger(KubernetesCredentialProvider.class.getName() + ".storeCacheExpiryMins", 60);
+
+    /**
+     * A cache storing credential stores scoped to ModelObjects, each ModelObject has its own credential store.
+     * The keys are weak so they are compared by identity, but as each store references its context a key only
+     * becomes weakly reachable once its softly referenced store was cleared, which only happens under memory
+     * pressure. The stores of deleted or unused folders are in practice evicted by {@link #STORE_CACHE_EXPIRY_MINS}
+     * and {@link #STORE_CACHE_MAX_SIZE}.
+     */
+    private final Cache<ModelObject, KubernetesCredentialsStore> lazyStoreCache = CacheBuilder.newBuilder()
+            .weakKeys()
+            .softValues()
+            .maximumSize(STORE_CACHE_MAX_SIZE)
+            .expireAfterAccess(STORE_CACHE_EXPIRY_MINS, TimeUnit.MINUTES)
+            .recordStats()
+            .build();
 
     /**
      * Kubernetes <a href="https://kubernetes.io/docs/concepts/overview/working-with-objects/labels/#label-selectors">label selector</a> expression
-     * for matching secrets to manage.
+     * for matching secrets to manage, used unless configured in {@link KubernetesCredentialProviderConfiguration}.
      */
     static final String LABEL_SELECTOR = KubernetesCredentialProvider.class.getName() + ".labelSelector";
 
@@ -107,10 +170,13 @@ public class KubernetesCredentialProvider extends CredentialsProvider implements
 
     @Initializer(after=InitMilestone.PLUGINS_PREPARED, fatal=false)
     @Restricted(NoExternalUse.class) // only for callbacks from Jenkins
-    public void startWatchingForSecrets() {
+    public synchronized void startWatchingForSecrets() {
         final String initAdminMonitorId = getClass().getName() + ".initialize";
         final String labelSelectorAdminMonitorId = getClass().getName() + ".labelSelector";
-        String labelSelector = System.getProperty(LABEL_SELECTOR);
+        String labelSelector = KubernetesCredentialProviderConfiguration.getEffectiveLabelSelector();
+        // a watch left open, for example if the previous watch failed while it was being replaced, would keep delivering
+        // the secrets of its selector
+        closeWatch();
         try {
             KubernetesClient _client = getKubernetesClient();
             LOG.log(Level.FINER, "Using namespace: {0}", String.valueOf(_client.getNamespace()));
@@ -119,27 +185,50 @@ public class KubernetesCredentialProvider extends CredentialsProvider implements
 
             // load current set of secrets into provider
             LOG.log(Level.FINER, "retrieving secrets");
+            long start = System.nanoTime();
+            ProviderEvents.Relist relist = new ProviderEvents.Relist();
+            relist.begin();
             SecretList list = _client.secrets().withLabelSelector(selector).withLabel(SecretUtils.JENKINS_IO_CREDENTIALS_TYPE_LABEL).list();
-            ConcurrentHashMap<String, KubernetesSourcedCredential> _credentials = new  ConcurrentHashMap<>();
+            KubernetesCredentialIndex _credentials = new KubernetesCredentialIndex();
             List<Secret> secretList = list.getItems();
-            for (Secret s : secretList) {
-                LOG.log(Level.FINE, "Secret Added - {0}", SecretUtils.getCredentialId(s));
-                addSecret(s, _credentials);
+            failures.retainAll(secretList);
+            // converted in batches so converters can share their setup between secrets
+            for (KubernetesSourcedCredential credential : convertSecrets(secretList)) {
+                LOG.log(Level.FINE, "Secret Added - {0}", credential.getId());
+                release(_credentials.put(credential));
+            }
+            relist.end();
+            if (relist.shouldCommit()) {
+                relist.labelSelector = labelSelector;
+                relist.secrets = secretList.size();
+                relist.converted = _credentials.size();
+                relist.commit();
             }
+            syncStatus.listed(list.getMetadata().getResourceVersion(), start, secretList.size(), _credentials.size());
+            KubernetesCredentialIndex previous = credentials;
             credentials = _credentials;
+            for (KubernetesSourcedCredential credential : previous.all()) {
+                release(credential);
+            }
+            invalidateStores();
+            Set<String> ids = new HashSet<>();
+            for (KubernetesSourcedCredential credential : _credentials.all()) {
+                ids.add(credential.getId());
+            }
+            usage.retainAll(ids);
 
             // start watching new secrets before we list the current set of secrets so we don't miss any events
             LOG.log(Level.FINER, "registering watch");
-            // XXX https://github.com/fabric8io/kubernetes-client/issues/1014
-            // watch(resourceVersion, watcher) is deprecated but there is nothing to say why?
-            watch = _client.secrets().withLabelSelector(selector).withLabel(SecretUtils.JENKINS_IO_CREDENTIALS_TYPE_LABEL).watch(list.getMetadata().getResourceVersion(), this);
+            watch = watchSecrets(_client, selector, list.getMetadata().getResourceVersion());
+            ProviderEvents.watch("open", list.getMetadata().getResourceVersion(), null);
+            syncStatus.watching();
             LOG.log(Level.FINER, "registered watch, retrieving secrets");
 
             // successfully initialized, clear any previous monitors
             clearAdminMonitors(initAdminMonitorId, labelSelectorAdminMonitorId);
         } catch (KubernetesClientException kex) {
             LOG.log(Level.SEVERE, "Failed to initialise k8s secret provider, secrets from Kubernetes will not be available", kex);
-            if (reconnectClientOnException) {
+            if (KubernetesCredentialProviderConfiguration.isEffectiveReconnectClientOnException()) {
                 reconnectLater();
             }
             // Only report the latest failure
@@ -149,21 +238,147 @@ public class KubernetesCredentialProvider extends CredentialsProvider implements
                     "Credentials from Kubernetes Secrets will not be available.", kex);
         } catch (LabelSelectorParseException lex) {
             LOG.log(Level.SEVERE, "Failed to initialise k8s secret provider, secrets from Kubernetes will not be available", lex);
-            // Only report the latest failure
-            clearAdminMonitors(labelSelectorAdminMonitorId);
-            new AdministrativeError(labelSelectorAdminMonitorId,
-                    "Failed to parse Kubernetes secret label selector",
-                    "Failed to parse Kubernetes secret <a href=\"https://kubernetes.io/docs/concepts/overview/working-with-objects/labels/#label-selectors\" _target=\"blank\">label selector</a> " +
-                            "expression \"<code>" + labelSelector + "</code>\". Secrets from Kubernetes will not be available. ", lex);
+            labelSelectorFailed(labelSelectorAdminMonitorId, labelSelector, lex);
+        }
+    }
+
+    private void labelSelectorFailed(String labelSelectorAdminMonitorId, @CheckForNull String labelSelector, LabelSelectorParseException lex) {
+        // Only report the latest failure
+        clearAdminMonitors(labelSelectorAdminMonitorId);
+        new AdministrativeError(labelSelectorAdminMonitorId,
+                "Failed to parse Kubernetes secret label selector",
+                "Failed to parse Kubernetes secret <a href=\"https://kubernetes.io/docs/concepts/overview/working-with-objects/labels/#label-selectors\" _target=\"blank\">label selector</a> " +
+                        "expression \"<code>" + labelSelector + "</code>\". Secrets from Kubernetes will not be available. ", lex);
+    }
+
+    /**
+     * Switch to another label selector without converting again the secrets that were already selected.
+     * The secrets are listed with the new selector, the credentials of the secrets no longer selected are removed and
+     * only the secrets that were not selected before, or that changed since they were converted, are converted.
+     * The watch is then restarted with the new selector.
+     * @param labelSelector the new label selector expression, {@code null} to select all the secrets.
+     */
+    synchronized void applyLabelSelector(@CheckForNull String labelSelector) {
+        final String initAdminMonitorId = getClass().getName() + ".initialize";
+        final String labelSelectorAdminMonitorId = getClass().getName() + ".labelSelector";
+        LabelSelector selector;
+        try {
+            selector = LabelSelectorExpressions.parse(labelSelector);
+        } catch (LabelSelectorParseException lex) {
+            LOG.log(Level.SEVERE, "Failed to parse Kubernetes secret label selector, keeping the current secrets", lex);
+            labelSelectorFailed(labelSelectorAdminMonitorId, labelSelector, lex);
+            return;
+        }
+        if (watch == null) {
+            // not initialized or waiting to reconnect, the new selector is used when connecting
+            startWatchingForSecrets();
+            return;
+        }
+        LOG.log(Level.INFO, "label selector changed, retrieving secrets with selector: {0}, {1}", new String[]{SecretUtils.JENKINS_IO_CREDENTIALS_TYPE_LABEL, Objects.toString(selector)});
+        closeWatch();
+        long start = System.nanoTime();
+        ProviderEvents.Relist relist = new ProviderEvents.Relist();
+        relist.begin();
+        try {
+            KubernetesClient _client = getKubernetesClient();
+            SecretList list = _client.secrets().withLabelSelector(selector).withLabel(SecretUtils.JENKINS_IO_CREDENTIALS_TYPE_LABEL).list();
+            List<Secret> secretList = list.getItems();
+            failures.retainAll(secretList);
+            KubernetesCredentialIndex index = credentials;
+            Set<String> selected = new HashSet<>();
+            List<Secret> changed = new ArrayList<>();
+            for (Secret s : secretList) {
+                String id = SecretUtils.getCredentialId(s);
+                selected.add(id);
+                KubernetesSourcedCredential existing = index.get(id);
+                String resourceVersion = existing == null ? null : existing.getResourceVersion();
+                if (resourceVersion == null || !resourceVersion.equals(s.getMetadata().getResourceVersion())) {
+                    changed.add(s);
+                }
+            }
+            int removed = 0;
+            for (KubernetesSourcedCredential credential : new ArrayList<>(index.all())) {
+                if (!selected.contains(credential.getId())) {
+                    LOG.log(Level.FINE, "Secret no longer selected - {0}", credential.getId());
+                    release(index.remove(credential.getId()));
+                    folderSelectors.removed(credential.getId());
+                    updateStores(credential.getId(), null);
+                    usage.remove(credential.getId());
+                    removed++;
+                }
+            }
+            List<KubernetesSourcedCredential> converted = convertSecrets(changed);
+            for (KubernetesSourcedCredential credential : converted) {
+                LOG.log(Level.FINE, "Secret Added - {0}", credential.getId());
+                release(index.put(credential));
+                folderSelectors.added(credential);
+                updateStores(credential.getId(), credential);
+            }
+            relist.end();
+            if (relist.shouldCommit()) {
+                relist.labelSelector = labelSelector;
+                relist.secrets = secretList.size();
+                relist.converted = converted.size();
+                relist.commit();
+            }
+            // the credentials loaded, as after a full list, not only the ones converted again
+            syncStatus.listed(list.getMetadata().getResourceVersion(), start, secretList.size(), index.size());
+            LOG.log(Level.INFO, "Applied label selector, {0} secrets converted, {1} removed, {2} unchanged",
+                    new Object[] {changed.size(), removed, secretList.size() - changed.size()});
+            watch = watchSecrets(_client, selector, list.getMetadata().getResourceVersion());
+            ProviderEvents.watch("open", list.getMetadata().getResourceVersion(), null);
+            syncStatus.watching();
+            clearAdminMonitors(initAdminMonitorId, labelSelectorAdminMonitorId);
+        } catch (KubernetesClientException kex) {
+            LOG.log(Level.SEVERE, "Failed to apply the Kubernetes secret label selector", kex);
+            if (KubernetesCredentialProviderConfiguration.isEffectiveReconnectClientOnException()) {
+                reconnectLater();
+            }
+            // the watch is closed, as when the provider fails to initialize changes of the secrets are not received
+            clearAdminMonitors(initAdminMonitorId);
+            new AdministrativeError(initAdminMonitorId,
+                    "Failed to initialize Kubernetes secret provider",
+                    "Changes of the Kubernetes Secrets are not received until the secrets are listed again.", kex);
         }
     }
 
+    /**
+     * Watch the secrets selected by a label selector.
+     * @param client the client.
+     * @param selector the label selector.
+     * @param resourceVersion the resource version to watch from, the one of the list of the secrets.
+     * @return the watch, delivering the events to this provider.
+     */
+    Watch watchSecrets(KubernetesClient client, LabelSelector selector, @CheckForNull String resourceVersion) {
+        // XXX https://github.com/fabric8io/kubernetes-client/issues/1014
+        // watch(resourceVersion, watcher) is deprecated but there is nothing to say why?
+        return client.secrets().withLabelSelector(selector).withLabel(SecretUtils.JENKINS_IO_CREDENTIALS_TYPE_LABEL).watch(resourceVersion, this);
+    }
+
+    /**
+     * Close the watch of the secrets, if any. Must be called while holding the lock of this provider.
+     * @return {@code true} if a watch was closed.
+     */
+    private boolean closeWatch() {
+        if (watch == null) {
+            return false;
+        }
+        watch.close();
+        watch = null;
+        ProviderEvents.watch("close", null, null);
+        return true;
+    }
+
     /**
      * Schedule a future task to attempt to reconnect to the kubernetes client.
      * @see #startWatchingForSecrets()
      * @see Timer
      */
     private void reconnectLater() {
+        metrics().reconnecting();
+        ProviderEvents.watch("reconnect", null, null);
+        syncStatus.reconnecting();
+        int reconnectClientDelayMins = KubernetesCredentialProviderConfiguration.getEffectiveReconnectClientDelayMins();
         LOG.log(Level.INFO, "Attempting to reconnect Kubernetes client in {0} mins", reconnectClientDelayMins);
         Timer.get().schedule(new SafeTimerTask() {
             @Override
@@ -182,10 +397,9 @@ public class KubernetesCredentialProvider extends CredentialsProvider implements
 
     @Terminator(after=TermMilestone.STARTED)
     @Restricted(NoExternalUse.class) // only for callbacks from Jenkins
-    public void stopWatchingForSecrets() {
-        if (watch != null) {
-            watch.close();
-            watch = null;
+    public synchronized void stopWatchingForSecrets() {
+        if (closeWatch()) {
+            syncStatus.stopped();
         }
         if (client != null) {
             client.close();
@@ -195,39 +409,10 @@ public class KubernetesCredentialProvider extends CredentialsProvider implements
 
     @Override
     public <C extends Credentials> List<C> getCredentials(Class<C> type, ItemGroup itemGroup, Authentication authentication) {
-        LOG.log(Level.FINEST, "getCredentials called with type {0}, itemgroup {1} and authentication {2}", new Object[] {type.getName(), itemGroup, authentication});
-        if (ACL.SYSTEM.equals(authentication)) {
-            ArrayList<C> list = new ArrayList<>();
-            for (KubernetesSourcedCredential credential : credentials.values()) {
-                // Parent group of item can be null
-                if(itemGroup == null && !credential.getItemGroups().isEmpty()) {
-                    continue;
-                }
-                if(itemGroup != null) {
-                    String itemGroupPath = itemGroup.getFullName();
-                    Collection<String> itemGroups = credential.getItemGroups();
-                    LOG.log(Level.FINEST, "getCredentials checking if itemGroupPath {0} is in itemGroups of {1} ({2})", new Object[] { itemGroupPath, credential.getId(), itemGroups });
-                    if (!itemGroups.isEmpty() && itemGroups.stream().noneMatch(itemGroupPath::equals)) {
-                        LOG.log(Level.FINEST, "getCredentials itemGroupPath not found in: {0}", itemGroups);
-                        continue;
-                    }
-                }
-
-                // is s a type of type then populate the list...
-                LOG.log(Level.FINEST, "getCredentials {0} is a possible candidate", credential.getId());
-                if (CredentialsScope.SYSTEM == credential.getScope() && !(itemGroup instanceof Jenkins)) {
-                    LOG.log(Level.FINEST, "getCredentials {0} has SYSTEM scope, but the context is not Jenkins, ignoring", credential.getId());
-                } else if (type.isAssignableFrom(credential.getIdCredentials().getClass())) {
-                    LOG.log(Level.FINEST, "getCredentials {0} matches, adding to list", credential.getId());
-                    // cast to keep generics happy even though we are assignable..
-                    list.add(type.cast(credential.getIdCredentials()));
-                } else {
-                    LOG.log(Level.FINEST, "getCredentials {0} does not match", credential.getId());
-                }
-            }
-            return list;
+        if (LOG.isLoggable(Level.FINEST)) {
+            LOG.log(Level.FINEST, "getCredentials called with type {0}, itemgroup {1} and authentication {2}", new Object[] {type.getName(), itemGroup, authentication});
         }
-        return emptyList();
+        return collectCredentials(type, itemGroup, null, authentication);
     }
 
     @Override
@@ -235,7 +420,10 @@ public class KubernetesCredentialProvider extends CredentialsProvider implements
     public <C extends Credentials> List<C> getCredentials(@NonNull Class<C> type,
                                                           @NonNull Item item,
                                                           Authentication authentication) {
-        return getCredentials(type, item.getParent(), authentication);
+        if (LOG.isLoggable(Level.FINEST)) {
+            LOG.log(Level.FINEST, "getCredentials called with type {0}, item {1} and authentication {2}", new Object[] {type.getName(), item, authentication});
+        }
+        return collectCredentials(type, item.getParent(), item, authentication);
     }
 
     @Override
@@ -247,41 +435,474 @@ public class KubernetesCredentialProvider extends CredentialsProvider implements
         return getCredentials(type, item, authentication);
     }
 
+    /**
+     * Lists the credentials visible in the context of a store.
+     * @param itemGroup the context of the store.
+     * @return the credentials visible to the system in the context.
+     */
+    List<Credentials> listStoreCredentials(ItemGroup<?> itemGroup) {
+        return collectCredentials(Credentials.class, itemGroup, null, ACL.SYSTEM);
+    }
+
+    private <C extends Credentials> List<C> collectCredentials(Class<C> type, @Nullable ItemGroup itemGroup,
+                                                               @Nullable Item item, @Nullable Authentication authentication) {
+        if (authentication == null) {
+            return emptyList();
+        }
+        ProviderMetrics m = metrics();
+        long start = m.isEnabled() ? System.nanoTime() : 0;
+        ProviderEvents.Lookup event = ProviderEvents.beginLookup();
+        ArrayList<C> list = new ArrayList<>();
+        int scanned = collectCandidates(type, itemGroup, item, authentication, list, null, null);
+        if (m.isEnabled()) {
+            m.credentialsLookedUp(System.nanoTime() - start, list.size());
+        }
+        lookedUp(event, type, itemGroup, item, scanned, list.size());
+        return list;
+    }
+
+    /**
+     * Lists the ids of the matching credentials without materializing an intermediate list of credentials, the
+     * matcher is applied while walking the credentials.
+     */
+    @Override
+    @NonNull
+    public <C extends IdCredentials> ListBoxModel getCredentialIds(@NonNull Class<C> type,
+                                                                   @Nullable ItemGroup itemGroup,
+                                                                   @Nullable Authentication authentication,
+                                                                   @NonNull List<DomainRequirement> domainRequirements,
+                                                                   @NonNull CredentialsMatcher matcher) {
+        if (LOG.isLoggable(Level.FINEST)) {
+            LOG.log(Level.FINEST, "getCredentialIds called with type {0}, itemgroup {1} and authentication {2}", new Object[] {type.getName(), itemGroup, authentication});
+        }
+        // we do not support domain requirements
+        return collectCredentialIds(type, itemGroup, null, authentication, matcher);
+    }
+
+    @Override
+    @NonNull
+    public <C extends IdCredentials> ListBoxModel getCredentialIds(@NonNull Class<C> type,
+                                                                   @NonNull Item item,
+                                                                   @Nullable Authentication authentication,
+                                                                   @NonNull List<DomainRequirement> domainRequirements,
+                                                                   @NonNull CredentialsMatcher matcher) {
+        if (LOG.isLoggable(Level.FINEST)) {
+            LOG.log(Level.FINEST, "getCredentialIds called with type {0}, item {1} and authentication {2}", new Object[] {type.getName(), item, authentication});
+        }
+        // we do not support domain requirements
+        return collectCredentialIds(type, item.getParent(), item, authentication, matcher);
+    }
+
+    private ListBoxModel collectCredentialIds(Class<?> type, @Nullable ItemGroup itemGroup, @Nullable Item item,
+                                              @Nullable Authentication authentication, CredentialsMatcher matcher) {
+        ListBoxModel result = new ListBoxModel();
+        if (authentication != null) {
+            ProviderMetrics m = metrics();
+            long start = m.isEnabled() ? System.nanoTime() : 0;
+            ProviderEvents.Lookup event = ProviderEvents.beginLookup();
+            int scanned = collectCandidates(type, itemGroup, item, authentication, null, result, matcher);
+            if (m.isEnabled()) {
+                m.credentialsLookedUp(System.nanoTime() - start, result.size());
+            }
+            lookedUp(event, type, itemGroup, item, scanned, result.size());
+        }
+        return result;
+    }
+
+    /**
+     * Commit the flight recorder event of a lookup, if it is enabled.
+     */
+    private static void lookedUp(@CheckForNull ProviderEvents.Lookup event, Class<?> type, @Nullable ItemGroup itemGroup,
+                                 @Nullable Item item, int scanned, int results) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.type = type.getName();
+            event.context = item != null ? item.getFullName() : itemGroup != null ? itemGroup.getFullName() : "";
+            event.scanned = scanned;
+            event.results = results;
+            event.commit();
+        }
+    }
+
+    /**
+     * Resolves a single credential by its ID.
+     * Only the credential with the given ID is checked for type, scope and folder visibility so the cost of the lookup
+     * does not depend on the number of credentials sourced from Kubernetes.
+     * @param id the ID of the credential.
+     * @param type the type of credentials requested.
+     * @param itemGroup the context of the lookup, may be {@code null}.
+     * @param authentication the authentication to perform the lookup as.
+     * @param <C> the credentials type.
+     * @return the credential or {@code null} if there is no such credential visible in the given context.
+     */
+    @CheckForNull
+    public <C extends IdCredentials> C getCredentialById(@NonNull String id,
+                                                         @NonNull Class<C> type,
+                                                         @Nullable ItemGroup itemGroup,
+                                                         @Nullable Authentication authentication) {
+        KubernetesCredentialIndex index = credentials;
+        KubernetesSourcedCredential credential = index.get(id);
+        if (credential == null || authentication == null || !isVisibleTo(credential, authentication)
+                || !isSelected(itemGroup, index, id)) {
+            return null;
+        }
+        if (isCandidate(type, itemGroup, itemGroup == null ? null : itemGroup.getFullName(), credential)) {
+            usage.used(id, System.currentTimeMillis());
+            return type.cast(credential.getIdCredentials());
+        }
+        return null;
+    }
+
+    /**
+     * Resolves a single credential by its ID in the context of an item.
+     * @param id the ID of the credential.
+     * @param type the type of credentials requested.
+     * @param item the context of the lookup.
+     * @param authentication the authentication to perform the lookup as.
+     * @param <C> the credentials type.
+     * @return the credential or {@code null} if there is no such credential visible to the item.
+     * @see #getCredentialById(String, Class, ItemGroup, Authentication)
+     */
+    @CheckForNull
+    public <C extends IdCredentials> C getCredentialById(@NonNull String id,
+                                                         @NonNull Class<C> type,
+                                                         @NonNull Item item,
+                                                         @Nullable Authentication authentication) {
+        KubernetesCredentialIndex index = credentials;
+        KubernetesSourcedCredential credential = index.get(id);
+        String itemFullName = item.getFullName();
+        if (credential != null && itemFullName != null && credential.getItems().contains(itemFullName)) {
+            if (authentication != null && isVisibleTo(credential, authentication) && isItemCandidate(type, credential)
+                    && isSelected(item.getParent(), index, id)) {
+                usage.used(id, System.currentTimeMillis());
+                return type.cast(credential.getIdCredentials());
+            }
+            return null;
+        }
+        return getCredentialById(id, type, item.getParent(), authentication);
+    }
+
+    /**
+     * Collects the credentials visible to the given authentication in the given context.
+     * {@link ACL#SYSTEM} sees all the credentials that are not restricted to a principal, any other authentication
+     * only sees the credentials restricted to its user or one of its groups.
+     * When looking up the credentials of an item, the credentials restricted to that item are visited after the
+     * credentials of its parent.
+     * In a folder restricted by a label selector only the credentials of the matching secrets are visited.
+     * This is the hot path of every lookup: apart from the results it does not allocate, so the results are added
+     * directly rather than through a callback.
+     * @param type the type of credentials requested.
+     * @param itemGroup the context of the lookup, may be {@code null}.
+     * @param item the item the lookup is performed for, {@code null} for item group lookups.
+     * @param authentication the authentication to perform the lookup as.
+     * @param credentials the list to add the matching credentials to, if any.
+     * @param ids the list to add the name and ID of the matching credentials to, if any.
+     * @param matcher the matcher the credentials added to {@code ids} must match, if any.
+     * @return the number of credentials checked.
+     */
+    private <C> int collectCandidates(Class<C> type, @Nullable ItemGroup itemGroup, @Nullable Item item,
+                                      @NonNull Authentication authentication, @CheckForNull List<C> credentials,
+                                      @CheckForNull ListBoxModel ids, @CheckForNull CredentialsMatcher matcher) {
+        KubernetesCredentialIndex index = this.credentials;
+        FolderLabelSelectors.View view = folderSelectors.get(itemGroup, index);
+        // resolve the path once, it is a string concatenation for nested folders
+        String itemGroupPath = itemGroup == null ? null : itemGroup.getFullName();
+        boolean system = ACL.SYSTEM.equals(authentication);
+        String[] principals = system ? NO_PRINCIPALS : getPrincipals(authentication);
+        int scanned = 0;
+        if (system) {
+            scanned += collectSystemCandidates(index, index.getUnrestrictedIds(), type, itemGroup, itemGroupPath, view, credentials, ids, matcher);
+            if (itemGroupPath != null) {
+                scanned += collectSystemCandidates(index, index.getIdsForItemGroup(itemGroupPath), type, itemGroup, itemGroupPath, view, credentials, ids, matcher);
+            }
+        } else {
+            for (int i = 0; i < principals.length; i++) {
+                // the first principal is the user, the others are its groups
+                Set<String> candidates = i == 0 ? index.getIdsForUser(principals[i]) : index.getIdsForGroup(principals[i]);
+                scanned += candidates.size();
+                for (String id : candidates) {
+                    KubernetesSourcedCredential credential = index.get(id);
+                    // a credential available to more than one of the principals is only collected for the first one
+                    if (credential != null && isRestrictedTo(credential, principals, i)
+                            && !isRestrictedToAny(credential, principals, i)
+                            && isCandidate(type, itemGroup, itemGroupPath, credential)) {
+                        collect(credential, type, view, credentials, ids, matcher);
+                    }
+                }
+            }
+        }
+        String itemFullName = item == null ? null : item.getFullName();
+        if (itemFullName != null) {
+            Set<String> candidates = index.getIdsForItem(itemFullName);
+            scanned += candidates.size();
+            for (String id : candidates) {
+                KubernetesSourcedCredential credential = index.get(id);
+                if (credential != null && credential.getItems().contains(itemFullName)
+                        && isVisibleTo(credential, system, principals) && isItemCandidate(type, credential)) {
+                    collect(credential, type, view, credentials, ids, matcher);
+                }
+            }
+        }
+        hotSpots.record(itemFullName != null ? itemFullName : itemGroupPath == null ? "" : itemGroupPath, scanned);
+        return scanned;
+    }
+
+    private <C> int collectSystemCandidates(KubernetesCredentialIndex index, Set<String> candidates, Class<C> type,
+                                            @Nullable ItemGroup itemGroup, @Nullable String itemGroupPath,
+                                            @CheckForNull FolderLabelSelectors.View view, @CheckForNull List<C> credentials,
+                                            @CheckForNull ListBoxModel ids, @CheckForNull CredentialsMatcher matcher) {
+        for (String id : candidates) {
+            KubernetesSourcedCredential credential = index.get(id);
+            // credentials restricted to principals are only available to those principals
+            if (credential != null && credential.getPrincipals().isEmpty() && isCandidate(type, itemGroup, itemGroupPath, credential)) {
+                collect(credential, type, view, credentials, ids, matcher);
+            }
+        }
+        return candidates.size();
+    }
+
+    /**
+     * Adds a candidate to the results of a lookup, unless the label selectors of the folder of the lookup exclude it.
+     */
+    private static <C> void collect(KubernetesSourcedCredential credential, Class<C> type,
+                                    @CheckForNull FolderLabelSelectors.View view, @CheckForNull List<C> credentials,
+                                    @CheckForNull ListBoxModel ids, @CheckForNull CredentialsMatcher matcher) {
+        if (view != null && !view.contains(credential.getId())) {
+            return;
+        }
+        LOG.log(Level.FINEST, "getCredentials {0} matches, adding to list", credential.getId());
+        IdCredentials idCredentials = credential.getIdCredentials();
+        if (credentials != null) {
+            // cast to keep generics happy even though we are assignable..
+            credentials.add(type.cast(idCredentials));
+        }
+        if (ids != null && (matcher == null || matcher.matches(idCredentials))) {
+            ids.add(CredentialsNameProvider.name(idCredentials), idCredentials.getId());
+        }
+    }
+
+    /**
+     * Checks if a credential matches the label selectors of the folder of the lookup.
+     */
+    private boolean isSelected(@Nullable ItemGroup itemGroup, KubernetesCredentialIndex index, String id) {
+        FolderLabelSelectors.View view = folderSelectors.get(itemGroup, index);
+        return view == null || view.contains(id);
+    }
+
+    private static boolean isVisibleTo(KubernetesSourcedCredential credential, @NonNull Authentication authentication) {
+        boolean system = ACL.SYSTEM.equals(authentication);
+        return isVisibleTo(credential, system, system ? NO_PRINCIPALS : getPrincipals(authentication));
+    }
+
+    private static boolean isVisibleTo(KubernetesSourcedCredential credential, boolean system, String[] principals) {
+        if (system) {
+            return credential.getPrincipals().isEmpty();
+        }
+        return isRestrictedToAny(credential, principals, principals.length);
+    }
+
+    /**
+     * @return {@code true} iff the credential is restricted to one of the first {@code count} principals.
+     */
+    private static boolean isRestrictedToAny(KubernetesSourcedCredential credential, String[] principals, int count) {
+        if (credential.getPrincipals().isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            if (isRestrictedTo(credential, principals, i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if a credential is restricted to one of the principals of an authentication, the user ID and the group
+     * names are compared with the {@link IdStrategy} of the security realm.
+     * @param credential the credential.
+     * @param principals the principals of the authentication, as returned by {@link #getPrincipals(Authentication)}.
+     * @param i the index of the principal, {@code 0} for the user and the index of a group otherwise.
+     * @return {@code true} iff the credential is restricted to the principal.
+     */
+    private static boolean isRestrictedTo(KubernetesSourcedCredential credential, String[] principals, int i) {
+        return i == 0
+                ? containsName(credential.getUsers(), principals[0], userIdStrategy())
+                : containsName(credential.getGroups(), principals[i], groupIdStrategy());
+    }
+
+    private static boolean containsName(Set<String> names, String name, IdStrategy strategy) {
+        for (String candidate : names) {
+            if (strategy.equals(candidate, name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static IdStrategy userIdStrategy() {
+        // the default strategy of Jenkins when there is no security realm to ask
+        return Jenkins.getInstanceOrNull() == null ? IdStrategy.CASE_INSENSITIVE : User.idStrategy();
+    }
+
+    private static IdStrategy groupIdStrategy() {
+        return Jenkins.getInstanceOrNull() == null ? IdStrategy.CASE_INSENSITIVE : User.groupIdStrategy();
+    }
+
+    /**
+     * Resolves the user ID and the groups of an authentication.
+     * @param authentication the authentication.
+     * @return the name of the authentication followed by all of its authorities.
+     */
+    private static String[] getPrincipals(@NonNull Authentication authentication) {
+        GrantedAuthority[] authorities = authentication.getAuthorities();
+        int count = authorities == null ? 0 : authorities.length;
+        String[] principals = new String[count + 1];
+        principals[0] = authentication.getName();
+        for (int i = 0; i < count; i++) {
+            principals[i + 1] = authorities[i].getAuthority();
+        }
+        return principals;
+    }
+
+    /**
+     * Checks if a credential is of the requested type and is visible in the given context.
+     * @param type the type of credentials requested.
+     * @param itemGroup the context of the lookup, may be {@code null}.
+     * @param itemGroupPath the full name of {@code itemGroup}, {@code null} iff {@code itemGroup} is {@code null}.
+     * @param credential the credential to check.
+     * @return {@code true} iff the credential should be returned for this lookup.
+     */
+    private boolean isCandidate(Class<?> type, @Nullable ItemGroup itemGroup, @Nullable String itemGroupPath,
+                                KubernetesSourcedCredential credential) {
+        // credentials restricted to items are only available to those items, not to their item groups
+        if (!credential.getItems().isEmpty()) {
+            return false;
+        }
+        Set<String> itemGroups = credential.getItemGroups();
+        // Parent group of item can be null
+        if(itemGroupPath == null && !itemGroups.isEmpty()) {
+            return false;
+        }
+        if(itemGroupPath != null) {
+            if (LOG.isLoggable(Level.FINEST)) {
+                LOG.log(Level.FINEST, "getCredentials checking if itemGroupPath {0} is in itemGroups of {1} ({2})", new Object[] { itemGroupPath, credential.getId(), itemGroups });
+            }
+            if (!itemGroups.isEmpty() && !itemGroups.contains(itemGroupPath)) {
+                LOG.log(Level.FINEST, "getCredentials itemGroupPath not found in: {0}", itemGroups);
+                return false;
+            }
+        }
+
+        // is s a type of type then populate the list...
+        LOG.log(Level.FINEST, "getCredentials {0} is a possible candidate", credential.getId());
+        if (CredentialsScope.SYSTEM == credential.getScope() && !(itemGroup instanceof Jenkins)) {
+            LOG.log(Level.FINEST, "getCredentials {0} has SYSTEM scope, but the context is not Jenkins, ignoring", credential.getId());
+            return false;
+        }
+        if (!type.isAssignableFrom(credential.getIdCredentials().getClass())) {
+            LOG.log(Level.FINEST, "getCredentials {0} does not match", credential.getId());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks if a credential restricted to an item is of the requested type and can be used by that item.
+     * @param type the type of credentials requested.
+     * @param credential the credential to check.
+     * @return {@code true} iff the credential should be returned for this lookup.
+     */
+    private boolean isItemCandidate(Class<?> type, KubernetesSourcedCredential credential) {
+        if (CredentialsScope.SYSTEM == credential.getScope()) {
+            LOG.log(Level.FINEST, "getCredentials {0} has SYSTEM scope, but the context is an item, ignoring", credential.getId());
+            return false;
+        }
+        return type.isAssignableFrom(credential.getIdCredentials().getClass());
+    }
+
     @SuppressWarnings("null")
     private final @NonNull <T> List<T> emptyList() {
         // just a separate method to avoid having to suppress "null" for the entirety of getCredentials
         return Collections.emptyList();
     }
 
-    private void addSecret(Secret secret) {
-        addSecret(secret, credentials);
-    }
-
-    private void addSecret(Secret secret, Map<String, KubernetesSourcedCredential> map) {
+    /**
+     * @return {@code true} if the secret was converted and its credential is visible.
+     */
+    private boolean addSecret(Secret secret) {
         KubernetesSourcedCredential cred = convertSecret(secret);
-        String credentialId = SecretUtils.getCredentialId(secret);
         if (cred != null) {
-            map.put(credentialId, cred);
+            release(credentials.put(cred));
+            folderSelectors.added(cred);
+            updateStores(cred.getId(), cred);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Record the time it took for a change reported by a watch event to be visible in the credentials.
+     */
+    private void propagated(Action action, Secret secret) {
+        long changed = PropagationLag.changeTime(action, secret);
+        if (changed > 0) {
+            long lag = Math.max(0, System.currentTimeMillis() - changed);
+            propagationLag.record(action, lag);
+            metrics().propagated(action, lag);
+        } else {
+            propagationLag.unmeasured(action);
+        }
+    }
+
+    /**
+     * Release the shared payload of a credential that was removed or replaced.
+     */
+    private void release(@CheckForNull KubernetesSourcedCredential credential) {
+        if (credential == null) {
+            return;
+        }
+        SharedPayloads.Payload payload = credential.getPayload();
+        if (payload != null) {
+            payload.release();
         }
+        validations.forget(credential);
     }
 
+    /**
+     * Applies a change of a secret, while holding the lock of this provider so the change is neither lost in an index
+     * being replaced by a relist nor overwritten by a credential relocated by {@link #onItemLocationChanged}.
+     */
     @Override
-    public void eventReceived(Action action, Secret secret) {
+    public synchronized void eventReceived(Action action, Secret secret) {
+        metrics().eventReceived(action);
+        syncStatus.eventReceived(secret.getMetadata() == null ? null : secret.getMetadata().getResourceVersion());
         String credentialId = SecretUtils.getCredentialId(secret);
         switch (action) {
             case ADDED: {
                 LOG.log(Level.FINE, "Secret Added - {0}", credentialId);
-                addSecret(secret);
+                if (addSecret(secret)) {
+                    propagated(action, secret);
+                }
                 break;
             }
             case MODIFIED: {
                 LOG.log(Level.FINE, "Secret Modified - {0}", credentialId);
-                addSecret(secret);
+                if (addSecret(secret)) {
+                    propagated(action, secret);
+                }
                 break;
             }
             case DELETED: {
                 LOG.log(Level.FINE, "Secret Deleted - {0}", credentialId);
-                credentials.remove(credentialId);
+                failures.clear(credentialId);
+                release(credentials.remove(credentialId));
+                folderSelectors.removed(credentialId);
+                updateStores(credentialId, null);
+                usage.remove(credentialId);
+                propagated(action, secret);
                 break;
             }
             case ERROR: {
@@ -301,6 +922,10 @@ public class KubernetesCredentialProvider extends CredentialsProvider implements
         if (cause != null) {
             LOG.log(Level.WARNING, "Secrets watch stopped unexpectedly", cause);
             LOG.log(Level.INFO, "Restating secrets watcher");
+            ProviderEvents.watch("close", null, cause);
+            metrics().reconnecting();
+            ProviderEvents.watch("reconnect", null, null);
+            syncStatus.reconnecting();
             startWatchingForSecrets();
         } else {
             LOG.log(Level.INFO, "Secrets watcher stopped");
@@ -310,44 +935,537 @@ public class KubernetesCredentialProvider extends CredentialsProvider implements
 
     @CheckForNull
     KubernetesSourcedCredential convertSecret(Secret s) {
-        String type = s.getMetadata().getLabels().get(SecretUtils.JENKINS_IO_CREDENTIALS_TYPE_LABEL);
+        List<KubernetesSourcedCredential> converted = convertSecrets(Collections.singletonList(s));
+        return converted.isEmpty() ? null : converted.get(0);
+    }
 
-        SecretToCredentialConverter lookup = SecretToCredentialConverter.lookup(type);
-        if (lookup != null) {
-            try {
-                return new KubernetesSourcedCredential(
-                        lookup.convert(s),
-                        SecretUtils.getCredentialItemScopes(s)
-                );
-            } catch (CredentialsConvertionException ex) {
-                // do not spam the logs with the stacktrace...
-                if (LOG.isLoggable(Level.FINE)) {
-                    LOG.log(Level.FINE, "Failed to convert Secret '" + SecretUtils.getCredentialId(s) + "' of type " + type, ex);
+    /**
+     * Converts secrets to credentials, the secrets of the same type are converted in a single batch.
+     * The secrets that can not be converted are logged and recorded in {@link #failures}.
+     * @param secrets the secrets to convert.
+     * @return the credentials of the secrets that could be converted.
+     */
+    private List<KubernetesSourcedCredential> convertSecrets(Collection<Secret> secrets) {
+        SecretToCredentialConverterRegistry registry = SecretToCredentialConverterRegistry.get();
+        Map<SecretToCredentialConverter, List<SecretConversionContext>> batches = new LinkedHashMap<>();
+        for (Secret s : secrets) {
+            if (failures.isKnown(s, registry)) {
+                LOG.log(Level.FINEST, "Secret ''{0}'' is unchanged since it failed conversion, skipping", SecretUtils.getCredentialId(s));
+                continue;
+            }
+            // the labels and annotations are only parsed once for the converter and the scoping
+            SecretConversionContext context = new SecretConversionContext(s, payloads);
+            String type = context.getType();
+            SecretToCredentialConverter lookup = registry.lookup(type);
+            if (lookup == null) {
+                metrics().conversionFailed(ProviderMetrics.UNKNOWN_TYPE);
+                if (failures.record(s, registry, type, "No SecretToCredentialConverter found to convert secrets of type " + type)) {
+                    LOG.log(Level.WARNING, "No SecretToCredentialConverter found to convert secrets of type {0}", type);
                 }
-                else {
-                    LOG.log(Level.WARNING, "Failed to convert Secret ''{0}'' of type {1} due to {2}", new Object[] {SecretUtils.getCredentialId(s), type, ex.getMessage()});
+            } else if (!SecretUtils.arePrincipalsQualified(context.getPrincipals())) {
+                conversionFailed(context, registry, new CredentialsConvertionException(SecretUtils.JENKINS_IO_CREDENTIALS_PRINCIPALS_ANNOTATION +
+                        " entries must be prefixed with " + SecretUtils.USER_PRINCIPAL_PREFIX + " or " + SecretUtils.GROUP_PRINCIPAL_PREFIX));
+            } else if (!context.getItemGroups().isEmpty() && !context.getItems().isEmpty()) {
+                conversionFailed(context, registry, new CredentialsConvertionException(SecretUtils.JENKINS_IO_CREDENTIALS_ITEMS_ANNOTATION + " can not be combined with " +
+                        SecretUtils.JENKINS_IO_CREDENTIALS_ITEM_GROUP_ANNOTATION));
+            } else {
+                batches.computeIfAbsent(lookup, k -> new ArrayList<>()).add(context);
+            }
+        }
+        List<KubernetesSourcedCredential> converted = new ArrayList<>();
+        ProviderMetrics m = metrics();
+        for (Map.Entry<SecretToCredentialConverter, List<SecretConversionContext>> batch : batches.entrySet()) {
+            SecretToCredentialConverter converter = batch.getKey();
+            long start = m.isEnabled() ? System.nanoTime() : 0;
+            ProviderEvents.Conversion event = new ProviderEvents.Conversion();
+            event.begin();
+            List<SecretConversionResult> results = converter.convertAllContexts(batch.getValue());
+            event.end();
+            // converters may share work between the secrets of a batch, each is accounted the average time
+            long durationNanos = m.isEnabled() ? (System.nanoTime() - start) / Math.max(1, results.size()) : 0;
+            int failed = 0;
+            for (SecretConversionResult result : results) {
+                SecretConversionContext context = result.getContext();
+                IdCredentials credential = result.getCredential();
+                if (credential == null) {
+                    conversionFailed(context, registry, result.getError());
+                    failed++;
+                    continue;
                 }
-                return null;
+                m.converted(context.getType(), durationNanos);
+                Secret s = context.getSecret();
+                warnIfRelocated(s, context.getItemGroups());
+                warnIfRelocated(s, context.getItems());
+                KubernetesSourcedCredential sourced = new KubernetesSourcedCredential(
+                        credential,
+                        context.getItemGroups(),
+                        context.getPrincipals(),
+                        context.getItems(),
+                        context.getPayload(),
+                        new CredentialValidation(),
+                        labels(s),
+                        s.getMetadata().getResourceVersion()
+                );
+                if (converter instanceof CredentialValidator) {
+                    // published right away, the key material is checked in the background
+                    validations.submit(sourced, (CredentialValidator<?>) converter);
+                }
+                converted.add(sourced);
+                failures.clear(SecretUtils.getCredentialId(s));
+            }
+            if (event.shouldCommit()) {
+                event.type = batch.getValue().get(0).getType();
+                event.secrets = results.size();
+                event.failed = failed;
+                event.outcome = failed == 0 ? "success" : failed == results.size() ? "failure" : "partial";
+                event.commit();
             }
         }
-        LOG.log(Level.WARNING, "No SecretToCredentialConverter found to convert secrets of type {0}", type);
-        return null;
+        return converted;
+    }
+
+    private void conversionFailed(SecretConversionContext context, SecretToCredentialConverterRegistry registry,
+                                  @CheckForNull CredentialsConvertionException ex) {
+        Secret s = context.getSecret();
+        String type = context.getType();
+        String reason = ex == null ? "unknown error" : String.valueOf(ex.getMessage());
+        metrics().conversionFailed(type);
+        boolean warn = failures.record(s, registry, type, reason);
+        // do not spam the logs with the stacktrace...
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.log(Level.FINE, "Failed to convert Secret '" + SecretUtils.getCredentialId(s) + "' of type " + type, ex);
+        }
+        else if (warn) {
+            LOG.log(Level.WARNING, "Failed to convert Secret ''{0}'' of type {1} due to {2}", new Object[] {SecretUtils.getCredentialId(s), type, reason});
+        }
+    }
+
+    /**
+     * The labels of a secret, retained for the label selectors of folders.
+     */
+    private static Map<String, String> labels(Secret s) {
+        Map<String, String> labels = s.getMetadata().getLabels();
+        return labels == null ? Collections.emptyMap() : Collections.unmodifiableMap(labels);
+    }
+
+    /**
+     * Warn about the item groups or items referenced by a secret that have been moved, the credential is not
+     * redirected to their new location.
+     */
+    private void warnIfRelocated(Secret s, Set<String> paths) {
+        for (String path : paths) {
+            String relocated = relocations.resolve(path);
+            if (relocated != null) {
+                LOG.log(Level.WARNING, "Secret ''{0}'' refers to ''{1}'' which has been moved to ''{2}'', the credential is not available there until the secret is updated",
+                        new Object[] {SecretUtils.getCredentialId(s), path, relocated});
+            }
+        }
+    }
+
+    /**
+     * Rewrites the credentials restricted to an item or item group (or to one of its descendants) that was moved or
+     * renamed, so they follow it. Only the affected index entries are visited, the secrets converted after the move
+     * keep referring to the previous location until they are updated.
+     * The credentials are rewritten while holding the lock of this provider, as the secret events and the relists
+     * are applied, so a credential modified or deleted meanwhile is not brought back.
+     * @param oldFullName the previous full name of the item.
+     * @param newFullName the new full name of the item.
+     */
+    synchronized void onItemLocationChanged(String oldFullName, String newFullName) {
+        relocations.record(oldFullName, newFullName);
+        KubernetesCredentialIndex index = credentials;
+        for (String id : index.getIdsUnder(oldFullName)) {
+            KubernetesSourcedCredential credential = index.get(id);
+            if (credential == null) {
+                continue;
+            }
+            LOG.log(Level.WARNING, "Secret ''{0}'' refers to ''{1}'' which has been moved to ''{2}'', the secret should be updated",
+                    new Object[] {id, oldFullName, newFullName});
+            // the copy takes over the payload reference and the validation of the replaced credential
+            index.put(new KubernetesSourcedCredential(
+                    credential.getIdCredentials(),
+                    ItemPathRelocations.relocate(credential.getItemGroups(), oldFullName, newFullName),
+                    credential.getPrincipals(),
+                    ItemPathRelocations.relocate(credential.getItems(), oldFullName, newFullName),
+                    credential.getPayload(),
+                    credential.getValidation(),
+                    credential.getLabels(),
+                    credential.getResourceVersion()
+            ));
+        }
+        folderSelectors.invalidate(oldFullName);
+        folderSelectors.invalidate(newFullName);
+        // the stores of the moved items are found under the new location
+        invalidateStores(newFullName);
+    }
+
+    /**
+     * Forgets the relocations from the location of an item that was created or copied, the secrets referring to that
+     * location now mean the new item.
+     * @param fullName the full name of the new item.
+     */
+    void onItemCreated(String fullName) {
+        relocations.created(fullName);
+        folderSelectors.invalidate(fullName);
+        invalidateStores(fullName);
+    }
+
+    /**
+     * Warns about the credentials restricted to an item or item group (or to one of its descendants) that was deleted.
+     * The credentials are kept as the path may be recreated.
+     * @param fullName the full name of the deleted item.
+     */
+    void onItemDeleted(String fullName) {
+        relocations.forget(fullName);
+        for (String id : credentials.getIdsUnder(fullName)) {
+            LOG.log(Level.WARNING, "Secret ''{0}'' refers to ''{1}'' which has been deleted", new Object[] {id, fullName});
+        }
+        folderSelectors.invalidate(fullName);
+        invalidateStores(fullName);
+    }
+
+    /**
+     * Discards the credentials selected for an item group whose configuration, and so its label selector, may have
+     * changed.
+     * @param fullName the full name of the item group.
+     */
+    void onItemGroupUpdated(String fullName) {
+        folderSelectors.invalidate(fullName);
+        invalidateStores(fullName);
     }
 
     @Override
     public CredentialsStore getStore(ModelObject object) {
         if(object instanceof ItemGroup<?>) {
-            lazyStoreCache.putIfAbsent(object, new KubernetesCredentialsStore(this, (ItemGroup<?>) object));
-            return lazyStoreCache.get(object);
+            try {
+                // the store is created at most once per object, concurrent callers wait for it
+                return lazyStoreCache.get(object, () -> new KubernetesCredentialsStore(this, (ItemGroup<?>) object));
+            } catch (ExecutionException e) {
+                // creating a store does not throw checked exceptions
+                throw new IllegalStateException(e.getCause());
+            }
         }
         return null;
     }
 
+    /**
+     * @return the current index of the credentials, used by the stores to detect changes.
+     */
+    KubernetesCredentialIndex getCredentialIndex() {
+        return credentials;
+    }
+
+    /**
+     * Invalidates the state the cached stores derived from the item hierarchy or from the index.
+     */
+    private void invalidateStores() {
+        for (KubernetesCredentialsStore store : lazyStoreCache.asMap().values()) {
+            store.invalidate();
+        }
+    }
+
+    /**
+     * Invalidates the cached stores of an item group and of its descendants, the only stores whose context, folder
+     * label selectors or credentials depend on the item group.
+     * @param fullName the full name of the item group.
+     */
+    private void invalidateStores(String fullName) {
+        for (KubernetesCredentialsStore store : lazyStoreCache.asMap().values()) {
+            String context = ((ItemGroup<?>) store.getContext()).getFullName();
+            if (context != null && ItemPathRelocations.isSameOrDescendant(context, fullName)) {
+                store.invalidate();
+            }
+        }
+    }
+
+    /**
+     * Updates the credentials of the cached stores after a credential was added, modified or removed, each store
+     * only checks if that credential is visible in its context.
+     * Must be called after the index and the label selectors of the folders are updated.
+     * @param id the ID of the credential.
+     * @param credential the credential, {@code null} if it was removed.
+     */
+    private void updateStores(String id, @CheckForNull KubernetesSourcedCredential credential) {
+        KubernetesCredentialIndex index = credentials;
+        for (KubernetesCredentialsStore store : lazyStoreCache.asMap().values()) {
+            ItemGroup<?> context = (ItemGroup<?>) store.getContext();
+            store.updated(id, credential != null && isStoreCandidate(context, index, credential) ? credential.getIdCredentials() : null);
+        }
+    }
+
+    /**
+     * Checks if a credential is listed by the store of a context, as {@link #listStoreCredentials(ItemGroup)} would.
+     */
+    private boolean isStoreCandidate(ItemGroup<?> context, KubernetesCredentialIndex index, KubernetesSourcedCredential credential) {
+        return credential.getPrincipals().isEmpty()
+                && isCandidate(Credentials.class, context, context.getFullName(), credential)
+                && isSelected(context, index, credential.getId());
+    }
+
+    /**
+     * @return the recorder of the activity of the provider, a recorder doing nothing unless the Metrics plugin is
+     *         installed.
+     */
+    ProviderMetrics metrics() {
+        ProviderMetrics m = metrics;
+        if (m == null) {
+            List<ProviderMetrics> all = Jenkins.getInstanceOrNull() == null ? Collections.emptyList() : ExtensionList.lookup(ProviderMetrics.class);
+            m = all.isEmpty() ? ProviderMetrics.NOOP : all.get(0);
+            metrics = m;
+        }
+        return m;
+    }
+
+    /**
+     * @param type the type of secret.
+     * @return the number of credentials converted from secrets of the given type.
+     */
+    @Restricted(NoExternalUse.class)
+    public int getCredentialCount(String type) {
+        Integer count = credentials.getCountsByType().get(type);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * @return the number of credentials keyed by the type of their secret, sorted by type.
+     */
+    @Restricted(NoExternalUse.class)
+    public Map<String, Integer> getCredentialCounts() {
+        return new TreeMap<>(credentials.getCountsByType());
+    }
+
+    /**
+     * @return the number of credentials.
+     */
+    @Restricted(NoExternalUse.class)
+    public int getCredentialCount() {
+        return credentials.size();
+    }
+
+    /**
+     * @param limit the maximum number of credentials to return.
+     * @return the credentials holding the largest secret payloads, largest first.
+     */
+    @Restricted(NoExternalUse.class)
+    public List<KubernetesSourcedCredential> getLargestCredentials(int limit) {
+        return credentials.getLargest(limit);
+    }
+
+    /**
+     * @param limit the maximum number of contexts to return.
+     * @return the items and item groups whose credential lookups scanned the most credentials.
+     */
+    @Restricted(NoExternalUse.class)
+    public List<LookupHotSpots.HotSpot> getLookupHotSpots(int limit) {
+        return hotSpots.getTop(limit);
+    }
+
+    /**
+     * @param id the ID of a credential.
+     * @return how many times the credential was used since Jenkins started, and when it was last.
+     */
+    @Restricted(NoExternalUse.class)
+    public CredentialUsage.Entry getCredentialUsage(String id) {
+        return usage.get(id);
+    }
+
+    /**
+     * Record the use of a credential tracked by the credentials plugin, if it is sourced from Kubernetes.
+     * @param c the credential that was used.
+     */
+    void used(Credentials c) {
+        if (c instanceof IdCredentials) {
+            String id = ((IdCredentials) c).getId();
+            KubernetesSourcedCredential credential = credentials.get(id);
+            if (credential != null && credential.getIdCredentials() == c) {
+                usage.used(id, System.currentTimeMillis());
+            }
+        }
+    }
+
+    /**
+     * @return the state of the list and watch of the secrets.
+     */
+    @Restricted(NoExternalUse.class)
+    public SyncStatus getSyncStatus() {
+        return syncStatus;
+    }
+
+    /**
+     * @return the number of distinct secret payloads shared by the credentials.
+     */
+    @Restricted(NoExternalUse.class)
+    public int getSharedPayloadCount() {
+        return payloads.size();
+    }
+
+    /**
+     * @return the number of credentials sharing their secret payload.
+     */
+    @Restricted(NoExternalUse.class)
+    public long getSharedPayloadReferences() {
+        return payloads.getReferences();
+    }
+
+    /**
+     * @return the estimated number of heap bytes saved by sharing identical secret payloads between credentials.
+     */
+    @Restricted(NoExternalUse.class)
+    public long getSharedPayloadBytesSaved() {
+        return payloads.getBytesSaved();
+    }
+
+    /**
+     * @return the secrets that could not be converted to credentials, sorted by name.
+     */
+    @Restricted(NoExternalUse.class)
+    public List<ConversionFailures.Failure> getConversionFailures() {
+        return failures.getAll();
+    }
+
+    /**
+     * @return the credentials whose key material is invalid or could not be validated in time, sorted by ID.
+     */
+    @Restricted(NoExternalUse.class)
+    public List<KubernetesSourcedCredential> getInvalidCredentials() {
+        List<KubernetesSourcedCredential> invalid = new ArrayList<>();
+        KubernetesCredentialIndex index = credentials;
+        for (Map.Entry<String, CredentialValidation> failure : validations.getFailures().entrySet()) {
+            KubernetesSourcedCredential credential = index.get(failure.getKey());
+            // a failure of a credential that is being replaced is not reported
+            if (credential != null && credential.getValidation() == failure.getValue()) {
+                invalid.add(credential);
+            }
+        }
+        invalid.sort(Comparator.comparing(KubernetesSourcedCredential::getId));
+        return invalid;
+    }
+
+    /**
+     * @return {@code true} if the key material of a credential is invalid or could not be validated in time.
+     */
+    @Restricted(NoExternalUse.class)
+    public boolean hasInvalidCredentials() {
+        return validations.hasFailures();
+    }
+
+    /**
+     * @return the time it took for the recent changes of the secrets to be visible in the credentials, by action.
+     */
+    @Restricted(NoExternalUse.class)
+    public List<PropagationLag.Summary> getPropagationLag() {
+        return propagationLag.getSummaries();
+    }
+
+    /**
+     * @return the number of deletions of secrets whose lag could not be measured since Jenkins started, the secrets
+     *         deleted without a finalizer have no deletion time.
+     */
+    @Restricted(NoExternalUse.class)
+    public long getUnmeasuredDeletions() {
+        return propagationLag.getUnmeasured(Action.DELETED);
+    }
+
+    /**
+     * @return the action of the watch events whose recent changes took longer than the objective to be visible, at
+     *         the 99th percentile, {@code null} if the objective is met or disabled.
+     */
+    @CheckForNull
+    Action getPropagationSloBreach() {
+        long slo = KubernetesCredentialProviderConfiguration.getEffectivePropagationSloSeconds();
+        return slo <= 0 ? null : propagationLag.getBreach(TimeUnit.SECONDS.toMillis(slo));
+    }
+
+    /**
+     * @return {@code true} if some secrets could not be converted to credentials.
+     */
+    @Restricted(NoExternalUse.class)
+    public boolean hasConversionFailures() {
+        return !failures.isEmpty();
+    }
+
+    /**
+     * @return the hit, miss and eviction statistics of the credential store cache, published as metrics and on the
+     *         diagnostics page.
+     */
+    @Restricted(NoExternalUse.class)
+    public CacheStats getStoreCacheStats() {
+        return lazyStoreCache.stats();
+    }
+
+    /**
+     * @return the approximate number of cached credential stores.
+     */
+    @Restricted(NoExternalUse.class)
+    public long getStoreCacheSize() {
+        return lazyStoreCache.size();
+    }
+
     @Override
     public String getIconClassName() {
         return "icon-credentials-kubernetes-store";
     }
 
+    /**
+     * Keeps the credentials and the stores consistent with the item hierarchy when items are created, copied, moved,
+     * renamed, deleted or reconfigured.
+     */
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static class ItemListenerImpl extends ItemListener {
+
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            ExtensionList.lookupSingleton(KubernetesCredentialProvider.class).onItemLocationChanged(oldFullName, newFullName);
+        }
+
+        @Override
+        public void onCreated(Item item) {
+            ExtensionList.lookupSingleton(KubernetesCredentialProvider.class).onItemCreated(item.getFullName());
+        }
+
+        @Override
+        public void onCopied(Item src, Item item) {
+            ExtensionList.lookupSingleton(KubernetesCredentialProvider.class).onItemCreated(item.getFullName());
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            ExtensionList.lookupSingleton(KubernetesCredentialProvider.class).onItemDeleted(item.getFullName());
+        }
+
+        @Override
+        public void onUpdated(Item item) {
+            if (item instanceof ItemGroup) {
+                ExtensionList.lookupSingleton(KubernetesCredentialProvider.class).onItemGroupUpdated(item.getFullName());
+            }
+        }
+    }
+
+    /**
+     * Records the use of the credentials tracked with {@link CredentialsProvider#track}, for example by
+     * {@code withCredentials}, which resolves a credential by listing all the credentials of its type.
+     */
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static class CredentialsUseListenerImpl implements CredentialsUseListener {
+
+        @Override
+        public void onUse(Credentials c, Run run) {
+            ExtensionList.lookupSingleton(KubernetesCredentialProvider.class).used(c);
+        }
+
+        @Override
+        public void onUse(Credentials c, Node node) {
+            ExtensionList.lookupSingleton(KubernetesCredentialProvider.class).used(c);
+        }
+
+        @Override
+        public void onUse(Credentials c, Item item) {
+            ExtensionList.lookupSingleton(KubernetesCredentialProvider.class).used(c);
+        }
+    }
+
     private static class WithContextClassLoader implements AutoCloseable {
 
         private final ClassLoader previousClassLoader;
@@ -0,0 +1,201 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import java.util.Objects;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.Util;
+import hudson.util.FormValidation;
+import jenkins.model.GlobalConfiguration;
+import jenkins.model.Jenkins;
+import jenkins.util.Timer;
+import net.sf.json.JSONObject;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerRequest;
+
+/**
+ * Global configuration of the {@link KubernetesCredentialProvider}, applied without restarting Jenkins.
+ * Each setting that is not configured falls back to its system property. A setting submitted with the value of its
+ * system property is not stored, so saving the form for another setting does not pin the value of the property.
+ */
+@Extension
+public class KubernetesCredentialProviderConfiguration extends GlobalConfiguration {
+
+    static final String RECONNECT_CLIENT_ON_EXCEPTION = KubernetesCredentialProvider.class.getName() + ".reconnectClientOnException";
+    static final String RECONNECT_CLIENT_DELAY_MINS = KubernetesCredentialProvider.class.getName() + ".reconnectClientDelayMins";
+    static final String PROPAGATION_SLO_SECONDS = KubernetesCredentialProvider.class.getName() + ".propagationSloSeconds";
+
+    /** The label selector, {@code null} to use {@link KubernetesCredentialProvider#LABEL_SELECTOR} */
+    @CheckForNull
+    private String labelSelector;
+    /** {@code null} to use {@link #RECONNECT_CLIENT_ON_EXCEPTION} */
+    @CheckForNull
+    private Boolean reconnectClientOnException;
+    /** {@code null} to use {@link #RECONNECT_CLIENT_DELAY_MINS} */
+    @CheckForNull
+    private Integer reconnectClientDelayMins;
+    /** {@code null} to use {@link #PROPAGATION_SLO_SECONDS} */
+    @CheckForNull
+    private Integer propagationSloSeconds;
+
+    public KubernetesCredentialProviderConfiguration() {
+        load();
+    }
+
+    /**
+     * @return the configuration, {@code null} if Jenkins is not running.
+     */
+    @CheckForNull
+    static KubernetesCredentialProviderConfiguration getOrNull() {
+        return Jenkins.getInstanceOrNull() == null ? null : ExtensionList.lookupSingleton(KubernetesCredentialProviderConfiguration.class);
+    }
+
+    /**
+     * @return the label selector expression to use, {@code null} to select all the secrets.
+     */
+    @CheckForNull
+    static String getEffectiveLabelSelector() {
+        KubernetesCredentialProviderConfiguration configuration = getOrNull();
+        if (configuration != null && configuration.labelSelector != null) {
+            return configuration.labelSelector;
+        }
+        return System.getProperty(KubernetesCredentialProvider.LABEL_SELECTOR);
+    }
+
+    /**
+     * @return {@code true} if the client should reconnect after failing to list or watch the secrets.
+     */
+    static boolean isEffectiveReconnectClientOnException() {
+        KubernetesCredentialProviderConfiguration configuration = getOrNull();
+        if (configuration != null && configuration.reconnectClientOnException != null) {
+            return configuration.reconnectClientOnException;
+        }
+        return reconnectClientOnExceptionProperty();
+    }
+
+    private static boolean reconnectClientOnExceptionProperty() {
+        return Boolean.parseBoolean(System.getProperty(RECONNECT_CLIENT_ON_EXCEPTION, "true"));
+    }
+
+    /**
+     * @return the delay in minutes before reconnecting the client.
+     */
+    static int getEffectiveReconnectClientDelayMins() {
+        KubernetesCredentialProviderConfiguration configuration = getOrNull();
+        if (configuration != null && configuration.reconnectClientDelayMins != null) {
+            return configuration.reconnectClientDelayMins;
+        }
+        return reconnectClientDelayMinsProperty();
+    }
+
+    private static int reconnectClientDelayMinsProperty() {
+        return Integer.getInteger(RECONNECT_CLIENT_DELAY_MINS, 5);
+    }
+
+    /**
+     * @return the objective in seconds for the 99th percentile of the time for a change of a secret to be visible in
+     *         the credentials, {@code 0} if there is no objective.
+     */
+    static int getEffectivePropagationSloSeconds() {
+        KubernetesCredentialProviderConfiguration configuration = getOrNull();
+        if (configuration != null && configuration.propagationSloSeconds != null) {
+            return configuration.propagationSloSeconds;
+        }
+        return propagationSloSecondsProperty();
+    }
+
+    private static int propagationSloSecondsProperty() {
+        return Integer.getInteger(PROPAGATION_SLO_SECONDS, 60);
+    }
+
+    /**
+     * @return the configured label selector, {@code null} if the system property is used.
+     */
+    @CheckForNull
+    public String getLabelSelector() {
+        return labelSelector;
+    }
+
+    @DataBoundSetter
+    public void setLabelSelector(@CheckForNull String labelSelector) {
+        this.labelSelector = Util.fixEmptyAndTrim(labelSelector);
+    }
+
+    public boolean isReconnectClientOnException() {
+        return reconnectClientOnException == null ? reconnectClientOnExceptionProperty() : reconnectClientOnException;
+    }
+
+    /**
+     * @param reconnectClientOnException the setting, not stored if it is the value of the system property.
+     */
+    @DataBoundSetter
+    public void setReconnectClientOnException(boolean reconnectClientOnException) {
+        this.reconnectClientOnException = reconnectClientOnException == reconnectClientOnExceptionProperty() ? null : reconnectClientOnException;
+    }
+
+    public int getReconnectClientDelayMins() {
+        return reconnectClientDelayMins == null ? reconnectClientDelayMinsProperty() : reconnectClientDelayMins;
+    }
+
+    /**
+     * @param reconnectClientDelayMins the setting, not stored if it is the value of the system property.
+     */
+    @DataBoundSetter
+    public void setReconnectClientDelayMins(int reconnectClientDelayMins) {
+        int value = Math.max(1, reconnectClientDelayMins);
+        this.reconnectClientDelayMins = value == reconnectClientDelayMinsProperty() ? null : value;
+    }
+
+    public int getPropagationSloSeconds() {
+        return propagationSloSeconds == null ? propagationSloSecondsProperty() : propagationSloSeconds;
+    }
+
+    /**
+     * @param propagationSloSeconds the setting, not stored if it is the value of the system property.
+     */
+    @DataBoundSetter
+    public void setPropagationSloSeconds(int propagationSloSeconds) {
+        int value = Math.max(0, propagationSloSeconds);
+        this.propagationSloSeconds = value == propagationSloSecondsProperty() ? null : value;
+    }
+
+    @Override
+    public boolean configure(StaplerRequest req, JSONObject json) throws FormException {
+        String previousLabelSelector = getEffectiveLabelSelector();
+        req.bindJSON(this, json);
+        save();
+        String labelSelector = getEffectiveLabelSelector();
+        if (!Objects.equals(previousLabelSelector, labelSelector)) {
+            // the secrets are listed again, not worth blocking the request
+            KubernetesCredentialProvider provider = ExtensionList.lookupSingleton(KubernetesCredentialProvider.class);
+            Timer.get().submit(() -> provider.applyLabelSelector(labelSelector));
+        }
+        return true;
+    }
+
+    @NonNull
+    @Override
+    public String getDisplayName() {
+        return "Kubernetes Credentials Provider";
+    }
+
+    public FormValidation doCheckLabelSelector(@QueryParameter String value) {
+        try {
+            LabelSelectorExpressions.compile(value);
+            return FormValidation.ok();
+        } catch (LabelSelectorParseException e) {
+            return FormValidation.error(e.getMessage());
+        }
+    }
+
+    public FormValidation doCheckReconnectClientDelayMins(@QueryParameter String value) {
+        return FormValidation.validatePositiveInteger(value);
+    }
+
+    public FormValidation doCheckPropagationSloSeconds(@QueryParameter String value) {
+        return FormValidation.validateNonNegativeInteger(value);
+    }
+}
@@ -0,0 +1,160 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.convertors.CertificateCredentialsConvertor;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricSet;
+import com.codahale.metrics.Timer;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import hudson.ExtensionList;
+import io.fabric8.kubernetes.client.Watcher;
+import jenkins.metrics.api.MetricProvider;
+import jenkins.metrics.api.Metrics;
+import org.jenkinsci.plugins.variant.OptionalExtension;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Publishes the metrics of the {@link KubernetesCredentialProvider} with the Metrics plugin.
+ * The metrics that do not depend on the type of the secrets are registered by the Metrics plugin, the metrics per
+ * type are registered when a secret of that type is first seen.
+ */
+@OptionalExtension(requirePlugins = {"metrics"})
+@Restricted(NoExternalUse.class)
+public class KubernetesCredentialProviderMetrics extends MetricProvider implements ProviderMetrics {
+
+    static final String PREFIX = "jenkins.kubernetes-credentials-provider";
+
+    /** Supplies the registry the metrics per type are added to */
+    private final Supplier<MetricRegistry> registry;
+    private final Map<Watcher.Action, Counter> events = new EnumMap<>(Watcher.Action.class);
+    /** The time for the changes to be visible in the credentials, by action */
+    private final Map<Watcher.Action, Histogram> propagations = new EnumMap<>(Watcher.Action.class);
+    private final Timer lookups = new Timer();
+    private final Histogram lookupSizes = new Histogram(new ExponentiallyDecayingReservoir());
+    private final Counter reconnects = new Counter();
+    private final Counter failures = new Counter();
+    /** The conversion time of the secrets, by type */
+    private final ConcurrentMap<String, Timer> conversions = new ConcurrentHashMap<>();
+    /** The conversion failures, by type */
+    private final ConcurrentMap<String, Counter> failuresByType = new ConcurrentHashMap<>();
+    /** When the last watch event was received, {@code 0} if none was received */
+    private volatile long lastEvent;
+    private final MetricSet metricSet;
+
+    public KubernetesCredentialProviderMetrics() {
+        this(Metrics::metricRegistry);
+    }
+
+    KubernetesCredentialProviderMetrics(Supplier<MetricRegistry> registry) {
+        this.registry = registry;
+        Map<String, Metric> metrics = new HashMap<>();
+        for (Watcher.Action action : Watcher.Action.values()) {
+            Counter counter = new Counter();
+            events.put(action, counter);
+            metrics.put(MetricRegistry.name(PREFIX, "events", action.name().toLowerCase(Locale.ROOT)), counter);
+        }
+        for (Watcher.Action action : new Watcher.Action[] {Watcher.Action.ADDED, Watcher.Action.MODIFIED, Watcher.Action.DELETED}) {
+            Histogram histogram = new Histogram(new ExponentiallyDecayingReservoir());
+            propagations.put(action, histogram);
+            metrics.put(MetricRegistry.name(PREFIX, "propagation", action.name().toLowerCase(Locale.ROOT), "lagMillis"), histogram);
+        }
+        metrics.put(MetricRegistry.name(PREFIX, "lookup", "duration"), lookups);
+        metrics.put(MetricRegistry.name(PREFIX, "lookup", "size"), lookupSizes);
+        metrics.put(MetricRegistry.name(PREFIX, "reconnects"), reconnects);
+        metrics.put(MetricRegistry.name(PREFIX, "conversion", "failures"), failures);
+        metrics.put(MetricRegistry.name(PREFIX, "credentials"),
+                (Gauge<Integer>) () -> ExtensionList.lookupSingleton(KubernetesCredentialProvider.class).getCredentialIndex().size());
+        metrics.put(MetricRegistry.name(PREFIX, "storeCache", "size"),
+                (Gauge<Long>) () -> ExtensionList.lookupSingleton(KubernetesCredentialProvider.class).getStoreCacheSize());
+        metrics.put(MetricRegistry.name(PREFIX, "storeCache", "hitRate"),
+                (Gauge<Double>) () -> ExtensionList.lookupSingleton(KubernetesCredentialProvider.class).getStoreCacheStats().hitRate());
+        metrics.put(MetricRegistry.name(PREFIX, "storeCache", "evictions"),
+                (Gauge<Long>) () -> ExtensionList.lookupSingleton(KubernetesCredentialProvider.class).getStoreCacheStats().evictionCount());
+        metrics.put(MetricRegistry.name(PREFIX, "keyStoreCache", "size"),
+                (Gauge<Long>) CertificateCredentialsConvertor::getKeyStoreCacheSize);
+        metrics.put(MetricRegistry.name(PREFIX, "keyStoreCache", "hits"),
+                (Gauge<Long>) () -> CertificateCredentialsConvertor.getKeyStoreCacheStats().hitCount());
+        metrics.put(MetricRegistry.name(PREFIX, "keyStoreCache", "misses"),
+                (Gauge<Long>) () -> CertificateCredentialsConvertor.getKeyStoreCacheStats().missCount());
+        metrics.put(MetricRegistry.name(PREFIX, "keyStoreCache", "loadTimeMillis"),
+                (Gauge<Long>) () -> TimeUnit.NANOSECONDS.toMillis(CertificateCredentialsConvertor.getKeyStoreCacheStats().totalLoadTime()));
+        metrics.put(MetricRegistry.name(PREFIX, "events", "lastAgeMillis"), (Gauge<Long>) () -> {
+            long last = lastEvent;
+            return last == 0 ? -1 : System.currentTimeMillis() - last;
+        });
+        this.metricSet = () -> metrics;
+    }
+
+    @Override
+    public MetricSet getMetricSet() {
+        return metricSet;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void eventReceived(Watcher.Action action) {
+        lastEvent = System.currentTimeMillis();
+        events.get(action).inc();
+    }
+
+    @Override
+    public void converted(@CheckForNull String type, long durationNanos) {
+        conversions.computeIfAbsent(String.valueOf(type), this::register).update(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void conversionFailed(@CheckForNull String type) {
+        failures.inc();
+        failuresByType.computeIfAbsent(String.valueOf(type),
+                t -> registry.get().counter(MetricRegistry.name(PREFIX, "conversion", t, "failures"))).inc();
+    }
+
+    @Override
+    public void credentialsLookedUp(long durationNanos, int size) {
+        lookups.update(durationNanos, TimeUnit.NANOSECONDS);
+        lookupSizes.update(size);
+    }
+
+    @Override
+    public void propagated(Watcher.Action action, long lagMillis) {
+        Histogram histogram = propagations.get(action);
+        if (histogram != null) {
+            histogram.update(lagMillis);
+        }
+    }
+
+    @Override
+    public void reconnecting() {
+        reconnects.inc();
+    }
+
+    /**
+     * Register the metrics of a type of secret.
+     * @param type the type of the secret.
+     * @return the timer of the conversions of the type.
+     */
+    private Timer register(String type) {
+        MetricRegistry metricRegistry = registry.get();
+        metricRegistry.gauge(MetricRegistry.name(PREFIX, "credentials", type),
+                () -> (Gauge<Integer>) () -> ExtensionList.lookupSingleton(KubernetesCredentialProvider.class).getCredentialCount(type));
+        return metricRegistry.timer(MetricRegistry.name(PREFIX, "conversion", type, "duration"));
+    }
+}
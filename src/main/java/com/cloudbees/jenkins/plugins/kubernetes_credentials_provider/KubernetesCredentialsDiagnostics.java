@@ -0,0 +1,105 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import java.util.List;
+import java.util.Map;
+
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.convertors.CertificateCredentialsConvertor;
+import com.google.common.cache.CacheStats;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.ManagementLink;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Shows the state of the {@link KubernetesCredentialProvider} to administrators: the synchronization with Kubernetes,
+ * the credentials by type, the largest secrets, the conversion failures, the contexts looking up credentials the
+ * most and the caches of the provider. Everything displayed is maintained as the secrets change and credentials are looked up, displaying the page
+ * does not iterate over the credentials.
+ */
+@Extension
+@Restricted(NoExternalUse.class)
+public class KubernetesCredentialsDiagnostics extends ManagementLink {
+
+    /** The number of entries displayed in the lists of the page */
+    static final int LIMIT = 20;
+
+    @Override
+    public String getIconFileName() {
+        return "/plugin/kubernetes-credentials-provider/images/48x48/kubernetes-store.png";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Kubernetes Credentials Diagnostics";
+    }
+
+    @Override
+    public String getDescription() {
+        return "State of the synchronization with Kubernetes, credentials by type, largest secrets, conversion failures, credential lookups and caches.";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "kubernetes-credentials-diagnostics";
+    }
+
+    @NonNull
+    @Override
+    public Category getCategory() {
+        return Category.TROUBLESHOOTING;
+    }
+
+    public SyncStatus getSyncStatus() {
+        return getProvider().getSyncStatus();
+    }
+
+    public int getCredentialCount() {
+        return getProvider().getCredentialCount();
+    }
+
+    public Map<String, Integer> getCredentialCounts() {
+        return getProvider().getCredentialCounts();
+    }
+
+    public List<KubernetesSourcedCredential> getLargestCredentials() {
+        return getProvider().getLargestCredentials(LIMIT);
+    }
+
+    public List<ConversionFailures.Failure> getConversionFailures() {
+        return getProvider().getConversionFailures();
+    }
+
+    public List<LookupHotSpots.HotSpot> getLookupHotSpots() {
+        return getProvider().getLookupHotSpots(LIMIT);
+    }
+
+    public int getSharedPayloadCount() {
+        return getProvider().getSharedPayloadCount();
+    }
+
+    public long getSharedPayloadBytesSaved() {
+        return getProvider().getSharedPayloadBytesSaved();
+    }
+
+    public long getStoreCacheSize() {
+        return getProvider().getStoreCacheSize();
+    }
+
+    public CacheStats getStoreCacheStats() {
+        return getProvider().getStoreCacheStats();
+    }
+
+    public long getKeyStoreCacheSize() {
+        return CertificateCredentialsConvertor.getKeyStoreCacheSize();
+    }
+
+    public CacheStats getKeyStoreCacheStats() {
+        return CertificateCredentialsConvertor.getKeyStoreCacheStats();
+    }
+
+    private static KubernetesCredentialProvider getProvider() {
+        return ExtensionList.lookupSingleton(KubernetesCredentialProvider.class);
+    }
+}
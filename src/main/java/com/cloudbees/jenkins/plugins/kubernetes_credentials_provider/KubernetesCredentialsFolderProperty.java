@@ -0,0 +1,100 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.cloudbees.hudson.plugins.folder.AbstractFolder;
+import com.cloudbees.hudson.plugins.folder.AbstractFolderProperty;
+import com.cloudbees.hudson.plugins.folder.AbstractFolderPropertyDescriptor;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Util;
+import hudson.model.ItemGroup;
+import hudson.util.FormValidation;
+import org.jenkinsci.plugins.variant.OptionalExtension;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+/**
+ * Restricts the credentials sourced from Kubernetes that are visible in a folder, and in its descendants, to the
+ * secrets matching a label selector.
+ * The selector is evaluated in-process against the secrets already retrieved by the
+ * {@link KubernetesCredentialProvider}, it does not cause any additional request to the API server.
+ */
+public class KubernetesCredentialsFolderProperty extends AbstractFolderProperty<AbstractFolder<?>> {
+
+    private static final Logger LOG = Logger.getLogger(KubernetesCredentialsFolderProperty.class.getName());
+
+    @CheckForNull
+    private final String labelSelector;
+
+    /** The compiled {@link #labelSelector}, {@code null} until first used */
+    @CheckForNull
+    private transient volatile CompiledLabelSelector selector;
+
+    @DataBoundConstructor
+    public KubernetesCredentialsFolderProperty(@CheckForNull String labelSelector) {
+        this.labelSelector = Util.fixEmptyAndTrim(labelSelector);
+    }
+
+    /**
+     * @return the label selector expression, {@code null} if the folder is not restricted.
+     */
+    @CheckForNull
+    public String getLabelSelector() {
+        return labelSelector;
+    }
+
+    /**
+     * @return the compiled selector, a selector matching nothing if the expression is invalid.
+     */
+    CompiledLabelSelector getCompiledSelector() {
+        CompiledLabelSelector s = selector;
+        if (s == null) {
+            try {
+                s = LabelSelectorExpressions.compile(labelSelector);
+            } catch (LabelSelectorParseException e) {
+                LOG.log(Level.WARNING, "Invalid label selector for folder {0}, no credentials from Kubernetes will be visible: {1}",
+                        new Object[] {owner == null ? null : owner.getFullName(), e.getMessage()});
+                s = CompiledLabelSelector.nothing();
+            }
+            selector = s;
+        }
+        return s;
+    }
+
+    /**
+     * Get the selector configured on an item group.
+     * @param itemGroup the item group.
+     * @return the selector, {@code null} if the item group is not a folder with this property.
+     */
+    @CheckForNull
+    static CompiledLabelSelector getSelector(ItemGroup<?> itemGroup) {
+        if (itemGroup instanceof AbstractFolder) {
+            KubernetesCredentialsFolderProperty property = ((AbstractFolder<?>) itemGroup).getProperties().get(KubernetesCredentialsFolderProperty.class);
+            if (property != null) {
+                return property.getCompiledSelector();
+            }
+        }
+        return null;
+    }
+
+    @OptionalExtension(requirePlugins = {"cloudbees-folder"})
+    public static class DescriptorImpl extends AbstractFolderPropertyDescriptor {
+
+        @NonNull
+        @Override
+        public String getDisplayName() {
+            return "Kubernetes credentials label selector";
+        }
+
+        public FormValidation doCheckLabelSelector(@QueryParameter String value) {
+            try {
+                LabelSelectorExpressions.compile(value);
+                return FormValidation.ok();
+            } catch (LabelSelectorParseException e) {
+                return FormValidation.error(e.getMessage());
+            }
+        }
+    }
+}
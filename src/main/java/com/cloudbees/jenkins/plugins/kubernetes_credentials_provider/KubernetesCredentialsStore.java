@@ -1,18 +1,23 @@
 package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
 import org.acegisecurity.Authentication;
 import org.jenkins.ui.icon.Icon;
 import org.jenkins.ui.icon.IconSet;
 import org.jenkins.ui.icon.IconType;
+import org.kohsuke.stapler.export.Exported;
 import org.kohsuke.stapler.export.ExportedBean;
 import hudson.model.Item;
 import hudson.model.ItemGroup;
 import hudson.model.ModelObject;
-import hudson.security.ACL;
 import hudson.security.AccessControlled;
 import hudson.security.Permission;
 import jenkins.model.Jenkins;
@@ -20,6 +25,7 @@ import com.cloudbees.plugins.credentials.Credentials;
 import com.cloudbees.plugins.credentials.CredentialsProvider;
 import com.cloudbees.plugins.credentials.CredentialsStore;
 import com.cloudbees.plugins.credentials.CredentialsStoreAction;
+import com.cloudbees.plugins.credentials.common.IdCredentials;
 import com.cloudbees.plugins.credentials.domains.Domain;
 
 public class KubernetesCredentialsStore extends CredentialsStore {
@@ -28,6 +34,25 @@ public class KubernetesCredentialsStore extends CredentialsStore {
     private final KubernetesCredentialsStoreAction action = new KubernetesCredentialsStoreAction(this);
     private final ItemGroup<?> context;
 
+    /** The resolved access controlled context, {@code null} until resolved */
+    @CheckForNull
+    private volatile Optional<AccessControlled> accessControlledContext;
+
+    /**
+     * The credentials visible in this context keyed by ID, {@code null} until computed.
+     * Maintained by the provider as credentials are added, modified and removed.
+     */
+    @CheckForNull
+    private Map<String, Credentials> visible; // guarded by this
+
+    /** The index {@link #visible} was computed from */
+    @CheckForNull
+    private KubernetesCredentialIndex visibleIndex; // guarded by this
+
+    /** A copy of the values of {@link #visible}, {@code null} when they changed since it was taken */
+    @CheckForNull
+    private volatile List<Credentials> snapshot;
+
     public KubernetesCredentialsStore(KubernetesCredentialProvider provider, ItemGroup<?> context) {
         super(KubernetesCredentialProvider.class);
         this.provider = provider;
@@ -65,19 +90,99 @@ public class KubernetesCredentialsStore extends CredentialsStore {
         AccessControlled ac = getAccessControlledContext();
         if(ac == null) {
             if(Jenkins.getInstance().getACL().hasPermission(CredentialsProvider.VIEW)){
-                return provider.getCredentials(Credentials.class, context, ACL.SYSTEM);
+                return getView();
             }
         } else {
             if(ac.hasPermission(CredentialsProvider.VIEW)) {
-                return provider.getCredentials(Credentials.class, context, ACL.SYSTEM);
+                return getView();
             }
         }
 
         return Collections.emptyList();
     }
 
+    /**
+     * Get the credentials visible in this context.
+     * The credentials are listed once, then kept up to date by {@link #updated(String, Credentials)} as the
+     * credentials of the provider change, only the changes visible in this context cause the list to be copied again.
+     * @return the credentials visible in this context.
+     */
+    private List<Credentials> getView() {
+        List<Credentials> s = snapshot;
+        return s != null ? s : computeView();
+    }
+
+    private synchronized List<Credentials> computeView() {
+        KubernetesCredentialIndex index = provider.getCredentialIndex();
+        if (visible == null || visibleIndex != index) {
+            Map<String, Credentials> credentials = new LinkedHashMap<>();
+            // listing the credentials of the store is not a use of the credentials
+            for (Credentials c : provider.listStoreCredentials(context)) {
+                credentials.put(((IdCredentials) c).getId(), c);
+            }
+            visible = credentials;
+            visibleIndex = index;
+        }
+        List<Credentials> s = Collections.unmodifiableList(new ArrayList<>(visible.values()));
+        snapshot = s;
+        return s;
+    }
+
+    /**
+     * Updates the credentials of this store after a credential of the provider was added, modified or removed.
+     * Must be called after the index of the provider is updated.
+     * @param id the ID of the credential.
+     * @param credential the credential, {@code null} if it was removed or is not visible in this context.
+     */
+    synchronized void updated(String id, @CheckForNull Credentials credential) {
+        if (visible == null) {
+            // not computed yet, the change is seen when it is
+            return;
+        }
+        Credentials previous = credential == null ? visible.remove(id) : visible.put(id, credential);
+        if (previous != credential) {
+            snapshot = null;
+        }
+    }
+
+    /**
+     * Get the usage of the credentials of this store visible to the current user.
+     * @return the usage of the credentials, the least used first.
+     */
+    List<CredentialUsage.Entry> getUsage() {
+        List<CredentialUsage.Entry> entries = new ArrayList<>();
+        for (Credentials credentials : getCredentials(Domain.global())) {
+            if (credentials instanceof IdCredentials) {
+                entries.add(provider.getCredentialUsage(((IdCredentials) credentials).getId()));
+            }
+        }
+        entries.sort(CredentialUsage.LEAST_USED_FIRST);
+        return entries;
+    }
+
+    /**
+     * Discards the state derived from the item hierarchy or from the index of the provider, called when items are
+     * moved, renamed, deleted or reconfigured and when the secrets are listed again.
+     */
+    synchronized void invalidate() {
+        accessControlledContext = null;
+        visible = null;
+        visibleIndex = null;
+        snapshot = null;
+    }
+
     @Nullable
     private AccessControlled getAccessControlledContext() {
+        Optional<AccessControlled> ac = accessControlledContext;
+        if (ac == null) {
+            ac = Optional.ofNullable(resolveAccessControlledContext());
+            accessControlledContext = ac;
+        }
+        return ac.orElse(null);
+    }
+
+    @Nullable
+    private AccessControlled resolveAccessControlledContext() {
         AccessControlled ac = null;
         ItemGroup<?> ig = context;
         while (ac == null) {
@@ -166,5 +271,14 @@ public class KubernetesCredentialsStore extends CredentialsStore {
         public String getDisplayName() {
             return "Kubernetes";
         }
+
+        /**
+         * @return how many times each credential of the store was used since Jenkins started, and when it was last,
+         *         the least used first.
+         */
+        @Exported
+        public List<CredentialUsage.Entry> getUsage() {
+            return store.getUsage();
+        }
     }
 }
@@ -1,9 +1,13 @@
 package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
 
+import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 
 import javax.annotation.Nullable;
 
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+
 import com.cloudbees.plugins.credentials.CredentialsScope;
 import com.cloudbees.plugins.credentials.common.IdCredentials;
 
@@ -15,10 +19,59 @@ public class KubernetesSourcedCredential {
 
     private final IdCredentials idCredentials;
     private final Set<String> itemGroups;
+    private final Set<String> principals;
+    /** The user IDs of {@link #principals}, without their prefix */
+    private final Set<String> users;
+    /** The group names of {@link #principals}, without their prefix */
+    private final Set<String> groups;
+    private final Set<String> items;
+    @CheckForNull
+    private final SharedPayloads.Payload payload;
+    private final CredentialValidation validation;
+    /** The labels of the secret, evaluated by the label selectors of folders */
+    private final Map<String, String> labels;
+    /** The {@code resourceVersion} of the secret, used to detect changes when the secrets are listed again */
+    @CheckForNull
+    private final String resourceVersion;
 
     public KubernetesSourcedCredential(IdCredentials idCredentials, Set<String> itemGroups) {
+        this(idCredentials, itemGroups, Collections.emptySet());
+    }
+
+    public KubernetesSourcedCredential(IdCredentials idCredentials, Set<String> itemGroups, Set<String> principals) {
+        this(idCredentials, itemGroups, principals, Collections.emptySet());
+    }
+
+    public KubernetesSourcedCredential(IdCredentials idCredentials, Set<String> itemGroups, Set<String> principals,
+                                       Set<String> items) {
+        this(idCredentials, itemGroups, principals, items, null);
+    }
+
+    KubernetesSourcedCredential(IdCredentials idCredentials, Set<String> itemGroups, Set<String> principals,
+                                Set<String> items, @CheckForNull SharedPayloads.Payload payload) {
+        this(idCredentials, itemGroups, principals, items, payload, new CredentialValidation());
+    }
+
+    KubernetesSourcedCredential(IdCredentials idCredentials, Set<String> itemGroups, Set<String> principals,
+                                Set<String> items, @CheckForNull SharedPayloads.Payload payload,
+                                CredentialValidation validation) {
+        this(idCredentials, itemGroups, principals, items, payload, validation, Collections.emptyMap(), null);
+    }
+
+    KubernetesSourcedCredential(IdCredentials idCredentials, Set<String> itemGroups, Set<String> principals,
+                                Set<String> items, @CheckForNull SharedPayloads.Payload payload,
+                                CredentialValidation validation, Map<String, String> labels,
+                                @CheckForNull String resourceVersion) {
         this.idCredentials = idCredentials;
         this.itemGroups = itemGroups;
+        this.principals = principals;
+        this.users = SecretUtils.getPrincipalNames(principals, SecretUtils.USER_PRINCIPAL_PREFIX);
+        this.groups = SecretUtils.getPrincipalNames(principals, SecretUtils.GROUP_PRINCIPAL_PREFIX);
+        this.items = items;
+        this.payload = payload;
+        this.validation = validation;
+        this.labels = labels;
+        this.resourceVersion = resourceVersion;
     }
 
     public IdCredentials getIdCredentials() {
@@ -29,6 +82,80 @@ public class KubernetesSourcedCredential {
         return itemGroups;
     }
 
+    /**
+     * @return the users and groups this credential is restricted to, prefixed with {@code user:} or {@code group:},
+     *         empty if it is only available to the system.
+     */
+    public Set<String> getPrincipals() {
+        return principals;
+    }
+
+    /**
+     * @return the IDs of the users this credential is restricted to.
+     */
+    Set<String> getUsers() {
+        return users;
+    }
+
+    /**
+     * @return the names of the groups this credential is restricted to.
+     */
+    Set<String> getGroups() {
+        return groups;
+    }
+
+    /**
+     * @return the full names of the items this credential is restricted to, empty if it is not restricted to items.
+     */
+    public Set<String> getItems() {
+        return items;
+    }
+
+    /**
+     * @return the payload shared with the credentials created from identical secret data, if any.
+     */
+    @CheckForNull
+    SharedPayloads.Payload getPayload() {
+        return payload;
+    }
+
+    /**
+     * @return the estimated number of bytes held by the secret data of this credential, {@code 0} if it is not known.
+     */
+    public long getPayloadSize() {
+        return payload == null ? 0 : payload.getSize();
+    }
+
+    /**
+     * @return the type of the secret this credential was converted from, if known.
+     */
+    @CheckForNull
+    public String getType() {
+        return labels.get(SecretUtils.JENKINS_IO_CREDENTIALS_TYPE_LABEL);
+    }
+
+    /**
+     * @return the outcome of the validation of the key material of this credential.
+     */
+    public CredentialValidation getValidation() {
+        return validation;
+    }
+
+    /**
+     * @return the labels of the secret this credential was converted from.
+     */
+    Map<String, String> getLabels() {
+        return labels;
+    }
+
+    /**
+     * @return the {@code resourceVersion} of the secret this credential was converted from, if known.
+     */
+    @CheckForNull
+    String getResourceVersion() {
+        return resourceVersion;
+    }
+
     public String getId() {
         return idCredentials.getId();
     }
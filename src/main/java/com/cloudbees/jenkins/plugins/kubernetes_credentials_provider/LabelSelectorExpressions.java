@@ -1,17 +1,17 @@
 package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
 
-import java.util.Arrays;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
 
-import edu.umd.cs.findbugs.annotations.NonNull;
 import io.fabric8.kubernetes.api.model.LabelSelector;
-import io.fabric8.kubernetes.api.model.LabelSelectorBuilder;
 
 /**
  * Parser for <a href="https://kubernetes.io/docs/concepts/overview/working-with-objects/labels/#label-selectors">Kubernetes Label Selectors</a>.
+ * Supports the equality based ({@code =}, {@code ==}, {@code !=}) and set based ({@code in}, {@code notin},
+ * {@code key}, {@code !key}) requirements, values may be quoted.
  */
 class LabelSelectorExpressions {
 
@@ -26,62 +26,256 @@ class LabelSelectorExpressions {
      * @throws LabelSelectorParseException when invalid selector expression
      */
     static LabelSelector parse(@Nullable String selector) throws LabelSelectorParseException {
-        LabelSelectorBuilder lsb = new LabelSelectorBuilder();
-        if (selector != null && !selector.trim().isEmpty()) {
-            Matcher matcher = Pattern.compile("[^,]+?\\([^()]+\\)|[^,]+").matcher(selector);
-            while (matcher.find()) {
-                String expression = matcher.group();
-                expression = expression.replaceFirst("!=|=", " $0 ");
-                String[] tokens = expression.trim().split("\\s+", 3);
-                switch (tokens.length) {
-                    case 1:
-                        if (tokens[0].startsWith("!")) {
-                            lsb.addNewMatchExpression()
-                                    .withKey(tokens[0].substring(1))
-                                    .withOperator("DoesNotExist")
-                                    .endMatchExpression();
-                        } else {
-                            lsb.addNewMatchExpression()
-                                    .withKey(tokens[0])
-                                    .withOperator("Exists")
-                                    .endMatchExpression();
-                        }
-                        break;
-                    case 3:
-                        String operator = tokens[1];
-                        if ("=".equals(operator)) {
-                            lsb.addToMatchLabels(tokens[0], tokens[2]);
-                        } else if ("!=".equals(operator)) {
-                            lsb.addNewMatchExpression()
-                                    .withKey(tokens[0])
-                                    .withOperator("NotIn")
-                                    .withValues(tokens[2])
-                                    .endMatchExpression();
-                        } else if ("notin".equalsIgnoreCase(operator)) {
-                            lsb.addNewMatchExpression()
-                                    .withKey(tokens[0])
-                                    .withOperator("NotIn")
-                                    .withValues(values(tokens[2]))
-                                    .endMatchExpression();
-                        } else if ("in".equalsIgnoreCase(operator)) {
-                            lsb.addNewMatchExpression()
-                                    .withKey(tokens[0])
-                                    .withOperator("In")
-                                    .withValues(values(tokens[2]))
-                                    .endMatchExpression();
-                        } else {
-                            throw new LabelSelectorParseException("Unrecognized selector operator '" + operator + "' in expression '" + expression + "'. Expected one of: =, !=, in, notin");
-                        }
-                        break;
-                    default:
-                        throw new LabelSelectorParseException("Invalid selector expression '" + expression + "'. Expected 1 or 3 tokens, got " + tokens.length + ": " + Arrays.toString(tokens));
+        return compile(selector).getLabelSelector();
+    }
+
+    /**
+     * Compile a Kubernetes label selector expression to both a server side {@link LabelSelector} and an in-process
+     * matcher.
+     * @param selector label selector expression or null
+     * @return the compiled label selector, matching every set of labels if {@code selector} is empty
+     * @throws LabelSelectorParseException when invalid selector expression
+     */
+    static CompiledLabelSelector compile(@Nullable String selector) throws LabelSelectorParseException {
+        CompiledLabelSelector.Builder builder = new CompiledLabelSelector.Builder();
+        if (selector == null) {
+            return builder.build();
+        }
+        Tokenizer tokenizer = new Tokenizer(selector);
+        List<Token> tokens = new ArrayList<>(3);
+        int start = 0;
+        while (true) {
+            Token token = tokenizer.next();
+            if (token == null || token.kind == Kind.COMMA) {
+                int end = token == null ? selector.length() : token.start;
+                // empty requirements, e.g. a trailing comma, are ignored
+                if (!tokens.isEmpty()) {
+                    requirement(builder, selector.substring(start, end).trim(), tokens);
+                    tokens.clear();
                 }
+                if (token == null) {
+                    return builder.build();
+                }
+                start = end + 1;
+            } else {
+                tokens.add(token);
             }
         }
-        return lsb.build();
     }
 
-    private static String[] values(String list) {
-        return list.replaceAll("\\(|\\)", "").trim().split("\\s*,\\s*");
+    private static void requirement(CompiledLabelSelector.Builder builder, String expression, List<Token> tokens) throws LabelSelectorParseException {
+        Token first = tokens.get(0);
+        switch (tokens.size()) {
+            case 1:
+                if (first.kind == Kind.WORD) {
+                    builder.exists(first.text);
+                    return;
+                }
+                break;
+            case 2:
+                Token second = tokens.get(1);
+                if (first.kind == Kind.NOT && second.kind == Kind.WORD) {
+                    builder.doesNotExist(second.text);
+                    return;
+                }
+                if (first.kind == Kind.WORD && (second.kind == Kind.EQUALS || second.kind == Kind.NOT_EQUALS)) {
+                    // the empty value
+                    equality(builder, first.text, second, "");
+                    return;
+                }
+                break;
+            case 3:
+                Token operator = tokens.get(1);
+                Token value = tokens.get(2);
+                if (first.kind != Kind.WORD) {
+                    break;
+                }
+                if (operator.kind == Kind.EQUALS || operator.kind == Kind.NOT_EQUALS) {
+                    if (value.kind == Kind.WORD || value.kind == Kind.QUOTED) {
+                        equality(builder, first.text, operator, value.text);
+                        return;
+                    }
+                    break;
+                }
+                if (operator.kind == Kind.WORD) {
+                    boolean in = "in".equalsIgnoreCase(operator.text);
+                    if (!in && !"notin".equalsIgnoreCase(operator.text)) {
+                        throw new LabelSelectorParseException("Unrecognized selector operator '" + operator.text + "' in expression '" + expression + "'. Expected one of: =, ==, !=, in, notin");
+                    }
+                    if (value.kind != Kind.SET) {
+                        throw new LabelSelectorParseException("Invalid selector expression '" + expression + "'. The values of '" + operator.text + "' must be in parentheses");
+                    }
+                    if (in) {
+                        builder.in(first.text, value.values);
+                    } else {
+                        builder.notIn(first.text, value.values);
+                    }
+                    return;
+                }
+                break;
+            default:
+                break;
+        }
+        throw new LabelSelectorParseException("Invalid selector expression '" + expression + "'. Expected key, !key, key=value, key!=value, key in (values) or key notin (values), got "
+                + tokens.stream().map(t -> t.text).collect(Collectors.joining(", ", "[", "]")));
+    }
+
+    private static void equality(CompiledLabelSelector.Builder builder, String key, Token operator, String value) {
+        if (operator.kind == Kind.EQUALS) {
+            builder.equal(key, value);
+        } else {
+            builder.notIn(key, List.of(value));
+        }
+    }
+
+    private enum Kind {
+        /** A key, a value or an operator keyword ({@code in}, {@code notin}) */
+        WORD,
+        /** A quoted value */
+        QUOTED,
+        /** A parenthesized list of values */
+        SET,
+        /** {@code =} or {@code ==} */
+        EQUALS,
+        /** {@code !=} */
+        NOT_EQUALS,
+        /** {@code !} */
+        NOT,
+        /** {@code ,} */
+        COMMA
+    }
+
+    private static final class Token {
+        private final Kind kind;
+        /** The text of the token, without quotes for quoted values */
+        private final String text;
+        /** The values of a {@link Kind#SET} */
+        private final List<String> values;
+        /** Offset of the token in the selector */
+        private final int start;
+
+        private Token(Kind kind, String text, List<String> values, int start) {
+            this.kind = kind;
+            this.text = text;
+            this.values = values;
+            this.start = start;
+        }
+    }
+
+    /**
+     * Splits a selector expression into tokens, in a single pass without regular expressions.
+     */
+    private static final class Tokenizer {
+        private final String selector;
+        private int position;
+
+        private Tokenizer(String selector) {
+            this.selector = selector;
+        }
+
+        /**
+         * @return the next token, {@code null} at the end of the selector.
+         */
+        @Nullable
+        private Token next() throws LabelSelectorParseException {
+            int length = selector.length();
+            while (position < length && Character.isWhitespace(selector.charAt(position))) {
+                position++;
+            }
+            if (position == length) {
+                return null;
+            }
+            int start = position;
+            char c = selector.charAt(position);
+            switch (c) {
+                case ',':
+                    position++;
+                    return new Token(Kind.COMMA, ",", List.of(), start);
+                case '=':
+                    position += position + 1 < length && selector.charAt(position + 1) == '=' ? 2 : 1;
+                    return new Token(Kind.EQUALS, selector.substring(start, position), List.of(), start);
+                case '!':
+                    if (position + 1 < length && selector.charAt(position + 1) == '=') {
+                        position += 2;
+                        return new Token(Kind.NOT_EQUALS, "!=", List.of(), start);
+                    }
+                    position++;
+                    return new Token(Kind.NOT, "!", List.of(), start);
+                case '(':
+                    return set(start);
+                case ')':
+                    throw new LabelSelectorParseException("Invalid selector expression '" + selector + "'. Unbalanced ')' at position " + start);
+                case '"':
+                case '\'':
+                    return new Token(Kind.QUOTED, quoted(), List.of(), start);
+                default:
+                    while (position < length && !isDelimiter(selector.charAt(position))) {
+                        position++;
+                    }
+                    return new Token(Kind.WORD, selector.substring(start, position), List.of(), start);
+            }
+        }
+
+        private Token set(int start) throws LabelSelectorParseException {
+            int length = selector.length();
+            List<String> values = new ArrayList<>();
+            // skip the opening parenthesis
+            position++;
+            int valueStart = position;
+            while (true) {
+                if (position == length) {
+                    throw new LabelSelectorParseException("Invalid selector expression '" + selector + "'. Unbalanced '(' at position " + start);
+                }
+                char c = selector.charAt(position);
+                if (c == '"' || c == '\'') {
+                    quoted();
+                } else if (c == ',' || c == ')') {
+                    values.add(unquote(selector.substring(valueStart, position).trim()));
+                    position++;
+                    if (c == ')') {
+                        break;
+                    }
+                    valueStart = position;
+                } else if (c == '(') {
+                    throw new LabelSelectorParseException("Invalid selector expression '" + selector + "'. Unexpected '(' at position " + position);
+                } else {
+                    position++;
+                }
+            }
+            // a quoted empty value is allowed
+            if (selector.substring(start + 1, position - 1).trim().isEmpty()) {
+                throw new LabelSelectorParseException("Invalid selector expression '" + selector + "'. Empty set of values at position " + start);
+            }
+            return new Token(Kind.SET, selector.substring(start, position), values, start);
+        }
+
+        /**
+         * Read a quoted value starting at the current position.
+         * @return the value, without the quotes.
+         */
+        private String quoted() throws LabelSelectorParseException {
+            char quote = selector.charAt(position);
+            int end = selector.indexOf(quote, position + 1);
+            if (end < 0) {
+                throw new LabelSelectorParseException("Invalid selector expression '" + selector + "'. Unterminated quote at position " + position);
+            }
+            String value = selector.substring(position + 1, end);
+            position = end + 1;
+            return value;
+        }
+
+        private static String unquote(String value) {
+            if (value.length() >= 2) {
+                char first = value.charAt(0);
+                if ((first == '"' || first == '\'') && value.charAt(value.length() - 1) == first) {
+                    return value.substring(1, value.length() - 1);
+                }
+            }
+            return value;
+        }
+
+        private static boolean isDelimiter(char c) {
+            return Character.isWhitespace(c) || c == ',' || c == '=' || c == '!' || c == '(' || c == ')' || c == '"' || c == '\'';
+        }
     }
 }
@@ -0,0 +1,95 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the credential lookups and the credentials they scan by context, to find the items and item groups that
+ * look credentials up the most.
+ * The number of contexts is bounded, the lookups of the contexts seen once the bound is reached are counted together.
+ */
+class LookupHotSpots {
+
+    /** Maximum number of contexts counted separately */
+    static final int MAX_CONTEXTS = Integer.getInteger(KubernetesCredentialProvider.class.getName() + ".lookupHotSpotsMaxContexts", 1000);
+
+    /** The context of the lookups counted together once {@link #MAX_CONTEXTS} is reached */
+    static final String OTHER = "(other)";
+
+    private final ConcurrentHashMap<String, Counters> contexts = new ConcurrentHashMap<>();
+
+    /**
+     * Count a lookup.
+     * @param context the full name of the item or item group of the lookup, empty for Jenkins.
+     * @param scanned the number of credentials checked.
+     */
+    void record(String context, int scanned) {
+        Counters counters = contexts.get(context);
+        if (counters == null) {
+            counters = contexts.computeIfAbsent(contexts.size() < MAX_CONTEXTS ? context : OTHER, k -> new Counters());
+        }
+        counters.lookups.increment();
+        counters.scanned.add(scanned);
+    }
+
+    /**
+     * @param limit the maximum number of contexts to return.
+     * @return the contexts that scanned the most credentials, most first.
+     */
+    List<HotSpot> getTop(int limit) {
+        List<HotSpot> hotSpots = new ArrayList<>(contexts.size());
+        for (Map.Entry<String, Counters> entry : contexts.entrySet()) {
+            Counters counters = entry.getValue();
+            hotSpots.add(new HotSpot(entry.getKey(), counters.lookups.sum(), counters.scanned.sum()));
+        }
+        hotSpots.sort(Comparator.comparingLong(HotSpot::getScanned).reversed().thenComparing(HotSpot::getContext));
+        return hotSpots.size() > limit ? new ArrayList<>(hotSpots.subList(0, limit)) : hotSpots;
+    }
+
+    private static final class Counters {
+        private final LongAdder lookups = new LongAdder();
+        private final LongAdder scanned = new LongAdder();
+    }
+
+    /**
+     * The lookups performed in a context.
+     */
+    public static final class HotSpot {
+
+        private final String context;
+        private final long lookups;
+        private final long scanned;
+
+        HotSpot(String context, long lookups, long scanned) {
+            this.context = context;
+            this.lookups = lookups;
+            this.scanned = scanned;
+        }
+
+        /**
+         * @return the full name of the item or item group, empty for Jenkins.
+         */
+        public String getContext() {
+            return context;
+        }
+
+        public long getLookups() {
+            return lookups;
+        }
+
+        /**
+         * @return the number of credentials checked by the lookups.
+         */
+        public long getScanned() {
+            return scanned;
+        }
+
+        public long getAverageScanned() {
+            return lookups == 0 ? 0 : scanned / lookups;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import io.fabric8.kubernetes.api.model.ManagedFieldsEntry;
+import io.fabric8.kubernetes.api.model.ObjectMeta;
+import io.fabric8.kubernetes.api.model.Secret;
+import io.fabric8.kubernetes.client.Watcher;
+
+/**
+ * The time it takes for a change of a secret to be visible in the credentials returned by the provider, from the time
+ * the API server recorded the change (the latest {@code managedFields} time, the creation time for added secrets or
+ * the deletion time for deleted secrets) to the time the provider applied the watch event.
+ * The lag of the last {@link #WINDOW} events of each action is retained to compute percentiles.
+ * Secrets deleted without a finalizer are removed at once and never get a deletion time, so most deletions can not be
+ * measured: they are only counted, and are not covered by the objective.
+ * Kubernetes timestamps have a precision of one second and depend on the clocks of the API server and the
+ * controller being synchronized, so the lag is only meaningful above a few seconds.
+ */
+class PropagationLag {
+
+    /** Number of events per action the percentiles are computed over */
+    static final int WINDOW = Integer.getInteger(KubernetesCredentialProvider.class.getName() + ".propagationLagWindow", 1000);
+
+    private final Map<Watcher.Action, Samples> samples = new EnumMap<>(Watcher.Action.class);
+
+    /** The number of events whose change time is not known, by action */
+    private final Map<Watcher.Action, LongAdder> unmeasured = new EnumMap<>(Watcher.Action.class);
+
+    PropagationLag() {
+        for (Watcher.Action action : new Watcher.Action[] {Watcher.Action.ADDED, Watcher.Action.MODIFIED, Watcher.Action.DELETED}) {
+            samples.put(action, new Samples(WINDOW));
+            unmeasured.put(action, new LongAdder());
+        }
+    }
+
+    /**
+     * Get the time the API server recorded the change of a secret reported by a watch event.
+     * @param action the action of the event.
+     * @param secret the secret of the event.
+     * @return the time of the change in milliseconds since the epoch, {@code -1} if it is not known.
+     */
+    static long changeTime(Watcher.Action action, Secret secret) {
+        ObjectMeta metadata = secret.getMetadata();
+        if (metadata == null) {
+            return -1;
+        }
+        switch (action) {
+            case ADDED:
+                return Math.max(parse(metadata.getCreationTimestamp()), lastManaged(metadata));
+            case MODIFIED:
+                return lastManaged(metadata);
+            case DELETED:
+                // only set for graceful deletions, the time of an immediate deletion is not known
+                return parse(metadata.getDeletionTimestamp());
+            default:
+                return -1;
+        }
+    }
+
+    private static long lastManaged(ObjectMeta metadata) {
+        long last = -1;
+        List<ManagedFieldsEntry> managedFields = metadata.getManagedFields();
+        if (managedFields != null) {
+            for (ManagedFieldsEntry entry : managedFields) {
+                last = Math.max(last, parse(entry.getTime()));
+            }
+        }
+        return last;
+    }
+
+    private static long parse(@CheckForNull String timestamp) {
+        if (timestamp == null) {
+            return -1;
+        }
+        try {
+            return Instant.parse(timestamp).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Record the lag of a watch event.
+     * @param action the action of the event.
+     * @param lagMillis the lag in milliseconds.
+     */
+    void record(Watcher.Action action, long lagMillis) {
+        Samples s = samples.get(action);
+        if (s != null) {
+            s.add(Math.max(0, lagMillis));
+        }
+    }
+
+    /**
+     * Count a watch event whose lag can not be measured, as the time of the change is not known.
+     * @param action the action of the event.
+     */
+    void unmeasured(Watcher.Action action) {
+        LongAdder count = unmeasured.get(action);
+        if (count != null) {
+            count.increment();
+        }
+    }
+
+    /**
+     * @param action the action of the events.
+     * @return the number of events of the action whose lag could not be measured since Jenkins started.
+     */
+    long getUnmeasured(Watcher.Action action) {
+        LongAdder count = unmeasured.get(action);
+        return count == null ? 0 : count.sum();
+    }
+
+    /**
+     * @param action the action of the events.
+     * @param percentile the percentile, between 0 and 100.
+     * @return the lag at the given percentile of the recent events, {@code -1} if there were none.
+     */
+    long getPercentile(Watcher.Action action, double percentile) {
+        Samples s = samples.get(action);
+        return s == null ? -1 : s.summarize().getPercentile(percentile);
+    }
+
+    /**
+     * @return the lag of the recent events of each action.
+     */
+    List<Summary> getSummaries() {
+        List<Summary> summaries = new ArrayList<>();
+        for (Map.Entry<Watcher.Action, Samples> entry : samples.entrySet()) {
+            Summary summary = entry.getValue().summarize();
+            if (summary.getCount() > 0) {
+                summaries.add(summary.withAction(entry.getKey()));
+            }
+        }
+        return summaries;
+    }
+
+    /**
+     * @param sloMillis the objective for the 99th percentile of the lag.
+     * @return the first action whose recent events do not meet the objective, {@code null} if they all do.
+     */
+    @CheckForNull
+    Watcher.Action getBreach(long sloMillis) {
+        for (Map.Entry<Watcher.Action, Samples> entry : samples.entrySet()) {
+            if (entry.getValue().summarize().getPercentile(99) > sloMillis) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The last lags recorded for an action, in a ring buffer.
+     */
+    private static final class Samples {
+        private final long[] values;
+        private int next;
+        private int count;
+        /** Sorted copy of the values, {@code null} when values were added since it was computed */
+        @CheckForNull
+        private Summary summary;
+
+        private Samples(int size) {
+            this.values = new long[Math.max(1, size)];
+        }
+
+        private synchronized void add(long value) {
+            values[next] = value;
+            next = (next + 1) % values.length;
+            count = Math.min(count + 1, values.length);
+            summary = null;
+        }
+
+        private synchronized Summary summarize() {
+            Summary s = summary;
+            if (s == null) {
+                long[] sorted = Arrays.copyOf(values, count);
+                Arrays.sort(sorted);
+                s = new Summary(null, sorted);
+                summary = s;
+            }
+            return s;
+        }
+    }
+
+    /**
+     * The lag of the recent events of an action.
+     */
+    public static final class Summary {
+
+        @CheckForNull
+        private final Watcher.Action action;
+        private final long[] sorted;
+
+        private Summary(@CheckForNull Watcher.Action action, long[] sorted) {
+            this.action = action;
+            this.sorted = sorted;
+        }
+
+        private Summary withAction(Watcher.Action action) {
+            return new Summary(action, sorted);
+        }
+
+        /**
+         * @return the action of the events.
+         */
+        public String getAction() {
+            return String.valueOf(action);
+        }
+
+        /**
+         * @return the number of recent events.
+         */
+        public int getCount() {
+            return sorted.length;
+        }
+
+        /**
+         * @param percentile the percentile, between 0 and 100.
+         * @return the lag in milliseconds at the percentile, {@code -1} if there were no events.
+         */
+        public long getPercentile(double percentile) {
+            if (sorted.length == 0) {
+                return -1;
+            }
+            // nearest rank
+            int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+            return sorted[Math.min(sorted.length - 1, Math.max(0, rank - 1))];
+        }
+
+        public long getP50() {
+            return getPercentile(50);
+        }
+
+        public long getP90() {
+            return getPercentile(90);
+        }
+
+        public long getP99() {
+            return getPercentile(99);
+        }
+
+        public long getMax() {
+            return sorted.length == 0 ? -1 : sorted[sorted.length - 1];
+        }
+    }
+}
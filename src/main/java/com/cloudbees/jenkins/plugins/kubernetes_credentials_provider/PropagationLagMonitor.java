@@ -0,0 +1,50 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import java.util.List;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.AdministrativeMonitor;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Warns administrators when the changes of the secrets take longer than the configured objective to be visible in
+ * the credentials.
+ * The deletions of secrets without a finalizer have no deletion time and are not covered by the objective, which the
+ * warning states.
+ * @see KubernetesCredentialProviderConfiguration#getPropagationSloSeconds()
+ */
+@Extension
+@Restricted(NoExternalUse.class)
+public class PropagationLagMonitor extends AdministrativeMonitor {
+
+    @Override
+    public String getDisplayName() {
+        return "Kubernetes secret changes slow to propagate";
+    }
+
+    @Override
+    public boolean isActivated() {
+        return getProvider().getPropagationSloBreach() != null;
+    }
+
+    public int getSloSeconds() {
+        return KubernetesCredentialProviderConfiguration.getEffectivePropagationSloSeconds();
+    }
+
+    public List<PropagationLag.Summary> getLags() {
+        return getProvider().getPropagationLag();
+    }
+
+    /**
+     * @return the number of deletions of secrets that could not be measured since Jenkins started.
+     */
+    public long getUnmeasuredDeletions() {
+        return getProvider().getUnmeasuredDeletions();
+    }
+
+    private static KubernetesCredentialProvider getProvider() {
+        return ExtensionList.lookupSingleton(KubernetesCredentialProvider.class);
+    }
+}
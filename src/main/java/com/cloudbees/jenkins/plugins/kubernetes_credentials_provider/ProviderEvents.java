@@ -0,0 +1,139 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The Java Flight Recorder events of the {@link KubernetesCredentialProvider}.
+ * The events are disabled by default and have to be enabled in the recording settings, for example with
+ * {@code jcmd <pid> JFR.start settings=<file>.jfc}. Callers create the event, call {@link Event#begin()} and only fill
+ * in its fields once {@link Event#shouldCommit()} returns {@code true}, so a disabled event costs next to nothing.
+ * The {@link Lookup} event is on the hot path of every credential lookup, it is not even created when disabled.
+ */
+final class ProviderEvents {
+
+    static final String PREFIX = "com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.";
+    static final String CATEGORY = "Kubernetes Credentials Provider";
+
+    /** The type of the {@link Lookup} event, to check if it is enabled without creating an event */
+    private static final EventType LOOKUP = EventType.getEventType(Lookup.class);
+
+    private ProviderEvents() {
+    }
+
+    /**
+     * Converting a batch of secrets of the same type to credentials.
+     */
+    @Name(PREFIX + "Conversion")
+    @Label("Secret Conversion")
+    @Description("Secrets of the same type converted to credentials in a batch")
+    @Category({"Jenkins", CATEGORY})
+    @Enabled(false)
+    @StackTrace(false)
+    static final class Conversion extends Event {
+        @Label("Type")
+        String type;
+        @Label("Secrets")
+        int secrets;
+        @Label("Failed")
+        int failed;
+        @Label("Outcome")
+        @Description("success, partial or failure")
+        String outcome;
+    }
+
+    /**
+     * Looking up credentials or credential IDs.
+     */
+    @Name(PREFIX + "Lookup")
+    @Label("Credentials Lookup")
+    @Description("Credentials or credential IDs looked up from the secrets")
+    @Category({"Jenkins", CATEGORY})
+    @Enabled(false)
+    @StackTrace(false)
+    static final class Lookup extends Event {
+        @Label("Type")
+        String type;
+        @Label("Context")
+        @Description("Full name of the item or item group of the lookup, empty for Jenkins")
+        String context;
+        @Label("Candidates Scanned")
+        int scanned;
+        @Label("Results")
+        int results;
+    }
+
+    /**
+     * A change of the watch of the secrets.
+     */
+    @Name(PREFIX + "Watch")
+    @Label("Secrets Watch")
+    @Description("The watch of the secrets was opened, closed or is reconnecting")
+    @Category({"Jenkins", CATEGORY})
+    @Enabled(false)
+    @StackTrace(false)
+    static final class Watch extends Event {
+        @Label("Action")
+        @Description("open, close or reconnect")
+        String action;
+        @Label("Resource Version")
+        String resourceVersion;
+        @Label("Cause")
+        String cause;
+    }
+
+    /**
+     * Listing all the selected secrets and converting them.
+     */
+    @Name(PREFIX + "Relist")
+    @Label("Secrets Relist")
+    @Description("All the selected secrets listed from Kubernetes and converted")
+    @Category({"Jenkins", CATEGORY})
+    @Enabled(false)
+    @StackTrace(false)
+    static final class Relist extends Event {
+        @Label("Label Selector")
+        String labelSelector;
+        @Label("Secrets")
+        int secrets;
+        @Label("Converted")
+        int converted;
+    }
+
+    /**
+     * Emit a {@link Watch} event.
+     * @param action {@code open}, {@code close} or {@code reconnect}.
+     * @param resourceVersion the resource version the watch starts from, if known.
+     * @param cause the reason the watch was closed, if any.
+     */
+    static void watch(String action, @CheckForNull String resourceVersion, @CheckForNull Throwable cause) {
+        Watch event = new Watch();
+        if (event.shouldCommit()) {
+            event.action = action;
+            event.resourceVersion = resourceVersion;
+            event.cause = cause == null ? null : String.valueOf(cause.getMessage());
+            event.commit();
+        }
+    }
+
+    /**
+     * Begin a {@link Lookup} event.
+     * @return the event, {@code null} if lookup events are not recorded.
+     */
+    @CheckForNull
+    static Lookup beginLookup() {
+        if (!LOOKUP.isEnabled()) {
+            return null;
+        }
+        Lookup event = new Lookup();
+        event.begin();
+        return event;
+    }
+}
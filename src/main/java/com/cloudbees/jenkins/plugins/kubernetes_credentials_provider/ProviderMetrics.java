@@ -0,0 +1,74 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import hudson.ExtensionPoint;
+import io.fabric8.kubernetes.client.Watcher;
+
+/**
+ * Records the activity of the {@link KubernetesCredentialProvider}.
+ * The default methods do nothing so that the provider does not depend on a metrics library, the recording
+ * implementation is only available with the Metrics plugin.
+ * @see KubernetesCredentialProviderMetrics
+ */
+interface ProviderMetrics extends ExtensionPoint {
+
+    /** Used when the Metrics plugin is not installed */
+    ProviderMetrics NOOP = new ProviderMetrics() {};
+
+    /**
+     * The type the secrets of types with no converter are recorded under, the types are label values that anybody
+     * writing secrets can choose and must not each register their own metrics.
+     */
+    String UNKNOWN_TYPE = "unknown";
+
+    /**
+     * @return {@code true} if the metrics are recorded, callers should not even measure durations otherwise.
+     */
+    default boolean isEnabled() {
+        return false;
+    }
+
+    /**
+     * A watch event was received.
+     * @param action the action of the event.
+     */
+    default void eventReceived(Watcher.Action action) {
+    }
+
+    /**
+     * A secret was converted to a credential.
+     * @param type the type of the secret.
+     * @param durationNanos the time spent converting the secret.
+     */
+    default void converted(@CheckForNull String type, long durationNanos) {
+    }
+
+    /**
+     * A secret could not be converted to a credential.
+     * @param type the type of the secret, {@link #UNKNOWN_TYPE} if no converter handles it.
+     */
+    default void conversionFailed(@CheckForNull String type) {
+    }
+
+    /**
+     * Credentials were looked up.
+     * @param durationNanos the time spent looking up the credentials.
+     * @param size the number of credentials found.
+     */
+    default void credentialsLookedUp(long durationNanos, int size) {
+    }
+
+    /**
+     * The change of a secret reported by a watch event is visible in the credentials.
+     * @param action the action of the event.
+     * @param lagMillis the time since the API server recorded the change.
+     */
+    default void propagated(Watcher.Action action, long lagMillis) {
+    }
+
+    /**
+     * The client is reconnecting to the API server after a failure.
+     */
+    default void reconnecting() {
+    }
+}
@@ -0,0 +1,45 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import java.util.Collections;
+import java.util.Set;
+
+import com.cloudbees.plugins.credentials.common.IdCredentials;
+import io.fabric8.kubernetes.api.model.Secret;
+
+/**
+ * {@link SecretToCredentialConverter} for a type of secret described by a {@link CredentialSchema}.
+ * Supporting a new type of credential only requires declaring its schema and registering the converter as an
+ * extension.
+ * @param <C> the type of credential created.
+ */
+public abstract class SchemaSecretToCredentialConverter<C extends IdCredentials> extends SecretToCredentialConverter {
+
+    private final CredentialSchema<C> schema;
+
+    /**
+     * @param schema the schema of the secrets converted.
+     */
+    protected SchemaSecretToCredentialConverter(CredentialSchema<C> schema) {
+        this.schema = schema;
+    }
+
+    @Override
+    public boolean canConvert(String type) {
+        return schema.getType().equals(type);
+    }
+
+    @Override
+    public Set<String> getTypes() {
+        return Collections.singleton(schema.getType());
+    }
+
+    @Override
+    public C convert(Secret secret) throws CredentialsConvertionException {
+        return convert(new SecretConversionContext(secret));
+    }
+
+    @Override
+    public C convert(SecretConversionContext context) throws CredentialsConvertionException {
+        return schema.convert(context);
+    }
+}
@@ -0,0 +1,279 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import io.fabric8.kubernetes.api.model.Secret;
+
+/**
+ * The metadata of a {@link Secret} needed to convert it to a credential, resolved once per secret.
+ * The labels and annotations are read in a single pass when the context is created so that converters and the
+ * provider do not look them up again for every field.
+ * <em>Note</em>: API may be subject to change.
+ */
+public class SecretConversionContext {
+
+    private static final Logger LOG = Logger.getLogger(SecretConversionContext.class.getName());
+
+    private final Secret secret;
+
+    @CheckForNull
+    private final String type;
+
+    @CheckForNull
+    private final String description;
+
+    /** The custom names of the data keys, only keys with a non empty custom name are present */
+    private final Map<String, String> keyBindings;
+
+    private final Set<String> itemGroups;
+
+    private final Set<String> principals;
+
+    private final Set<String> items;
+
+    @CheckForNull
+    private final CredentialsScope scope;
+
+    /** Why the scope label is invalid, {@code null} if it is valid */
+    @CheckForNull
+    private final String scopeError;
+
+    /** The pool of payloads shared between credentials, {@code null} if payloads are not shared */
+    @CheckForNull
+    private final SharedPayloads payloads;
+
+    /** The shared payload the credential was created from, if any */
+    @CheckForNull
+    private SharedPayloads.Payload payload;
+
+    /**
+     * Resolve the conversion metadata of a secret.
+     * @param secret the secret to convert.
+     */
+    public SecretConversionContext(Secret secret) {
+        this(secret, null);
+    }
+
+    /**
+     * Resolve the conversion metadata of a secret.
+     * @param secret the secret to convert.
+     * @param payloads the pool of payloads to share the credential material with, {@code null} to not share it.
+     */
+    SecretConversionContext(Secret secret, @CheckForNull SharedPayloads payloads) {
+        this.secret = secret;
+        this.payloads = payloads;
+        Map<String, String> labels = secret.getMetadata().getLabels();
+        this.type = labels == null ? null : labels.get(SecretUtils.JENKINS_IO_CREDENTIALS_TYPE_LABEL);
+
+        String description = null;
+        Map<String, String> keyBindings = null;
+        Set<String> itemGroups = Collections.emptySet();
+        Set<String> principals = Collections.emptySet();
+        Set<String> items = Collections.emptySet();
+        Map<String, String> annotations = secret.getMetadata().getAnnotations();
+        if (annotations != null) {
+            for (Map.Entry<String, String> annotation : annotations.entrySet()) {
+                String name = annotation.getKey();
+                String value = annotation.getValue();
+                if (name.startsWith(SecretUtils.JENKINS_IO_CREDENTIALS_KEYBINDING_ANNOTATION_PREFIX)) {
+                    if (value == null || value.isEmpty()) {
+                        LOG.log(Level.WARNING, "Secret {0} contains a mapping annotation {1} but has no entry - mapping will "
+                                               + "not be performed",
+                                new Object[] {secret.getMetadata().getName(), name});
+                        continue;
+                    }
+                    if (keyBindings == null) {
+                        keyBindings = new HashMap<>();
+                    }
+                    keyBindings.put(name.substring(SecretUtils.JENKINS_IO_CREDENTIALS_KEYBINDING_ANNOTATION_PREFIX.length()), value);
+                } else if (SecretUtils.JENKINS_IO_CREDENTIALS_DESCRIPTION_ANNOTATION.equals(name)) {
+                    description = value;
+                } else if (SecretUtils.JENKINS_IO_CREDENTIALS_ITEM_GROUP_ANNOTATION.equals(name)) {
+                    itemGroups = SecretUtils.parseList(value);
+                } else if (SecretUtils.JENKINS_IO_CREDENTIALS_PRINCIPALS_ANNOTATION.equals(name)) {
+                    principals = SecretUtils.parseList(value);
+                } else if (SecretUtils.JENKINS_IO_CREDENTIALS_ITEMS_ANNOTATION.equals(name)) {
+                    items = SecretUtils.parseList(value);
+                }
+            }
+        }
+        this.description = description;
+        this.keyBindings = keyBindings == null ? Collections.emptyMap() : keyBindings;
+        this.itemGroups = itemGroups;
+        this.principals = principals;
+        this.items = items;
+
+        CredentialsScope scope = CredentialsScope.GLOBAL;
+        String scopeError = null;
+        String scopeLabel = labels == null ? null : labels.get(SecretUtils.JENKINS_IO_CREDENTIALS_SCOPE_LABEL);
+        if (scopeLabel != null) {
+            if (!itemGroups.isEmpty()) {
+                scope = null;
+                scopeError = SecretUtils.JENKINS_IO_CREDENTIALS_SCOPE_LABEL + " can not be combined with " +
+                        SecretUtils.JENKINS_IO_CREDENTIALS_ITEM_GROUP_ANNOTATION;
+            } else {
+                try {
+                    scope = CredentialsScope.valueOf(scopeLabel.toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException exception) {
+                    scope = null;
+                    scopeError = SecretUtils.JENKINS_IO_CREDENTIALS_SCOPE_LABEL + " is set to an invalid scope: " + scopeLabel;
+                }
+            }
+        }
+        this.scope = scope;
+        this.scopeError = scopeError;
+    }
+
+    /**
+     * @return the secret being converted.
+     */
+    public Secret getSecret() {
+        return secret;
+    }
+
+    /**
+     * @return the type of the secret, as found in the {@code jenkins.io/credentials-type} label.
+     */
+    @CheckForNull
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return the credential ID.
+     * @see SecretUtils#getCredentialId(Secret)
+     */
+    public String getId() {
+        return SecretUtils.getCredentialId(secret);
+    }
+
+    /**
+     * @return the credential description.
+     * @see SecretUtils#getCredentialDescription(Secret)
+     */
+    @CheckForNull
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * @return the credential scope.
+     * @throws CredentialsConvertionException if the scope is invalid.
+     * @see SecretUtils#getCredentialScope(Secret)
+     */
+    public CredentialsScope getScope() throws CredentialsConvertionException {
+        if (scope == null) {
+            throw new CredentialsConvertionException(String.valueOf(scopeError));
+        }
+        return scope;
+    }
+
+    /**
+     * @return the full names of the item groups the credential is restricted to.
+     * @see SecretUtils#getCredentialItemScopes(Secret)
+     */
+    public Set<String> getItemGroups() {
+        return itemGroups;
+    }
+
+    /**
+     * @return the users and groups the credential is restricted to.
+     * @see SecretUtils#getCredentialPrincipals(Secret)
+     */
+    public Set<String> getPrincipals() {
+        return principals;
+    }
+
+    /**
+     * @return the full names of the items the credential is restricted to.
+     * @see SecretUtils#getCredentialItems(Secret)
+     */
+    public Set<String> getItems() {
+        return items;
+    }
+
+    @CheckForNull
+    SharedPayloads getSharedPayloads() {
+        return payloads;
+    }
+
+    /**
+     * @return the shared payload the credential was created from, {@code null} if it does not share its payload.
+     */
+    @CheckForNull
+    SharedPayloads.Payload getPayload() {
+        return payload;
+    }
+
+    void setPayload(@CheckForNull SharedPayloads.Payload payload) {
+        this.payload = payload;
+    }
+
+    /**
+     * @return the data of the secret, {@code null} if it has none.
+     */
+    @CheckForNull
+    public Map<String, String> getData() {
+        return secret.getData();
+    }
+
+    /**
+     * Get the mapping for the specified key name.
+     * @param key the name of the key we are looking for.
+     * @return the custom mapping for the key or {@code key} (identical object) if there is no custom mapping.
+     * @see SecretUtils#getKeyName(Secret, String)
+     */
+    public String getKeyName(String key) {
+        return keyBindings.getOrDefault(key, key);
+    }
+
+    /**
+     * Get the data for the specified key (or the mapped key if key is mapped), or throw a
+     * CredentialsConvertionException if the data for the given key was not present.
+     * @param key the key to get the data for (which may be mapped to another key).
+     * @param exceptionMessage the detailMessage of the exception if the data for the key (or mapped key) was not
+     *            present.
+     * @return The data for the given key.
+     * @throws CredentialsConvertionException if the data was not present.
+     * @see SecretUtils#getNonNullSecretData(Secret, String, String)
+     */
+    public String getNonNullSecretData(String key, String exceptionMessage) throws CredentialsConvertionException {
+        String mappedKey = keyBindings.get(key);
+        Map<String, String> data = SecretUtils.requireNonNull(secret.getData(), exceptionMessage, mappedKey);
+        return SecretUtils.requireNonNull(data.get(mappedKey == null ? key : mappedKey), exceptionMessage, mappedKey == null ? key : mappedKey);
+    }
+
+    /**
+     * Get optional data for the specified key (or the mapped key if key is mapped).
+     * @param key the key to get the data for (which may be mapped to another key).
+     * @param exceptionMessage the detailMessage of the exception if the key is present but the mapped key is not.
+     * @return Optional data for specified key
+     * @throws CredentialsConvertionException if the key is present but the data for the mapped key is not.
+     * @see SecretUtils#getOptionalSecretData(Secret, String, String)
+     */
+    public Optional<String> getOptionalSecretData(String key, String exceptionMessage) throws CredentialsConvertionException {
+        Map<String, String> data = secret.getData();
+        if (data == null) {
+            return Optional.empty();
+        }
+        String mappedKey = keyBindings.get(key);
+        if (mappedKey == null) {
+            return Optional.ofNullable(data.get(key));
+        }
+        String value = data.get(mappedKey);
+        if (value == null && data.containsKey(key)) {
+            // the key is present but was mapped to a missing entry
+            throw new CredentialsConvertionException(exceptionMessage.concat(" (mapped to " + mappedKey + ")"));
+        }
+        return Optional.ofNullable(value);
+    }
+}
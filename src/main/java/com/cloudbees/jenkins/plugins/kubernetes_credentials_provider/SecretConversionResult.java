@@ -0,0 +1,74 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import com.cloudbees.plugins.credentials.common.IdCredentials;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import io.fabric8.kubernetes.api.model.Secret;
+
+/**
+ * The outcome of converting one secret of a batch: either the credential or the reason it could not be created.
+ * <em>Note</em>: API may be subject to change.
+ * @see SecretToCredentialConverter#convertAll(java.util.Collection)
+ */
+public final class SecretConversionResult {
+
+    private final SecretConversionContext context;
+    @CheckForNull
+    private final IdCredentials credential;
+    @CheckForNull
+    private final CredentialsConvertionException error;
+
+    private SecretConversionResult(SecretConversionContext context, @CheckForNull IdCredentials credential,
+                                   @CheckForNull CredentialsConvertionException error) {
+        this.context = context;
+        this.credential = credential;
+        this.error = error;
+    }
+
+    /**
+     * @param context the secret that was converted.
+     * @param credential the credential created from the secret.
+     * @return the result of a successful conversion.
+     */
+    public static SecretConversionResult success(SecretConversionContext context, IdCredentials credential) {
+        return new SecretConversionResult(context, credential, null);
+    }
+
+    /**
+     * @param context the secret that could not be converted.
+     * @param error why the secret could not be converted.
+     * @return the result of a failed conversion.
+     */
+    public static SecretConversionResult failure(SecretConversionContext context, CredentialsConvertionException error) {
+        return new SecretConversionResult(context, null, error);
+    }
+
+    /**
+     * @return the secret that was converted and its metadata.
+     */
+    public SecretConversionContext getContext() {
+        return context;
+    }
+
+    /**
+     * @return the secret that was converted.
+     */
+    public Secret getSecret() {
+        return context.getSecret();
+    }
+
+    /**
+     * @return the credential, {@code null} if the conversion failed.
+     */
+    @CheckForNull
+    public IdCredentials getCredential() {
+        return credential;
+    }
+
+    /**
+     * @return why the conversion failed, {@code null} if it succeeded.
+     */
+    @CheckForNull
+    public CredentialsConvertionException getError() {
+        return error;
+    }
+}
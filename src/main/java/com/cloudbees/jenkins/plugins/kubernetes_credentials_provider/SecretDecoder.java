@@ -0,0 +1,154 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Decodes the base64 encoded values of secret data without intermediate copies.
+ * Binary values are decoded straight from the encoded {@code String} into an array of the exact decoded size, UTF-8
+ * values are decoded through per thread scratch buffers (with a reused strict decoder) that are zeroed after use.
+ * Accepts the same input as {@link java.util.Base64#getDecoder()}.
+ */
+final class SecretDecoder {
+
+    /** Values larger than this are decoded with temporary buffers so that threads do not retain large buffers */
+    private static final int MAX_SCRATCH_SIZE = 64 * 1024;
+
+    private static final int[] ALPHABET = new int[128];
+
+    static {
+        Arrays.fill(ALPHABET, -1);
+        String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < chars.length(); i++) {
+            ALPHABET[chars.charAt(i)] = i;
+        }
+    }
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private SecretDecoder() {
+    }
+
+    /**
+     * Decode a base64 encoded value.
+     * @param s the base64 encoded value.
+     * @return the decoded bytes.
+     * @throws IllegalArgumentException if {@code s} is not valid base64.
+     */
+    static byte[] decode(String s) {
+        byte[] bytes = new byte[decodedLength(s)];
+        decode(s, bytes);
+        return bytes;
+    }
+
+    /**
+     * Decode a base64 encoded UTF-8 value.
+     * @param s the base64 encoded value.
+     * @return the decoded string.
+     * @throws IllegalArgumentException if {@code s} is not valid base64.
+     * @throws CharacterCodingException if the decoded bytes are not valid UTF-8.
+     */
+    static String decodeToString(String s) throws CharacterCodingException {
+        int length = decodedLength(s);
+        Scratch scratch = SCRATCH.get();
+        boolean reuse = length <= MAX_SCRATCH_SIZE;
+        byte[] bytes = reuse ? scratch.bytes(length) : new byte[length];
+        // a UTF-8 sequence never decodes to more chars than it has bytes
+        char[] chars = reuse ? scratch.chars(length) : new char[length];
+        CharBuffer out = CharBuffer.wrap(chars);
+        try {
+            decode(s, bytes);
+            CharsetDecoder decoder = scratch.decoder.reset();
+            ByteBuffer in = ByteBuffer.wrap(bytes, 0, length);
+            CoderResult result = decoder.decode(in, out, true);
+            if (!result.isError()) {
+                result = decoder.flush(out);
+            }
+            if (result.isError()) {
+                result.throwException();
+            }
+            return new String(chars, 0, out.position());
+        } finally {
+            Arrays.fill(bytes, 0, length, (byte) 0);
+            Arrays.fill(chars, 0, out.position(), '\0');
+        }
+    }
+
+    /**
+     * Compute the number of bytes encoded by a base64 value, validating its length and padding.
+     */
+    private static int decodedLength(String s) {
+        int length = s.length();
+        int padding = 0;
+        if (length > 0 && s.charAt(length - 1) == '=') {
+            padding = length > 1 && s.charAt(length - 2) == '=' ? 2 : 1;
+            if (length % 4 != 0) {
+                throw new IllegalArgumentException("Input byte array has wrong 4-byte ending unit");
+            }
+        }
+        int remainder = (length - padding) % 4;
+        if (remainder == 1 || (padding == 1 && remainder != 3) || (padding == 2 && remainder != 2)) {
+            throw new IllegalArgumentException("Input byte array has wrong 4-byte ending unit");
+        }
+        return (length - padding) / 4 * 3 + (remainder == 0 ? 0 : remainder - 1);
+    }
+
+    /**
+     * Decode {@code s} into the first {@link #decodedLength(String)} bytes of {@code dst}.
+     */
+    private static void decode(String s, byte[] dst) {
+        int end = s.length();
+        // at most two padding characters, validated by decodedLength
+        for (int i = 0; i < 2 && end > 0 && s.charAt(end - 1) == '='; i++) {
+            end--;
+        }
+        int bits = 0;
+        int bitCount = 0;
+        int position = 0;
+        for (int i = 0; i < end; i++) {
+            char c = s.charAt(i);
+            int value = c < 128 ? ALPHABET[c] : -1;
+            if (value < 0) {
+                throw new IllegalArgumentException("Illegal base64 character " + Integer.toString(c, 16));
+            }
+            // only the bits not yet written are kept
+            bits = ((bits << 6) | value) & 0xFFF;
+            bitCount += 6;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                dst[position++] = (byte) (bits >> bitCount);
+            }
+        }
+    }
+
+    /**
+     * Per thread buffers and decoder.
+     */
+    private static final class Scratch {
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        private byte[] bytes = new byte[256];
+        private char[] chars = new char[256];
+
+        byte[] bytes(int length) {
+            if (bytes.length < length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            return bytes;
+        }
+
+        char[] chars(int length) {
+            if (chars.length < length) {
+                chars = new char[Math.max(length, chars.length * 2)];
+            }
+            return chars;
+        }
+    }
+}
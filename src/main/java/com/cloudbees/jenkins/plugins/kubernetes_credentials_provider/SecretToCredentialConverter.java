@@ -23,6 +23,12 @@
  */
 package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import io.fabric8.kubernetes.api.model.Secret;
 import hudson.ExtensionList;
@@ -41,6 +47,17 @@ public abstract class SecretToCredentialConverter implements ExtensionPoint {
      */
     public abstract boolean canConvert(String type);
 
+    /**
+     * The types of secret this converter can transform, used to find the converter of a secret without calling
+     * {@link #canConvert(String)} on every converter.
+     * Converters that do not declare their types are asked through {@link #canConvert(String)} for the types that no
+     * other converter declares.
+     * @return the types of secret this converter can transform, or an empty set if they are not known upfront.
+     */
+    public Set<String> getTypes() {
+        return Collections.emptySet();
+    }
+
     /**
      * Convert the given {@code Secret} to an {@code IdCredential}.
      * This will only be called for a secret of a type that the class has previously returned {@code true} from {@link #canConvert(String)}.
@@ -50,6 +67,54 @@ public abstract class SecretToCredentialConverter implements ExtensionPoint {
      */
     public abstract IdCredentials convert(Secret secret) throws CredentialsConvertionException;
 
+    /**
+     * Convert the given {@code Secret} to an {@code IdCredential}, using the metadata already resolved for the secret.
+     * This will only be called for a secret of a type that the class has previously returned {@code true} from {@link #canConvert(String)}.
+     * Converters should override this method to avoid looking up the secret metadata again, the default implementation
+     * calls {@link #convert(Secret)}.
+     * @param context the Secret to convert and its resolved metadata.
+     * @throws CredentialsConvertionException if the Secret could not be converted.
+     * @return the IdCredentials created from the secret.
+     */
+    public IdCredentials convert(SecretConversionContext context) throws CredentialsConvertionException {
+        return convert(context.getSecret());
+    }
+
+    /**
+     * Convert a batch of {@code Secret}s, each to an {@code IdCredential} or to the reason it could not be converted.
+     * This will only be called with secrets of types that the class has previously returned {@code true} from {@link #canConvert(String)}.
+     * The default implementation calls {@link #convertAllContexts(List)}.
+     * @param secrets the Secrets to convert.
+     * @return the result of each conversion, in the order of {@code secrets}.
+     */
+    public List<SecretConversionResult> convertAll(Collection<Secret> secrets) {
+        List<SecretConversionContext> contexts = new ArrayList<>(secrets.size());
+        for (Secret secret : secrets) {
+            contexts.add(new SecretConversionContext(secret));
+        }
+        return convertAllContexts(contexts);
+    }
+
+    /**
+     * Convert a batch of {@code Secret}s, using the metadata already resolved for each secret.
+     * This is used by the provider when it loads all the secrets, converters that need costly setup (key factories,
+     * ciphers, ...) should override this method to perform it once per batch rather than once per secret.
+     * The default implementation calls {@link #convert(SecretConversionContext)} for each secret.
+     * @param contexts the Secrets to convert and their resolved metadata.
+     * @return the result of each conversion, in the order of {@code contexts}.
+     */
+    public List<SecretConversionResult> convertAllContexts(List<SecretConversionContext> contexts) {
+        List<SecretConversionResult> results = new ArrayList<>(contexts.size());
+        for (SecretConversionContext context : contexts) {
+            try {
+                results.add(SecretConversionResult.success(context, convert(context)));
+            } catch (CredentialsConvertionException e) {
+                results.add(SecretConversionResult.failure(context, e));
+            }
+        }
+        return results;
+    }
+
     /**
      * Helper to obtain all the implementations of this {@code ExtensionPoint}
      * @return the ExtensionList containing all of the implementations.
@@ -65,13 +130,7 @@ public abstract class SecretToCredentialConverter implements ExtensionPoint {
      */
     @CheckForNull
     static final SecretToCredentialConverter lookup(String type) {
-        ExtensionList<SecretToCredentialConverter> all = all();
-        for (SecretToCredentialConverter stcc : all) {
-            if (stcc.canConvert(type)) {
-                return stcc;
-            }
-        }
-        return null;
+        return SecretToCredentialConverterRegistry.get().lookup(type);
     }
 
 }
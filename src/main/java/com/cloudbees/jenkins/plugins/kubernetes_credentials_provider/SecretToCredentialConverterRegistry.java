@@ -0,0 +1,160 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import hudson.ExtensionList;
+import hudson.ExtensionListListener;
+
+/**
+ * Immutable mapping of secret types to the {@link SecretToCredentialConverter} converting them, built from a snapshot
+ * of the extension list.
+ * As with the extension list the converter with the highest ordinal wins: a converter declaring a type through
+ * {@link SecretToCredentialConverter#getTypes()} is only used if no converter ranked before it accepts the type through
+ * {@link SecretToCredentialConverter#canConvert(String)}. The converter of each type is resolved once and cached.
+ */
+final class SecretToCredentialConverterRegistry {
+
+    private static final Logger LOG = Logger.getLogger(SecretToCredentialConverterRegistry.class.getName());
+
+    /** Maximum number of types whose converter is cached */
+    static final int MAX_CACHED_TYPES = 1000;
+
+    /** The registry built from the current extension list, {@code null} when it needs to be rebuilt */
+    @CheckForNull
+    private static volatile SecretToCredentialConverterRegistry current;
+
+    /** The extension list whose changes reset {@link #current} */
+    @CheckForNull
+    private static ExtensionList<SecretToCredentialConverter> listened;
+
+    /** The extension list this registry was built from */
+    private final ExtensionList<SecretToCredentialConverter> source;
+
+    /** The converters keyed by the types they declare */
+    private final Map<String, SecretToCredentialConverter> byType;
+
+    /** The converters in extension order */
+    private final List<SecretToCredentialConverter> ordered;
+
+    /** The converters that do not declare their types */
+    private final Set<SecretToCredentialConverter> undeclared;
+
+    /** The converter resolved for each type, empty if no converter accepts the type */
+    private final ConcurrentHashMap<String, Optional<SecretToCredentialConverter>> resolved = new ConcurrentHashMap<>();
+
+    /** The types claimed by more than one converter, with the claiming converters in extension order */
+    private final Map<String, List<SecretToCredentialConverter>> conflicts;
+
+    SecretToCredentialConverterRegistry(ExtensionList<SecretToCredentialConverter> source) {
+        this.source = source;
+        Map<String, SecretToCredentialConverter> byType = new HashMap<>();
+        List<SecretToCredentialConverter> ordered = new ArrayList<>();
+        Set<SecretToCredentialConverter> undeclared = Collections.newSetFromMap(new IdentityHashMap<>());
+        Map<String, List<SecretToCredentialConverter>> conflicts = new LinkedHashMap<>();
+        for (SecretToCredentialConverter converter : source) {
+            ordered.add(converter);
+            if (converter.getTypes().isEmpty()) {
+                undeclared.add(converter);
+                continue;
+            }
+            for (String type : converter.getTypes()) {
+                // as with the extension list the converter with the highest ordinal wins
+                SecretToCredentialConverter existing = byType.putIfAbsent(type, converter);
+                if (existing != null) {
+                    conflicts.computeIfAbsent(type, k -> new ArrayList<>(Collections.singletonList(existing))).add(converter);
+                }
+            }
+        }
+        this.byType = Collections.unmodifiableMap(byType);
+        this.ordered = Collections.unmodifiableList(ordered);
+        this.undeclared = undeclared;
+        this.conflicts = Collections.unmodifiableMap(conflicts);
+        for (Map.Entry<String, List<SecretToCredentialConverter>> conflict : conflicts.entrySet()) {
+            LOG.log(Level.WARNING, "Secrets of type {0} can be converted by {1}, only the first one will be used",
+                    new Object[] {conflict.getKey(), conflict.getValue()});
+        }
+    }
+
+    /**
+     * Get the registry for the current converter extensions, building it when the extensions changed.
+     * @return the registry of the current {@link SecretToCredentialConverter} extensions.
+     */
+    static SecretToCredentialConverterRegistry get() {
+        ExtensionList<SecretToCredentialConverter> all = SecretToCredentialConverter.all();
+        SecretToCredentialConverterRegistry registry = current;
+        if (registry == null || registry.source != all) {
+            synchronized (SecretToCredentialConverterRegistry.class) {
+                if (listened != all) {
+                    // plugins loaded dynamically add their converters to the same list
+                    all.addListener(new ExtensionListListener() {
+                        @Override
+                        public void onChange() {
+                            current = null;
+                        }
+                    });
+                    listened = all;
+                }
+            }
+            registry = new SecretToCredentialConverterRegistry(all);
+            current = registry;
+        }
+        return registry;
+    }
+
+    /**
+     * Find the converter for a type of secret.
+     * @param type the type of the secret to convert.
+     * @return the converter for {@code type}, or {@code null} if none can convert it.
+     */
+    @CheckForNull
+    SecretToCredentialConverter lookup(@CheckForNull String type) {
+        if (type == null) {
+            return resolve(null);
+        }
+        Optional<SecretToCredentialConverter> converter = resolved.get(type);
+        if (converter == null) {
+            converter = Optional.ofNullable(resolve(type));
+            // the types are label values chosen by whoever writes the secrets, only a bounded number is cached
+            if (resolved.size() < MAX_CACHED_TYPES) {
+                resolved.put(type, converter);
+            }
+        }
+        return converter.orElse(null);
+    }
+
+    /**
+     * Find the first converter in extension order accepting a type.
+     */
+    @CheckForNull
+    private SecretToCredentialConverter resolve(@CheckForNull String type) {
+        SecretToCredentialConverter declared = type == null ? null : byType.get(type);
+        for (SecretToCredentialConverter stcc : ordered) {
+            if (stcc == declared) {
+                return declared;
+            }
+            if (undeclared.contains(stcc) && stcc.canConvert(type)) {
+                return stcc;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the types claimed by more than one converter, with the claiming converters in extension order.
+     */
+    Map<String, List<SecretToCredentialConverter>> getConflicts() {
+        return conflicts;
+    }
+}
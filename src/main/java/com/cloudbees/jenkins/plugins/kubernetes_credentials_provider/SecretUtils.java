@@ -23,15 +23,10 @@
  */
 package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
 
-import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
 import java.nio.charset.CharacterCodingException;
-import java.nio.charset.CharsetDecoder;
-import java.nio.charset.CodingErrorAction;
-import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
-import java.util.Base64;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Locale;
 import java.util.Set;
@@ -57,10 +52,10 @@ public abstract class SecretUtils {
     private static final Logger LOG = Logger.getLogger(SecretUtils.class.getName());
 
     /** Optional Kubernetes annotation for the credential description */
-    private static final String JENKINS_IO_CREDENTIALS_DESCRIPTION_ANNOTATION = "jenkins.io/credentials-description";
+    static final String JENKINS_IO_CREDENTIALS_DESCRIPTION_ANNOTATION = "jenkins.io/credentials-description";
 
     /** Annotation prefix for the optional custom mapping of data */
-    private static final String JENKINS_IO_CREDENTIALS_KEYBINDING_ANNOTATION_PREFIX = "jenkins.io/credentials-keybinding-";
+    static final String JENKINS_IO_CREDENTIALS_KEYBINDING_ANNOTATION_PREFIX = "jenkins.io/credentials-keybinding-";
 
     static final String JENKINS_IO_CREDENTIALS_TYPE_LABEL = "jenkins.io/credentials-type";
 
@@ -69,6 +64,18 @@ public abstract class SecretUtils {
     /** Optional annotation containing a list of job folders this credential is available to */
     static final String JENKINS_IO_CREDENTIALS_ITEM_GROUP_ANNOTATION = "jenkins.io/credentials-store-locations";
 
+    /** Optional annotation containing a list of users and groups this credential is available to */
+    static final String JENKINS_IO_CREDENTIALS_PRINCIPALS_ANNOTATION = "jenkins.io/credentials-principals";
+
+    /** Prefix of the user IDs in {@link #JENKINS_IO_CREDENTIALS_PRINCIPALS_ANNOTATION} */
+    static final String USER_PRINCIPAL_PREFIX = "user:";
+
+    /** Prefix of the group names in {@link #JENKINS_IO_CREDENTIALS_PRINCIPALS_ANNOTATION} */
+    static final String GROUP_PRINCIPAL_PREFIX = "group:";
+
+    /** Optional annotation containing a list of items (jobs) this credential is available to */
+    static final String JENKINS_IO_CREDENTIALS_ITEMS_ANNOTATION = "jenkins.io/credentials-items";
+
     /**
      * Convert a String representation of the base64 encoded bytes of a UTF-8 String back to a String. 
      * @param s the base64 encoded String representation of the bytes.
@@ -77,17 +84,12 @@ public abstract class SecretUtils {
     @CheckForNull
     @Restricted(NoExternalUse.class) // API is not yet concrete
     public static String base64DecodeToString(String s) {
-        byte[] bytes = base64Decode(s);
-        if (bytes != null) {
-            try {
-                CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
-                decoder.onMalformedInput(CodingErrorAction.REPORT);
-                decoder.onUnmappableCharacter(CodingErrorAction.REPORT);
-                CharBuffer decode = decoder.decode(ByteBuffer.wrap(bytes));
-                return decode.toString();
-            } catch (CharacterCodingException ex) {
-                LOG.log(Level.WARNING, "failed to covert Secret, is this a valid UTF-8 string?  {0}", ex.getMessage());
-            }
+        try {
+            return SecretDecoder.decodeToString(s);
+        } catch (IllegalArgumentException ex) {
+            LOG.log(Level.WARNING, "failed to base64decode Secret, is the format valid?  {0}", ex.getMessage());
+        } catch (CharacterCodingException ex) {
+            LOG.log(Level.WARNING, "failed to covert Secret, is this a valid UTF-8 string?  {0}", ex.getMessage());
         }
         return null;
     }
@@ -101,7 +103,7 @@ public abstract class SecretUtils {
     @Restricted(NoExternalUse.class) // API is not yet concrete
     public static byte[] base64Decode(String s) {
         try {
-            return Base64.getDecoder().decode(s);
+            return SecretDecoder.decode(s);
         } catch (IllegalArgumentException ex) {
             LOG.log(Level.WARNING, "failed to base64decode Secret, is the format valid?  {0}", ex.getMessage());
         }
@@ -140,7 +142,74 @@ public abstract class SecretUtils {
      * @return a set of all item-group scopes
      */
     public static Set<String> getCredentialItemScopes(Secret s) {
-        String itemListString = s.getMetadata().getAnnotations().get(SecretUtils.JENKINS_IO_CREDENTIALS_ITEM_GROUP_ANNOTATION);
+        return getAnnotationList(s, JENKINS_IO_CREDENTIALS_ITEM_GROUP_ANNOTATION);
+    }
+
+    /**
+     * Gets all the users and groups a secret is restricted to.
+     * Format of the annotation: "['user:alice', 'user:bob', 'group:some-group']"
+     *
+     * @param s the secret whose principals we want to obtain.
+     * @return a set of prefixed user IDs and group names, empty if the secret is not restricted to any principal.
+     */
+    public static Set<String> getCredentialPrincipals(Secret s) {
+        return getAnnotationList(s, JENKINS_IO_CREDENTIALS_PRINCIPALS_ANNOTATION);
+    }
+
+    /**
+     * Checks that every principal is explicitly a user or a group, as a user ID may be the name of a group.
+     * @param principals the entries of the principals annotation.
+     * @return {@code true} iff all the entries start with {@link #USER_PRINCIPAL_PREFIX} or
+     *         {@link #GROUP_PRINCIPAL_PREFIX} followed by a name.
+     */
+    static boolean arePrincipalsQualified(Set<String> principals) {
+        for (String principal : principals) {
+            if (!(principal.startsWith(USER_PRINCIPAL_PREFIX) && principal.length() > USER_PRINCIPAL_PREFIX.length())
+                    && !(principal.startsWith(GROUP_PRINCIPAL_PREFIX) && principal.length() > GROUP_PRINCIPAL_PREFIX.length())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the user IDs or the group names of the principals annotation.
+     * @param principals the entries of the principals annotation.
+     * @param prefix {@link #USER_PRINCIPAL_PREFIX} or {@link #GROUP_PRINCIPAL_PREFIX}.
+     * @return the names of the entries with the given prefix, without the prefix.
+     */
+    static Set<String> getPrincipalNames(Set<String> principals, String prefix) {
+        Set<String> names = new HashSet<>();
+        for (String principal : principals) {
+            if (principal.startsWith(prefix) && principal.length() > prefix.length()) {
+                names.add(principal.substring(prefix.length()));
+            }
+        }
+        return names.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * Gets the full names of all the items a secret is restricted to.
+     * Format of the annotation: "['thisIsJobA', 'thisIsFolderA/thisIsJobB']"
+     *
+     * @param s the secret whose items we want to obtain.
+     * @return a set of item full names, empty if the secret is not restricted to any item.
+     */
+    public static Set<String> getCredentialItems(Secret s) {
+        return getAnnotationList(s, JENKINS_IO_CREDENTIALS_ITEMS_ANNOTATION);
+    }
+
+    private static Set<String> getAnnotationList(Secret s, String annotation) {
+        Map<String, String> annotations = s.getMetadata().getAnnotations();
+        return parseList(annotations == null ? null : annotations.get(annotation));
+    }
+
+    /**
+     * Parses a list annotation value of the format "['a', 'b']".
+     * @param itemListString the value of the annotation.
+     * @return the values in the list, empty if the value is not a list.
+     */
+    static Set<String> parseList(@CheckForNull String itemListString) {
         if (itemListString == null) {
             return Collections.emptySet();
         }
@@ -0,0 +1,197 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import com.cloudbees.plugins.credentials.SecretBytes;
+
+/**
+ * Pool of the credential material of secrets, keyed by a fingerprint of the type and decoded fields, so that secrets
+ * replicated under several IDs share the same credential material.
+ * The pool never keeps the decoded fields, only the fingerprint and the encrypted {@link hudson.util.Secret} and
+ * {@link SecretBytes} created from them, so the plaintext is garbage once the credential is created.
+ * Payloads are reference counted, each credential created from a payload holds a reference until it is removed
+ * from the provider.
+ */
+class SharedPayloads {
+
+    private final Map<String, Payload> payloads = new HashMap<>();
+
+    /** The number of credentials referencing a payload */
+    private long references;
+
+    /**
+     * Get the payload of the given decoded fields, creating it if no credential references it yet.
+     * The caller holds a reference to the payload that it must {@link #release(Payload) release}.
+     * @param type the type of the secret.
+     * @param keys the keys of the fields.
+     * @param values the decoded fields, {@code String}, {@code byte[]} or {@code null}, not kept by the pool.
+     * @return the shared payload.
+     */
+    synchronized Payload acquire(String type, String[] keys, Object[] values) {
+        String fingerprint = fingerprint(type, keys, values);
+        Payload payload = payloads.get(fingerprint);
+        if (payload == null) {
+            payload = new Payload(this, fingerprint, values);
+            payloads.put(fingerprint, payload);
+        }
+        payload.references++;
+        references++;
+        return payload;
+    }
+
+    /**
+     * Remove a reference to a payload, the payload is dropped from the pool when it is no longer referenced.
+     * @param payload the payload.
+     */
+    synchronized void release(Payload payload) {
+        if (payload.references <= 0) {
+            throw new IllegalStateException("Payload " + payload.fingerprint + " is no longer referenced");
+        }
+        payload.references--;
+        references--;
+        if (payload.references == 0) {
+            payloads.remove(payload.fingerprint);
+        }
+    }
+
+    /**
+     * @return the number of distinct payloads.
+     */
+    synchronized int size() {
+        return payloads.size();
+    }
+
+    /**
+     * @return the number of credentials referencing a payload.
+     */
+    synchronized long getReferences() {
+        return references;
+    }
+
+    /**
+     * Only the material actually shared is counted, the fields a credential keeps in its own plaintext copy (such as
+     * the password of a {@code UsernamePasswordCredentialsImpl}) save nothing.
+     * @return the estimated number of bytes saved by sharing the payloads.
+     */
+    synchronized long getBytesSaved() {
+        long saved = 0;
+        for (Payload payload : payloads.values()) {
+            saved += payload.sharedSize * (payload.references - 1);
+        }
+        return saved;
+    }
+
+    private static String fingerprint(String type, String[] keys, Object[] values) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+        update(digest, type.getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < keys.length; i++) {
+            update(digest, keys[i].getBytes(StandardCharsets.UTF_8));
+            Object value = values[i];
+            if (value == null) {
+                digest.update((byte) 0);
+            } else if (value instanceof String) {
+                digest.update((byte) 1);
+                update(digest, ((String) value).getBytes(StandardCharsets.UTF_8));
+            } else {
+                digest.update((byte) 2);
+                update(digest, (byte[]) value);
+            }
+        }
+        return Base64.getEncoder().encodeToString(digest.digest());
+    }
+
+    /**
+     * Length prefixed so that the boundaries between fields are part of the fingerprint.
+     */
+    private static void update(MessageDigest digest, byte[] bytes) {
+        int length = bytes.length;
+        digest.update(new byte[] {(byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length});
+        digest.update(bytes);
+    }
+
+    /**
+     * The credential material shared by the credentials created from decoded fields with the same fingerprint.
+     */
+    static final class Payload {
+
+        private final SharedPayloads pool;
+        private final String fingerprint;
+        /** The {@link hudson.util.Secret} or {@link SecretBytes} created from the fields, by field index */
+        private final Object[] materials;
+        /** The estimated number of bytes held by the material of the fields */
+        private final long size;
+        /** The estimated number of bytes held by the material created with {@link #getMaterial}, written under this lock */
+        private volatile long sharedSize;
+        /** Guarded by {@link #pool} */
+        private int references;
+
+        private Payload(SharedPayloads pool, String fingerprint, Object[] values) {
+            this.pool = pool;
+            this.fingerprint = fingerprint;
+            this.materials = new Object[values.length];
+            long size = 0;
+            for (Object value : values) {
+                // estimated from the size of the field, the encrypted material is about as large
+                if (value instanceof String) {
+                    // estimated at two bytes per character, Latin-1 strings only use one
+                    size += 2L * ((String) value).length();
+                } else if (value instanceof byte[]) {
+                    size += ((byte[]) value).length;
+                }
+            }
+            this.size = size;
+        }
+
+        /**
+         * @return the estimated number of bytes held by the material of the fields.
+         */
+        long getSize() {
+            return size;
+        }
+
+        /**
+         * Get the credential material created from a field, creating it on first use.
+         * @param index the index of the field.
+         * @param type the type of material.
+         * @param size the estimated number of bytes held by the material.
+         * @param factory creates the material if it was not yet created.
+         * @param <T> the type of material.
+         * @return the shared material.
+         */
+        synchronized <T> T getMaterial(int index, Class<T> type, long size, Supplier<T> factory) {
+            Object material = materials[index];
+            if (!type.isInstance(material)) {
+                if (material == null) {
+                    sharedSize += size;
+                }
+                material = factory.get();
+                materials[index] = material;
+            }
+            return type.cast(material);
+        }
+
+        /**
+         * Remove the reference held by a credential.
+         */
+        void release() {
+            pool.release(this);
+        }
+
+        @Override
+        public String toString() {
+            return "Payload[" + fingerprint + "]";
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * The state of the synchronization of the {@link KubernetesCredentialProvider} with the secrets in Kubernetes,
+ * updated as the secrets are listed and watched so that it can be displayed without any computation.
+ */
+@Restricted(NoExternalUse.class)
+public final class SyncStatus {
+
+    /**
+     * The state of the watch of the secrets.
+     */
+    public enum WatchState {
+        /** The secrets have not been listed yet */
+        NOT_STARTED,
+        /** Changes of the secrets are received */
+        WATCHING,
+        /** The connection failed, changes are not received until the client reconnects */
+        RECONNECTING,
+        /** The watch was closed when Jenkins stopped */
+        STOPPED
+    }
+
+    private volatile WatchState watchState = WatchState.NOT_STARTED;
+    /** The resource version of the last list or watch event */
+    @CheckForNull
+    private volatile String resourceVersion;
+    private volatile long lastListed;
+    private volatile long listDurationMillis = -1;
+    private volatile int listedSecrets;
+    private volatile int convertedSecrets;
+    private volatile long lastEvent;
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+
+    /**
+     * The secrets were listed and converted.
+     * @param resourceVersion the resource version of the list.
+     * @param startNanos the {@link System#nanoTime()} the list was started at.
+     * @param listed the number of secrets listed.
+     * @param converted the number of secrets converted.
+     */
+    void listed(@CheckForNull String resourceVersion, long startNanos, int listed, int converted) {
+        this.resourceVersion = resourceVersion;
+        this.listDurationMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        this.listedSecrets = listed;
+        this.convertedSecrets = converted;
+        this.lastListed = System.currentTimeMillis();
+    }
+
+    void watching() {
+        watchState = WatchState.WATCHING;
+    }
+
+    void reconnecting() {
+        watchState = WatchState.RECONNECTING;
+        reconnects.incrementAndGet();
+    }
+
+    void stopped() {
+        watchState = WatchState.STOPPED;
+    }
+
+    /**
+     * A watch event was received.
+     * @param resourceVersion the resource version of the event, if any.
+     */
+    void eventReceived(@CheckForNull String resourceVersion) {
+        if (resourceVersion != null) {
+            this.resourceVersion = resourceVersion;
+        }
+        events.incrementAndGet();
+        lastEvent = System.currentTimeMillis();
+    }
+
+    public WatchState getWatchState() {
+        return watchState;
+    }
+
+    /**
+     * @return the resource version of the last list or watch event, {@code null} before the secrets are listed.
+     */
+    @CheckForNull
+    public String getResourceVersion() {
+        return resourceVersion;
+    }
+
+    /**
+     * @return when the secrets were last listed, {@code null} if they were never listed.
+     */
+    @CheckForNull
+    public Date getLastListed() {
+        long last = lastListed;
+        return last == 0 ? null : new Date(last);
+    }
+
+    /**
+     * @return the time it took to list and convert the secrets the last time, {@code -1} if they were never listed.
+     */
+    public long getListDurationMillis() {
+        return listDurationMillis;
+    }
+
+    public int getListedSecrets() {
+        return listedSecrets;
+    }
+
+    public int getConvertedSecrets() {
+        return convertedSecrets;
+    }
+
+    /**
+     * @return when the last watch event was received, {@code null} if none was received.
+     */
+    @CheckForNull
+    public Date getLastEvent() {
+        long last = lastEvent;
+        return last == 0 ? null : new Date(last);
+    }
+
+    /**
+     * @return the number of watch events received.
+     */
+    public long getEvents() {
+        return events.get();
+    }
+
+    /**
+     * @return the number of times the client reconnected after a failure.
+     */
+    public long getReconnects() {
+        return reconnects.get();
+    }
+}
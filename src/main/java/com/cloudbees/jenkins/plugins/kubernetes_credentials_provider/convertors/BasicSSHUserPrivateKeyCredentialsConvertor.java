@@ -23,58 +23,56 @@
  */
 package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.convertors;
 
-import io.fabric8.kubernetes.api.model.Secret;
-import java.util.Optional;
 import com.cloudbees.jenkins.plugins.sshcredentials.impl.BasicSSHUserPrivateKey;
 import org.jenkinsci.plugins.variant.OptionalExtension;
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialSchema;
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialValidator;
 import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialsConvertionException;
-import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SecretToCredentialConverter;
-import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SecretUtils;
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.KeyMaterial;
+import hudson.util.Secret;
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SchemaSecretToCredentialConverter;
+
+import static com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialSchema.Decoding.UTF8;
 
 /**
  * SecretToCredentialConvertor that converts {@link BasicSSHUserPrivateKey}.
+ * The private keys are validated in the background, encrypted keys are only checked for a passphrase.
  */
 @OptionalExtension(requirePlugins={"ssh-credentials"})
-public class BasicSSHUserPrivateKeyCredentialsConvertor extends SecretToCredentialConverter {
+public class BasicSSHUserPrivateKeyCredentialsConvertor extends SchemaSecretToCredentialConverter<BasicSSHUserPrivateKey>
+        implements CredentialValidator<BasicSSHUserPrivateKey> {
 
-    @Override
-    public boolean canConvert(String type) {
-        return "basicSSHUserPrivateKey".equals(type);
+    private static final CredentialSchema<BasicSSHUserPrivateKey> SCHEMA = CredentialSchema.builder("basicSSHUserPrivateKey")
+            .required("privateKey", UTF8)
+            .required("username", UTF8)
+            // assume the private key has an empty passphrase if absent
+            .optional("passphrase", UTF8)
+            .build((context, values) -> new BasicSSHUserPrivateKey(
+                    // Scope
+                    context.getScope(),
+                    // ID
+                    context.getId(),
+                    // Username
+                    values.getRequiredString("username"),
+                    // PrivateKeySource
+                    new BasicSSHUserPrivateKey.DirectEntryPrivateKeySource(values.getRequiredString("privateKey")),
+                    // Passphrase
+                    values.getString("passphrase"),
+                    // Desc
+                    context.getDescription()
+            ));
+
+    public BasicSSHUserPrivateKeyCredentialsConvertor() {
+        super(SCHEMA);
     }
 
     @Override
-    public BasicSSHUserPrivateKey convert(Secret secret) throws CredentialsConvertionException {
-
-        SecretUtils.requireNonNull(secret.getData(), "basicSSHUserPrivateKey definition contains no data");
-
-        String privateKeyBase64 = SecretUtils.getNonNullSecretData(secret, "privateKey", "basicSSHUserPrivateKey credential is missing the privateKey"); 
-        String privateKey = SecretUtils.requireNonNull(SecretUtils.base64DecodeToString(privateKeyBase64), "basicSSHUserPrivateKey credential has an invalid privateKey (must be base64 encoded UTF-8)");
-
-        String usernameBase64 = SecretUtils.getNonNullSecretData(secret, "username", "basicSSHUserPrivateKey credential is missing the username");
-        String username = SecretUtils.requireNonNull(SecretUtils.base64DecodeToString(usernameBase64), "basicSSHUserPrivateKey credential has an invalid username (must be base64 encoded UTF-8)");
-
-        Optional<String> optPassphraseBase64 = SecretUtils.getOptionalSecretData(secret, "passphrase", "basicSSHUserPrivateKey credential: failed to retrieve passphrase, assuming private key has an empty passphrase");
-        String passphrase = null; 
-
-        if (optPassphraseBase64.isPresent()) {
-            passphrase = SecretUtils.requireNonNull(SecretUtils.base64DecodeToString(optPassphraseBase64.get()), "basicSSHUserPrivateKey credential has an invalid passphrase (must be base64 encoded UTF-8)");
+    public void validate(BasicSSHUserPrivateKey credential) throws CredentialsConvertionException {
+        Secret passphrase = credential.getPassphrase();
+        boolean hasPassphrase = passphrase != null && !passphrase.getPlainText().isEmpty();
+        for (String privateKey : credential.getPrivateKeys()) {
+            KeyMaterial.checkPrivateKey("basicSSHUserPrivateKey credential has an invalid privateKey", privateKey, hasPassphrase);
         }
-
-        return new BasicSSHUserPrivateKey(
-            // Scope
-            SecretUtils.getCredentialScope(secret),
-            // ID
-            SecretUtils.getCredentialId(secret),
-            // Username
-            username,
-            // PrivateKeySource
-            new BasicSSHUserPrivateKey.DirectEntryPrivateKeySource(privateKey),
-            // Passphrase
-            passphrase,
-            // Desc
-            SecretUtils.getCredentialDescription(secret)
-        );
-
     }
 
 }
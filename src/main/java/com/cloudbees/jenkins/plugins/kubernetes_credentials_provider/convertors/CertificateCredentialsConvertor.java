@@ -23,49 +23,147 @@
  */
 package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.convertors;
 
+import java.nio.charset.StandardCharsets;
 import java.security.KeyStoreException;
-import io.fabric8.kubernetes.api.model.Secret;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
 import hudson.Extension;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialSchema;
 import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialsConvertionException;
-import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SecretToCredentialConverter;
-import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SecretUtils;
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SchemaSecretToCredentialConverter;
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SecretConversionContext;
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SecretConversionResult;
 import com.cloudbees.plugins.credentials.SecretBytes;
 import com.cloudbees.plugins.credentials.impl.CertificateCredentialsImpl;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import static com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialSchema.Decoding.BYTES;
+import static com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialSchema.Decoding.UTF8;
 
 /**
  * SecretToCredentialConvertor that converts {@link CertificateCredentialsImpl}.
+ * The outcome of loading a PKCS#12 keystore is cached by a digest of the certificate and password so that a secret
+ * that is converted again with an unchanged certificate is not decrypted again.
  */
 @Extension
-public class CertificateCredentialsConvertor extends SecretToCredentialConverter {
+public class CertificateCredentialsConvertor extends SchemaSecretToCredentialConverter<CertificateCredentialsImpl> {
 
-    @Override
-    public boolean canConvert(String type) {
-        return "certificate".equals(type);
-    }
+    /** Maximum number of keystore validations retained */
+    private static final int KEYSTORE_CACHE_MAX_SIZE = Integer.getInteger(CertificateCredentialsConvertor.class.getName() + ".keyStoreCacheMaxSize", 1000);
 
-    @Override
-    public CertificateCredentialsImpl convert(Secret secret) throws CredentialsConvertionException {
-        // ensure we have some data
-        SecretUtils.requireNonNull(secret.getData(), "certificate definition contains no data");
+    /**
+     * Why the keystore with a given digest is invalid, empty if it is valid.
+     * Only the outcome is retained, the credential loads its own keystore when it is used.
+     */
+    private static final Cache<String, Optional<String>> VALIDATED_KEYSTORES = CacheBuilder.newBuilder()
+            .maximumSize(KEYSTORE_CACHE_MAX_SIZE)
+            .recordStats()
+            .build();
 
-        String passwordBase64 = SecretUtils.getNonNullSecretData(secret, "password", "certificate credential is missing the password entry");
+    /** The digest shared by the conversions of a batch on the current thread, {@code null} outside of a batch */
+    private static final ThreadLocal<MessageDigest> BATCH_DIGEST = new ThreadLocal<>();
 
-        String password = SecretUtils.requireNonNull(SecretUtils.base64DecodeToString(passwordBase64), "certificate credential has an invalid password (must be base64 encoded UTF-8)");
+    private static final CredentialSchema<CertificateCredentialsImpl> SCHEMA = CredentialSchema.builder("certificate")
+            .required("password", UTF8)
+            .required("certificate", BYTES)
+            .build((context, values) -> {
+                String password = values.getRequiredString("password");
+                byte[] certificate = values.getRequiredBytes("certificate");
+                SecretBytes sb = values.getRequiredSecretBytes("certificate");
+                CertificateCredentialsImpl certificateCredentialsImpl = new CertificateCredentialsImpl(context.getScope(), context.getId(), context.getDescription(), password, new CertificateCredentialsImpl.UploadedKeyStoreSource(sb));
+                Optional<String> error;
+                try {
+                    error = VALIDATED_KEYSTORES.get(digest(certificate, password), () -> validate(certificateCredentialsImpl));
+                } catch (ExecutionException ex) {
+                    // validate does not throw checked exceptions
+                    throw new IllegalStateException(ex);
+                }
+                if (error.isPresent()) {
+                    throw new CredentialsConvertionException(error.get());
+                }
+                return certificateCredentialsImpl;
+            });
 
-        String certBase64 = SecretUtils.getNonNullSecretData(secret, "certificate", "certificate credential is missing the certificate entry");
+    public CertificateCredentialsConvertor() {
+        super(SCHEMA);
+    }
 
-        byte[] certData = SecretUtils.requireNonNull(SecretUtils.base64Decode(certBase64), "certificate credential has an invalid certificate (must be base64 encoded data)");
-        SecretBytes sb = SecretBytes.fromBytes(certData);
+    /**
+     * Convert a batch of secrets, looking up the digest of the certificates once for the batch.
+     */
+    @Override
+    public List<SecretConversionResult> convertAllContexts(List<SecretConversionContext> contexts) {
+        BATCH_DIGEST.set(newDigest());
+        try {
+            return super.convertAllContexts(contexts);
+        } finally {
+            BATCH_DIGEST.remove();
+        }
+    }
 
-        CertificateCredentialsImpl certificateCredentialsImpl = new CertificateCredentialsImpl(SecretUtils.getCredentialScope(secret), SecretUtils.getCredentialId(secret), SecretUtils.getCredentialDescription(secret), password, new CertificateCredentialsImpl.UploadedKeyStoreSource(sb));
+    /**
+     * Load the keystore of a credential.
+     * @return why the keystore is invalid, empty if it is valid.
+     */
+    private static Optional<String> validate(CertificateCredentialsImpl credential) {
         try {
-            if (certificateCredentialsImpl.getKeyStore().size() == 0) {
-            throw new CredentialsConvertionException("certificate credential has an invalid certificate (encoded data is not a valid PKCS#12 format certificate understood by Java)");
+            if (credential.getKeyStore().size() == 0) {
+                return Optional.of("certificate credential has an invalid certificate (encoded data is not a valid PKCS#12 format certificate understood by Java)");
             }
         } catch (KeyStoreException ex) {
-            throw new CredentialsConvertionException("certificate credential has an invalid certificate (encoded data is not a valid PKCS#12 format certificate understood by Java - " + ex.getMessage() + " )");
+            return Optional.of("certificate credential has an invalid certificate (encoded data is not a valid PKCS#12 format certificate understood by Java - " + ex.getMessage() + " )");
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Length prefixed SHA-256 digest of the certificate and its password.
+     */
+    private static String digest(byte[] certificate, String password) {
+        MessageDigest digest = BATCH_DIGEST.get();
+        if (digest == null) {
+            digest = newDigest();
+        }
+        byte[] passwordBytes = password.getBytes(StandardCharsets.UTF_8);
+        int length = passwordBytes.length;
+        digest.update(new byte[] {(byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length});
+        digest.update(passwordBytes);
+        digest.update(certificate);
+        // digest() resets the digest for the next certificate of the batch
+        return Base64.getEncoder().encodeToString(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
         }
-        return certificateCredentialsImpl;
+    }
+
+    /**
+     * @return the hits, misses and load times (time spent decrypting keystores) of the keystore cache.
+     */
+    @Restricted(NoExternalUse.class)
+    public static CacheStats getKeyStoreCacheStats() {
+        return VALIDATED_KEYSTORES.stats();
+    }
+
+    /**
+     * @return the number of keystore validations currently cached.
+     */
+    @Restricted(NoExternalUse.class)
+    public static long getKeyStoreCacheSize() {
+        return VALIDATED_KEYSTORES.size();
     }
 
 }
@@ -23,47 +23,61 @@
  */
 package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.convertors;
 
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialSchema;
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialValidator;
 import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialsConvertionException;
-import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SecretToCredentialConverter;
-import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SecretUtils;
-import io.fabric8.kubernetes.api.model.Secret;
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.KeyMaterial;
+import hudson.util.Secret;
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SchemaSecretToCredentialConverter;
 import org.jenkinsci.plugins.docker.commons.credentials.DockerServerCredentials;
 import org.jenkinsci.plugins.variant.OptionalExtension;
 
+import static com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialSchema.Decoding.UTF8;
+
+/**
+ * SecretToCredentialConvertor that converts {@link DockerServerCredentials}.
+ * The client key and the certificates are validated in the background.
+ */
 @OptionalExtension(requirePlugins = {"docker-commons"})
-public class DockerServerCredentialsConvertor extends SecretToCredentialConverter {
+public class DockerServerCredentialsConvertor extends SchemaSecretToCredentialConverter<DockerServerCredentials>
+        implements CredentialValidator<DockerServerCredentials> {
 
-    @Override
-    public boolean canConvert(String type) {
-        return "x509ClientCert".equals(type);
+    private static final CredentialSchema<DockerServerCredentials> SCHEMA = CredentialSchema.builder("x509ClientCert")
+            .named("X.509 client certificate")
+            .required("clientCertificate", UTF8)
+            .required("clientKeySecret", UTF8)
+            .required("serverCaCertificate", UTF8)
+            .build((context, values) -> new DockerServerCredentials(
+                    // scope
+                    context.getScope(),
+                    // id
+                    context.getId(),
+                    // description
+                    context.getDescription(),
+                    // clientKeySecret
+                    values.getRequiredSecret("clientKeySecret"),
+                    // clientCertificate
+                    values.getRequiredString("clientCertificate"),
+                    // serverCaCertificate
+                    values.getRequiredString("serverCaCertificate")));
+
+    public DockerServerCredentialsConvertor() {
+        super(SCHEMA);
     }
 
     @Override
-    public DockerServerCredentials convert(Secret secret) throws CredentialsConvertionException {
-
-        SecretUtils.requireNonNull(secret.getData(), "X.509 client certificate definition contains no data");
-
-        String clientCertificateBase64 = SecretUtils.getNonNullSecretData(secret, "clientCertificate", "X.509 client certificate is missing the clientCertificate entry");
-        String clientCertificate = SecretUtils.requireNonNull(SecretUtils.base64DecodeToString(clientCertificateBase64), "X.509 client certificate has an invalid clientCertificate entry (must be base64 encoded UTF-8)");
-
-        String clientKeySecretBase64 = SecretUtils.getNonNullSecretData(secret, "clientKeySecret", "X.509 client certificate is missing the clientKeySecret entry");
-        String clientKeySecret = SecretUtils.requireNonNull(SecretUtils.base64DecodeToString(clientKeySecretBase64), "X.509 client certificate has an invalid clientKeySecret entry (must be base64 encoded UTF-8)");
-
-        String serverCaCertificateBase64 = SecretUtils.getNonNullSecretData(secret, "serverCaCertificate", "X.509 client certificate is missing the serverCaCertificate entry");
-        String serverCaCertificate = SecretUtils.requireNonNull(SecretUtils.base64DecodeToString(serverCaCertificateBase64), "X.509 client certificate has an invalid serverCaCertificate entry (must be base64 encoded UTF-8)");
-
-        return new DockerServerCredentials(
-                // scope
-                SecretUtils.getCredentialScope(secret),
-                // id
-                SecretUtils.getCredentialId(secret),
-                // description
-                SecretUtils.getCredentialDescription(secret),
-                // clientKeySecret
-                hudson.util.Secret.fromString(clientKeySecret),
-                // clientCertificate
-                clientCertificate,
-                // serverCaCertificate
-                serverCaCertificate);
+    public void validate(DockerServerCredentials credential) throws CredentialsConvertionException {
+        Secret clientKey = credential.getClientKeySecret();
+        if (clientKey != null) {
+            KeyMaterial.checkPrivateKey("X.509 client certificate credential has an invalid clientKeySecret", clientKey.getPlainText(), false);
+        }
+        String clientCertificate = credential.getClientCertificate();
+        if (clientCertificate != null) {
+            KeyMaterial.checkCertificates("X.509 client certificate credential has an invalid clientCertificate", clientCertificate);
+        }
+        String serverCaCertificate = credential.getServerCaCertificate();
+        if (serverCaCertificate != null) {
+            KeyMaterial.checkCertificates("X.509 client certificate credential has an invalid serverCaCertificate", serverCaCertificate);
+        }
     }
 }
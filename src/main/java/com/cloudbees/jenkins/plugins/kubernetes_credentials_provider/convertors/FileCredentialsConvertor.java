@@ -23,42 +23,28 @@
  */
 package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.convertors;
 
-import io.fabric8.kubernetes.api.model.Secret;
 import org.jenkinsci.plugins.plaincredentials.impl.FileCredentialsImpl;
 import org.jenkinsci.plugins.variant.OptionalExtension;
-import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialsConvertionException;
-import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SecretToCredentialConverter;
-import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SecretUtils;
-import com.cloudbees.plugins.credentials.SecretBytes;
-import com.cloudbees.plugins.credentials.impl.UsernamePasswordCredentialsImpl;
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialSchema;
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SchemaSecretToCredentialConverter;
+
+import static com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialSchema.Decoding.BYTES;
+import static com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialSchema.Decoding.UTF8;
 
 /**
- * SecretToCredentialConvertor that converts {@link UsernamePasswordCredentialsImpl}.
+ * SecretToCredentialConvertor that converts {@link FileCredentialsImpl}.
  */
 @OptionalExtension(requirePlugins={"plain-credentials"})
-public class FileCredentialsConvertor extends SecretToCredentialConverter {
-
-    @Override
-    public boolean canConvert(String type) {
-        return "secretFile".equals(type);
-    }
-
-    @Override
-    public FileCredentialsImpl convert(Secret secret) throws CredentialsConvertionException {
-        // check we have some data
-        SecretUtils.requireNonNull(secret.getData(), "secretFile definition contains no data");
-
-        String filenameBase64 = SecretUtils.getNonNullSecretData(secret, "filename", "secretFile credential is missing the filename"); 
-
-        String dataBase64 = SecretUtils.getNonNullSecretData(secret, "data", "secretFile credential is missing the data");
-
-        String filename = SecretUtils.requireNonNull(SecretUtils.base64DecodeToString(filenameBase64), "secretFile credential has an invalid filename (must be base64 encoded UTF-8)");
-
-        byte[] _data = SecretUtils.requireNonNull(SecretUtils.base64Decode(dataBase64), "secretFile credential has an invalid data (must be base64 encoded data)");
+public class FileCredentialsConvertor extends SchemaSecretToCredentialConverter<FileCredentialsImpl> {
 
-        SecretBytes sb = SecretBytes.fromBytes(_data);
-        return new FileCredentialsImpl(SecretUtils.getCredentialScope(secret), SecretUtils.getCredentialId(secret), SecretUtils.getCredentialDescription(secret), filename, sb);
+    private static final CredentialSchema<FileCredentialsImpl> SCHEMA = CredentialSchema.builder("secretFile")
+            .required("filename", UTF8)
+            .required("data", BYTES)
+            .build((context, values) -> new FileCredentialsImpl(context.getScope(), context.getId(), context.getDescription(),
+                    values.getRequiredString("filename"), values.getRequiredSecretBytes("data")));
 
+    public FileCredentialsConvertor() {
+        super(SCHEMA);
     }
 
 }
@@ -23,56 +23,54 @@
  */
 package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.convertors;
 
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialSchema;
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialValidator;
 import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialsConvertionException;
-import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SecretToCredentialConverter;
-import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SecretUtils;
-import io.fabric8.kubernetes.api.model.Secret;
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.KeyMaterial;
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SchemaSecretToCredentialConverter;
 import org.jenkinsci.plugins.github_branch_source.GitHubAppCredentials;
 import org.jenkinsci.plugins.variant.OptionalExtension;
-import java.util.Optional;
+
+import static com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialSchema.Decoding.UTF8;
 
 /**
  * SecretToCredentialConvertor that converts {@link GitHubAppCredentials}.
+ * The private key is validated in the background, GitHub Apps require an unencrypted PKCS#8 key.
  */
 @OptionalExtension(requirePlugins={"github-branch-source"})
-public class GitHubAppCredentialsConvertor extends SecretToCredentialConverter {
-
-    @Override
-    public boolean canConvert(String type) {
-        return "gitHubApp".equals(type);
+public class GitHubAppCredentialsConvertor extends SchemaSecretToCredentialConverter<GitHubAppCredentials>
+        implements CredentialValidator<GitHubAppCredentials> {
+
+    private static final CredentialSchema<GitHubAppCredentials> SCHEMA = CredentialSchema.builder("gitHubApp")
+            .required("appID", UTF8)
+            .required("privateKey", UTF8)
+            .optional("owner", UTF8)
+            .optional("apiUri", UTF8)
+            .build((context, values) -> {
+                hudson.util.Secret privateKeySecret = values.getRequiredSecret("privateKey");
+                GitHubAppCredentials credentials = new GitHubAppCredentials(context.getScope(), context.getId(), context.getDescription(), values.getRequiredString("appID"), privateKeySecret);
+                String owner = values.getString("owner");
+                if (owner != null) {
+                    credentials.setOwner(owner);
+                }
+                String apiUri = values.getString("apiUri");
+                if (apiUri != null) {
+                    credentials.setApiUri(apiUri);
+                }
+                return credentials;
+            });
+
+    public GitHubAppCredentialsConvertor() {
+        super(SCHEMA);
     }
 
     @Override
-    public GitHubAppCredentials convert(Secret secret) throws CredentialsConvertionException {
-        SecretUtils.requireNonNull(secret.getData(), "gitHubApp definition contains no data");
-
-        String appIDBase64 = SecretUtils.getNonNullSecretData(secret, "appID", "gitHubApp credential is missing the appID");
-
-        String privateKeyBase64 = SecretUtils.getNonNullSecretData(secret, "privateKey", "gitHubApp credential is missing the privateKey");
-
-        Optional<String> ownerBase64 = SecretUtils.getOptionalSecretData(secret, "owner", "gitHubApp credential is missing the owner");
-
-        String appID = SecretUtils.requireNonNull(SecretUtils.base64DecodeToString(appIDBase64), "gitHubApp credential has an invalid appID (must be base64 encoded UTF-8)");
-
-        Optional<String> apiUriBase64 = SecretUtils.getOptionalSecretData(secret, "apiUri", "gitHubApp credential is missing the apiUri");
-
-        String privateKey = SecretUtils.requireNonNull(SecretUtils.base64DecodeToString(privateKeyBase64), "gitHubApp credential has an invalid privateKey (must be base64 encoded data)");
-
-        hudson.util.Secret privateKeySecret = hudson.util.Secret.fromString(privateKey);
-
-        GitHubAppCredentials credentials = new GitHubAppCredentials(SecretUtils.getCredentialScope(secret), SecretUtils.getCredentialId(secret), SecretUtils.getCredentialDescription(secret), appID, privateKeySecret);
-
-        if (ownerBase64.isPresent()) {
-            String owner = SecretUtils.requireNonNull(SecretUtils.base64DecodeToString(ownerBase64.get()), "gitHubApp credential has an invalid owner (must be base64 encoded data)");
-            credentials.setOwner(owner);
+    public void validate(GitHubAppCredentials credential) throws CredentialsConvertionException {
+        String what = "gitHubApp credential has an invalid privateKey";
+        String label = KeyMaterial.checkPrivateKey(what, credential.getPrivateKey().getPlainText(), false);
+        if (!"PRIVATE KEY".equals(label)) {
+            throw new CredentialsConvertionException(what + " (must be in PKCS#8 format, found " + label + ")");
         }
-
-        if (apiUriBase64.isPresent()) {
-            String apiUri = SecretUtils.requireNonNull(SecretUtils.base64DecodeToString(apiUriBase64.get()), "gitHubApp credential has an invalid apiUri (must be base64 encoded data)");
-            credentials.setApiUri(apiUri);
-        }
-
-        return credentials;
     }
 
 }
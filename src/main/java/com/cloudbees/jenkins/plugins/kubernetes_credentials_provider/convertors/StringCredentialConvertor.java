@@ -23,35 +23,26 @@
  */
 package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.convertors;
 
-import io.fabric8.kubernetes.api.model.Secret;
 import org.jenkinsci.plugins.plaincredentials.impl.StringCredentialsImpl;
 import org.jenkinsci.plugins.variant.OptionalExtension;
-import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialsConvertionException;
-import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SecretToCredentialConverter;
-import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SecretUtils;
-import com.cloudbees.plugins.credentials.impl.UsernamePasswordCredentialsImpl;
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialSchema;
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SchemaSecretToCredentialConverter;
+
+import static com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialSchema.Decoding.UTF8;
 
 /**
- * SecretToCredentialConvertor that converts {@link UsernamePasswordCredentialsImpl}.
+ * SecretToCredentialConvertor that converts {@link StringCredentialsImpl}.
  */
 @OptionalExtension(requirePlugins={"plain-credentials"})
-public class StringCredentialConvertor extends SecretToCredentialConverter {
-
-    @Override
-    public boolean canConvert(String type) {
-        return "secretText".equals(type);
-    }
-
-    @Override
-    public StringCredentialsImpl convert(Secret secret) throws CredentialsConvertionException {
-        // ensure we have some data
-        SecretUtils.requireNonNull(secret.getData(), "secretText kubernetes definition contains no data");
-
-        String textBase64 = SecretUtils.getNonNullSecretData(secret, "text", "secretText credential is missing the text");
+public class StringCredentialConvertor extends SchemaSecretToCredentialConverter<StringCredentialsImpl> {
 
-        String secretText = SecretUtils.requireNonNull(SecretUtils.base64DecodeToString(textBase64), "secretText credential has an invalid text (must be base64 encoded UTF-8)");
+    private static final CredentialSchema<StringCredentialsImpl> SCHEMA = CredentialSchema.builder("secretText")
+            .required("text", UTF8)
+            .build((context, values) -> new StringCredentialsImpl(context.getScope(), context.getId(), context.getDescription(),
+                    values.getRequiredSecret("text")));
 
-        return new StringCredentialsImpl(SecretUtils.getCredentialScope(secret), SecretUtils.getCredentialId(secret), SecretUtils.getCredentialDescription(secret), hudson.util.Secret.fromString(secretText));
+    public StringCredentialConvertor() {
+        super(SCHEMA);
     }
 
 }
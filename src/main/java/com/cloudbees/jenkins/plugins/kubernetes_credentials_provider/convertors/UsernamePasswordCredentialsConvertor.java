@@ -23,38 +23,27 @@
  */
 package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.convertors;
 
-import io.fabric8.kubernetes.api.model.Secret;
 import hudson.Extension;
-import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialsConvertionException;
-import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SecretToCredentialConverter;
-import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SecretUtils;
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialSchema;
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SchemaSecretToCredentialConverter;
 import com.cloudbees.plugins.credentials.impl.UsernamePasswordCredentialsImpl;
 
+import static com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialSchema.Decoding.UTF8;
+
 /**
  * SecretToCredentialConvertor that converts {@link UsernamePasswordCredentialsImpl}.
  */
 @Extension
-public class UsernamePasswordCredentialsConvertor extends SecretToCredentialConverter {
-
-    @Override
-    public boolean canConvert(String type) {
-        return "usernamePassword".equals(type);
-    }
-
-    @Override
-    public UsernamePasswordCredentialsImpl convert(Secret secret) throws CredentialsConvertionException {
-        SecretUtils.requireNonNull(secret.getData(), "usernamePassword definition contains no data");
-
-        String usernameBase64 = SecretUtils.getNonNullSecretData(secret, "username", "usernamePassword credential is missing the username");
-
-        String passwordBase64 = SecretUtils.getNonNullSecretData(secret, "password", "usernamePassword credential is missing the password");
-
-        String username = SecretUtils.requireNonNull(SecretUtils.base64DecodeToString(usernameBase64), "usernamePassword credential has an invalid username (must be base64 encoded UTF-8)");
-
-        String password = SecretUtils.requireNonNull(SecretUtils.base64DecodeToString(passwordBase64), "usernamePassword credential has an invalid password (must be base64 encoded UTF-8)");
+public class UsernamePasswordCredentialsConvertor extends SchemaSecretToCredentialConverter<UsernamePasswordCredentialsImpl> {
 
-        return new UsernamePasswordCredentialsImpl(SecretUtils.getCredentialScope(secret), SecretUtils.getCredentialId(secret), SecretUtils.getCredentialDescription(secret), username, password);
+    private static final CredentialSchema<UsernamePasswordCredentialsImpl> SCHEMA = CredentialSchema.builder("usernamePassword")
+            .required("username", UTF8)
+            .required("password", UTF8)
+            .build((context, values) -> new UsernamePasswordCredentialsImpl(context.getScope(), context.getId(), context.getDescription(),
+                    values.getRequiredString("username"), values.getRequiredString("password")));
 
+    public UsernamePasswordCredentialsConvertor() {
+        super(SCHEMA);
     }
 
 }
@@ -23,52 +23,41 @@
  */
 package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.convertors;
 
-import java.util.Optional;
-
-import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialsConvertionException;
-import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SecretToCredentialConverter;
-import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SecretUtils;
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialSchema;
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SchemaSecretToCredentialConverter;
 import com.datapipe.jenkins.vault.credentials.VaultGithubTokenCredential;
-import io.fabric8.kubernetes.api.model.Secret;
 import org.jenkinsci.plugins.variant.OptionalExtension;
 
+import static com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialSchema.Decoding.UTF8;
+
 /**
  * SecretToCredentialConvertor that converts {@link com.datapipe.jenkins.vault.credentials.VaultGithubTokenCredential}.
  */
 @OptionalExtension(requirePlugins={"hashicorp-vault-plugin"})
-public class VaultGitHubTokenCredentialsConvertor extends SecretToCredentialConverter {
-
-    @Override
-    public boolean canConvert(String type) {
-        return "vaultGitHubToken".equals(type);
-    }
-
-    @Override
-    public VaultGithubTokenCredential convert(Secret secret) throws CredentialsConvertionException {
-        SecretUtils.requireNonNull(secret.getData(), "vaultGitHubToken definition contains no data");
-
-        String accessTokenBase64 = SecretUtils.getNonNullSecretData(secret, "accessToken", "vaultGitHubToken credential is missing the accessToken");
-        Optional<String> mountPathBase64 = SecretUtils.getOptionalSecretData(secret, "mountPath", "vaultGitHubToken credential is missing the mountPath");
-        Optional<String> namespaceBase64 = SecretUtils.getOptionalSecretData(secret, "namespace", "vaultGitHubToken credential is missing the namespace");
-
-        String accessToken = SecretUtils.requireNonNull(SecretUtils.base64DecodeToString(accessTokenBase64), "vaultGitHubToken credential has an invalid accessToken (must be base64 encoded UTF-8)");
-
-        VaultGithubTokenCredential cred = new VaultGithubTokenCredential(SecretUtils.getCredentialScope(secret),
-                SecretUtils.getCredentialId(secret),
-                SecretUtils.getCredentialDescription(secret),
-                hudson.util.Secret.fromString(accessToken));
-
-        if (mountPathBase64.isPresent()) {
-            String mountPath = SecretUtils.requireNonNull(SecretUtils.base64DecodeToString(mountPathBase64.get()), "vaultGitHubToken credential has an invalid mountPath (must be base64 encoded UTF-8)");
-            cred.setMountPath(mountPath);
-        }
-
-        if (namespaceBase64.isPresent()) {
-            String namespace = SecretUtils.requireNonNull(SecretUtils.base64DecodeToString(namespaceBase64.get()), "vaultGitHubToken credential has an invalid namespace (must be base64 encoded UTF-8)");
-            cred.setNamespace(namespace);
-        }
-
-        return cred;
+public class VaultGitHubTokenCredentialsConvertor extends SchemaSecretToCredentialConverter<VaultGithubTokenCredential> {
+
+    private static final CredentialSchema<VaultGithubTokenCredential> SCHEMA = CredentialSchema.builder("vaultGitHubToken")
+            .required("accessToken", UTF8)
+            .optional("mountPath", UTF8)
+            .optional("namespace", UTF8)
+            .build((context, values) -> {
+                VaultGithubTokenCredential cred = new VaultGithubTokenCredential(context.getScope(),
+                        context.getId(),
+                        context.getDescription(),
+                        values.getRequiredSecret("accessToken"));
+                String mountPath = values.getString("mountPath");
+                if (mountPath != null) {
+                    cred.setMountPath(mountPath);
+                }
+                String namespace = values.getString("namespace");
+                if (namespace != null) {
+                    cred.setNamespace(namespace);
+                }
+                return cred;
+            });
+
+    public VaultGitHubTokenCredentialsConvertor() {
+        super(SCHEMA);
     }
 
 }
@@ -23,37 +23,28 @@
  */
 package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.convertors;
 
-
-import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialsConvertionException;
-import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SecretToCredentialConverter;
-import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SecretUtils;
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialSchema;
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SchemaSecretToCredentialConverter;
 import com.datapipe.jenkins.vault.credentials.VaultTokenCredential;
-import io.fabric8.kubernetes.api.model.Secret;
 import org.jenkinsci.plugins.variant.OptionalExtension;
 
+import static com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialSchema.Decoding.UTF8;
+
 /**
  * SecretToCredentialConvertor that converts {@link com.datapipe.jenkins.vault.credentials.VaultTokenCredential}.
  */
 @OptionalExtension(requirePlugins={"hashicorp-vault-plugin"})
-public class VaultTokenCredentialsConvertor extends SecretToCredentialConverter {
-
-    @Override
-    public boolean canConvert(String type) {
-        return "vaultToken".equals(type);
-    }
-
-    @Override
-    public VaultTokenCredential convert(Secret secret) throws CredentialsConvertionException {
-        SecretUtils.requireNonNull(secret.getData(), "vaultToken definition contains no data");
-
-        String tokenBase64 = SecretUtils.getNonNullSecretData(secret, "token", "vaultToken credential is missing the token");
+public class VaultTokenCredentialsConvertor extends SchemaSecretToCredentialConverter<VaultTokenCredential> {
 
-        String token = SecretUtils.requireNonNull(SecretUtils.base64DecodeToString(tokenBase64), "vaultToken credential has an invalid token (must be base64 encoded UTF-8)");
+    private static final CredentialSchema<VaultTokenCredential> SCHEMA = CredentialSchema.builder("vaultToken")
+            .required("token", UTF8)
+            .build((context, values) -> new VaultTokenCredential(context.getScope(),
+                    context.getId(),
+                    context.getDescription(),
+                    values.getRequiredSecret("token")));
 
-        return new VaultTokenCredential(SecretUtils.getCredentialScope(secret),
-                SecretUtils.getCredentialId(secret),
-                SecretUtils.getCredentialDescription(secret),
-                hudson.util.Secret.fromString(token));
+    public VaultTokenCredentialsConvertor() {
+        super(SCHEMA);
     }
 
 }
@@ -0,0 +1,79 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import jenkins.benchmark.jmh.BenchmarkFinder;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks of the plugin with the allocation profiler, the {@code gc.alloc.rate.norm} of each
+ * benchmark is the number of bytes allocated per operation.
+ * The lookups of {@link CredentialLookupBenchmark} fail the run if they allocate more than their results.
+ * Not run with the tests, use {@code mvn test -Pbenchmark}.
+ */
+public class BenchmarkRunner {
+
+    /** The bytes a lookup may allocate whatever the number of credentials: the list and the lookup event */
+    private static final long LOOKUP_FIXED_BYTES = 1024;
+    /**
+     * The bytes a lookup may allocate per secret: the backing arrays of the list of results, grown up to 1.5 times the
+     * number of results and copied on the way, with uncompressed references.
+     */
+    private static final long LOOKUP_BYTES_PER_SECRET = 40;
+
+    @Test
+    public void runJmhBenchmarks() throws Exception {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .mode(Mode.AverageTime)
+                .timeUnit(TimeUnit.MICROSECONDS)
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .forks(1)
+                .addProfiler(GCProfiler.class)
+                .shouldFailOnError(true)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-report.json");
+        new BenchmarkFinder(getClass()).findBenchmarks(options);
+        Collection<RunResult> results = new Runner(options.build()).run();
+        assertLookupsOnlyAllocateTheirResults(results);
+    }
+
+    private static void assertLookupsOnlyAllocateTheirResults(Collection<RunResult> results) {
+        boolean checked = false;
+        for (RunResult result : results) {
+            String benchmark = result.getParams().getBenchmark();
+            if (!benchmark.startsWith(CredentialLookupBenchmark.class.getName() + ".") || !benchmark.endsWith("Lookup")) {
+                continue;
+            }
+            long secrets = Long.parseLong(result.getParams().getParam("secrets"));
+            double allocated = allocatedBytesPerOperation(result);
+            long budget = LOOKUP_FIXED_BYTES + LOOKUP_BYTES_PER_SECRET * secrets;
+            assertTrue(benchmark + " with " + secrets + " secrets allocated " + allocated + " bytes per lookup, more than " + budget,
+                    allocated <= budget);
+            checked = true;
+        }
+        assertTrue("the allocation of the lookups was not measured", checked);
+    }
+
+    private static double allocatedBytesPerOperation(RunResult result) {
+        for (Map.Entry<String, Result> secondary : result.getSecondaryResults().entrySet()) {
+            // prefixed with a middle dot by the older versions of JMH
+            if (secondary.getKey().endsWith("gc.alloc.rate.norm")) {
+                return secondary.getValue().getScore();
+            }
+        }
+        throw new AssertionError(result.getParams().getBenchmark() + " has no allocation rate, is the GC profiler supported?");
+    }
+}
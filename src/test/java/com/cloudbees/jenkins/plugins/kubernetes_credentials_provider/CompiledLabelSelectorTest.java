@@ -0,0 +1,180 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import io.fabric8.kubernetes.api.model.LabelSelector;
+import io.fabric8.kubernetes.api.model.LabelSelectorRequirement;
+import org.junit.Test;
+
+public class CompiledLabelSelectorTest {
+
+    private static final String[] KEYS = {"app", "env", "jenkins.io/team"};
+    private static final String[] VALUES = {"", "dev", "prod", "a b"};
+
+    @Test
+    public void emptySelectorMatchesEverything() throws LabelSelectorParseException {
+        CompiledLabelSelector selector = LabelSelectorExpressions.compile("");
+        assertTrue(selector.isEmpty());
+        assertTrue(selector.matches(null));
+        assertTrue(selector.matches(Map.of("app", "jenkins")));
+    }
+
+    @Test
+    public void matches() throws LabelSelectorParseException {
+        CompiledLabelSelector selector = LabelSelectorExpressions.compile("app==jenkins,env notin (prod),!legacy,team");
+        assertFalse(selector.isEmpty());
+        assertTrue(selector.matches(Map.of("app", "jenkins", "team", "")));
+        assertTrue(selector.matches(Map.of("app", "jenkins", "team", "a", "env", "dev")));
+        assertFalse(selector.matches(Map.of("app", "jenkins", "team", "a", "env", "prod")));
+        assertFalse(selector.matches(Map.of("app", "jenkins", "team", "a", "legacy", "true")));
+        assertFalse(selector.matches(Map.of("app", "jenkins")));
+        assertFalse(selector.matches(Map.of("app", "other", "team", "a")));
+        assertFalse(selector.matches(null));
+    }
+
+    @Test
+    public void notEqualsMatchesAbsentLabel() throws LabelSelectorParseException {
+        CompiledLabelSelector selector = LabelSelectorExpressions.compile("env!=prod");
+        assertTrue(selector.matches(null));
+        assertTrue(selector.matches(Map.of("env", "dev")));
+        assertFalse(selector.matches(Map.of("env", "prod")));
+    }
+
+    @Test
+    public void repeatedEqualityRequiresEveryValue() throws LabelSelectorParseException {
+        CompiledLabelSelector selector = LabelSelectorExpressions.compile("env=dev,env=prod");
+        assertFalse(selector.matches(Map.of("env", "dev")));
+        assertFalse(selector.matches(Map.of("env", "prod")));
+    }
+
+    @Test
+    public void canonicalExpressionCompilesToTheSameSelector() throws LabelSelectorParseException {
+        CompiledLabelSelector selector = LabelSelectorExpressions.compile("app = jenkins, env in (dev,prod), !legacy, team");
+        assertEquals("app in (jenkins),env in (dev,prod),!legacy,team", selector.toString());
+    }
+
+    @Test
+    public void keyIdentifiesTheRequirements() throws LabelSelectorParseException {
+        assertEquals(LabelSelectorExpressions.compile("team in (b,a), !legacy").getKey(),
+                LabelSelectorExpressions.compile("!legacy, team in (a,b)").getKey());
+        assertNotEquals(LabelSelectorExpressions.compile("team in (\"a,b\")").getKey(),
+                LabelSelectorExpressions.compile("team in (a,b)").getKey());
+        assertNotEquals(CompiledLabelSelector.nothing().getKey(), LabelSelectorExpressions.compile(null).getKey());
+    }
+
+    /**
+     * Generates random selectors and label sets and checks that the in-process matcher agrees with the semantics of
+     * the selector sent to the API server.
+     */
+    @Test
+    public void matcherIsEquivalentToServerSideSelector() throws LabelSelectorParseException {
+        Random random = new Random(20240611L);
+        for (int i = 0; i < 2000; i++) {
+            String expression = randomSelector(random);
+            CompiledLabelSelector selector = LabelSelectorExpressions.compile(expression);
+            for (int j = 0; j < 20; j++) {
+                Map<String, String> labels = randomLabels(random);
+                assertEquals(expression + " on " + labels, serverSideMatches(selector.getLabelSelector(), labels), selector.matches(labels));
+            }
+        }
+    }
+
+    private static String randomSelector(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int requirements = random.nextInt(4);
+        for (int i = 0; i < requirements; i++) {
+            if (i > 0) {
+                sb.append(random.nextBoolean() ? "," : " , ");
+            }
+            String key = KEYS[random.nextInt(KEYS.length)];
+            switch (random.nextInt(7)) {
+                case 0:
+                    sb.append(key);
+                    break;
+                case 1:
+                    sb.append('!').append(key);
+                    break;
+                case 2:
+                    sb.append(key).append('=').append(quote(VALUES[random.nextInt(VALUES.length)]));
+                    break;
+                case 3:
+                    sb.append(key).append(" == ").append(quote(VALUES[random.nextInt(VALUES.length)]));
+                    break;
+                case 4:
+                    sb.append(key).append("!=").append(quote(VALUES[random.nextInt(VALUES.length)]));
+                    break;
+                default:
+                    sb.append(key).append(random.nextBoolean() ? " in (" : " notin (");
+                    int values = 1 + random.nextInt(3);
+                    for (int j = 0; j < values; j++) {
+                        if (j > 0) {
+                            sb.append(", ");
+                        }
+                        sb.append(quote(VALUES[random.nextInt(VALUES.length)]));
+                    }
+                    sb.append(')');
+                    break;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String quote(String value) {
+        return value.isEmpty() || value.contains(" ") ? "\"" + value + "\"" : value;
+    }
+
+    private static Map<String, String> randomLabels(Random random) {
+        Map<String, String> labels = new HashMap<>();
+        for (String key : KEYS) {
+            if (random.nextBoolean()) {
+                labels.put(key, VALUES[random.nextInt(VALUES.length)]);
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * Reference implementation of the {@code metav1.LabelSelector} semantics.
+     */
+    private static boolean serverSideMatches(LabelSelector selector, Map<String, String> labels) {
+        if (selector.getMatchLabels() != null) {
+            for (Map.Entry<String, String> label : selector.getMatchLabels().entrySet()) {
+                if (!label.getValue().equals(labels.get(label.getKey()))) {
+                    return false;
+                }
+            }
+        }
+        if (selector.getMatchExpressions() != null) {
+            for (LabelSelectorRequirement requirement : selector.getMatchExpressions()) {
+                String value = labels.get(requirement.getKey());
+                List<String> values = requirement.getValues();
+                boolean matches;
+                switch (requirement.getOperator()) {
+                    case "Exists":
+                        matches = labels.containsKey(requirement.getKey());
+                        break;
+                    case "DoesNotExist":
+                        matches = !labels.containsKey(requirement.getKey());
+                        break;
+                    case "In":
+                        matches = value != null && values.contains(value);
+                        break;
+                    case "NotIn":
+                        matches = value == null || !values.contains(value);
+                        break;
+                    default:
+                        throw new AssertionError("Unexpected operator " + requirement.getOperator());
+                }
+                if (!matches) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,73 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import hudson.ExtensionList;
+import io.fabric8.kubernetes.api.model.Secret;
+import io.fabric8.kubernetes.api.model.SecretBuilder;
+import jenkins.model.Jenkins;
+import org.junit.Test;
+
+public class ConversionFailuresTest {
+
+    private final SecretToCredentialConverterRegistry registry =
+            new SecretToCredentialConverterRegistry(ExtensionList.create((Jenkins) null, SecretToCredentialConverter.class));
+
+    @Test
+    public void knownUntilResourceVersionChanges() {
+        ConversionFailures failures = new ConversionFailures();
+        assertFalse(failures.isKnown(secret("s1", "1"), registry));
+
+        failures.record(secret("s1", "1"), registry, "usernamePassword", "broken");
+        assertTrue(failures.isKnown(secret("s1", "1"), registry));
+        assertFalse("modified secrets are converted again", failures.isKnown(secret("s1", "2"), registry));
+        assertFalse("other secrets are not affected", failures.isKnown(secret("s2", "1"), registry));
+        SecretToCredentialConverterRegistry other =
+                new SecretToCredentialConverterRegistry(ExtensionList.create((Jenkins) null, SecretToCredentialConverter.class));
+        assertFalse("secrets are converted again when the converters change", failures.isKnown(secret("s1", "1"), other));
+    }
+
+    @Test
+    public void secretsWithoutResourceVersionAreNeverKnown() {
+        ConversionFailures failures = new ConversionFailures();
+        failures.record(secret("s1", null), registry, "usernamePassword", "broken");
+        assertFalse(failures.isKnown(secret("s1", null), registry));
+    }
+
+    @Test
+    public void warningsAreRateLimited() {
+        ConversionFailures failures = new ConversionFailures();
+        assertTrue("first failure is logged", failures.record(secret("s1", "1"), registry, "usernamePassword", "broken"));
+        assertFalse("same failure is not logged again", failures.record(secret("s1", "2"), registry, "usernamePassword", "broken"));
+        assertTrue("a new reason is logged", failures.record(secret("s1", "3"), registry, "usernamePassword", "still broken"));
+        assertThat(failures.getAll(), contains(hasProperty("occurrences", is(3))));
+    }
+
+    @Test
+    public void clearAndRetain() {
+        ConversionFailures failures = new ConversionFailures();
+        failures.record(secret("s1", "1"), registry, "usernamePassword", "broken");
+        failures.record(secret("s2", "1"), registry, "usernamePassword", "broken");
+        failures.record(secret("s3", "1"), registry, null, "no type");
+        assertThat(failures.getAll(), contains(hasProperty("name", is("s1")), hasProperty("name", is("s2")), hasProperty("name", is("s3"))));
+
+        failures.clear("s2");
+        failures.retainAll(Collections.singletonList(secret("s3", "1")));
+        assertThat(failures.getAll(), contains(hasProperty("name", is("s3"))));
+        failures.clear("s3");
+        assertThat(failures.getAll(), empty());
+        assertTrue(failures.isEmpty());
+    }
+
+    private static Secret secret(String name, String resourceVersion) {
+        return new SecretBuilder().withNewMetadata().withName(name).withResourceVersion(resourceVersion).endMetadata().build();
+    }
+}
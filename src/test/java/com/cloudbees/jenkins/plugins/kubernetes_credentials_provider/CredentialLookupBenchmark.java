@@ -0,0 +1,82 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import java.util.List;
+import java.util.Map;
+
+import com.cloudbees.plugins.credentials.CredentialsMatchers;
+import com.cloudbees.plugins.credentials.common.UsernamePasswordCredentials;
+import hudson.ExtensionList;
+import hudson.security.ACL;
+import hudson.util.ListBoxModel;
+import io.fabric8.kubernetes.api.model.Secret;
+import io.fabric8.kubernetes.api.model.SecretBuilder;
+import io.fabric8.kubernetes.client.Watcher;
+import jenkins.benchmark.jmh.JmhBenchmark;
+import jenkins.benchmark.jmh.JmhBenchmarkState;
+import jenkins.model.Jenkins;
+import org.acegisecurity.Authentication;
+import org.acegisecurity.GrantedAuthority;
+import org.acegisecurity.GrantedAuthorityImpl;
+import org.acegisecurity.providers.UsernamePasswordAuthenticationToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * The credential lookups performed by builds, run with {@code -prof gc} by {@link BenchmarkRunner} to check that a
+ * lookup only allocates its results.
+ */
+@JmhBenchmark
+public class CredentialLookupBenchmark {
+
+    public static class ProviderState extends JmhBenchmarkState {
+
+        /** The number of secrets, one in ten is restricted to a user */
+        @Param({"100", "10000"})
+        int secrets;
+
+        KubernetesCredentialProvider provider;
+        Authentication alice;
+
+        @Override
+        public void setup() throws Exception {
+            provider = ExtensionList.lookupSingleton(KubernetesCredentialProvider.class);
+            for (int i = 0; i < secrets; i++) {
+                Map<String, String> annotations = i % 10 == 0
+                        ? Map.of("jenkins.io/credentials-principals", "['user:alice']")
+                        : Map.of();
+                provider.eventReceived(Watcher.Action.ADDED, secret("secret-" + i, annotations));
+            }
+            alice = new UsernamePasswordAuthenticationToken("alice", "",
+                    new GrantedAuthority[] {new GrantedAuthorityImpl("authenticated"), new GrantedAuthorityImpl("developers")});
+        }
+
+        private static Secret secret(String name, Map<String, String> annotations) {
+            return new SecretBuilder()
+                    .withNewMetadata()
+                    .withNamespace("test")
+                    .withName(name)
+                    .addToLabels("jenkins.io/credentials-type", "usernamePassword")
+                    .addToAnnotations(annotations)
+                    .endMetadata()
+                    .addToData("username", "bXlVc2VybmFtZQ==")
+                    .addToData("password", "UGEkJHdvcmQ=")
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public List<UsernamePasswordCredentials> systemLookup(ProviderState state) {
+        return state.provider.getCredentials(UsernamePasswordCredentials.class, Jenkins.get(), ACL.SYSTEM);
+    }
+
+    @Benchmark
+    public List<UsernamePasswordCredentials> userLookup(ProviderState state) {
+        return state.provider.getCredentials(UsernamePasswordCredentials.class, Jenkins.get(), state.alice);
+    }
+
+    @Benchmark
+    public ListBoxModel credentialIds(ProviderState state) {
+        return state.provider.getCredentialIds(UsernamePasswordCredentials.class, Jenkins.get(), ACL.SYSTEM,
+                List.of(), CredentialsMatchers.always());
+    }
+}
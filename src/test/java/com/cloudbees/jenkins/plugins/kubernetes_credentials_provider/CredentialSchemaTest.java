@@ -0,0 +1,150 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.cloudbees.plugins.credentials.impl.UsernamePasswordCredentialsImpl;
+import io.fabric8.kubernetes.api.model.Secret;
+import org.jenkinsci.plugins.plaincredentials.impl.StringCredentialsImpl;
+import io.fabric8.kubernetes.api.model.SecretBuilder;
+import org.junit.Test;
+
+import static com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialSchema.Decoding.BYTES;
+import static com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialSchema.Decoding.UTF8;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class CredentialSchemaTest {
+
+    private static final CredentialSchema<UsernamePasswordCredentialsImpl> SCHEMA = CredentialSchema.builder("test")
+            .named("test thing")
+            .required("username", UTF8)
+            .optional("password", UTF8)
+            .optional("blob", BYTES)
+            .build((context, values) -> {
+                byte[] blob = values.getBytes("blob");
+                if (blob != null) {
+                    assertArrayEquals(new byte[] {0, 1, 2}, blob);
+                }
+                return new UsernamePasswordCredentialsImpl(context.getScope(), context.getId(), context.getDescription(),
+                        values.getRequiredString("username"), values.getString("password", "default"));
+            });
+
+    @Test
+    public void convert() throws CredentialsConvertionException {
+        Secret s = secret().addToData("username", encode("bob")).addToData("password", encode("s3cr3t"))
+                .addToData("blob", Base64.getEncoder().encodeToString(new byte[] {0, 1, 2})).build();
+        UsernamePasswordCredentialsImpl credential = SCHEMA.convert(new SecretConversionContext(s));
+        assertThat(credential.getId(), is("a-secret"));
+        assertThat(credential.getScope(), is(CredentialsScope.GLOBAL));
+        assertThat(credential.getUsername(), is("bob"));
+        assertThat(credential.getPassword().getPlainText(), is("s3cr3t"));
+    }
+
+    @Test
+    public void optionalFieldAbsent() throws CredentialsConvertionException {
+        Secret s = secret().addToData("username", encode("bob")).build();
+        assertThat(SCHEMA.convert(new SecretConversionContext(s)).getPassword().getPlainText(), is("default"));
+    }
+
+    @Test
+    public void mappedField() throws CredentialsConvertionException {
+        Secret s = new SecretBuilder().withNewMetadata().withName("a-secret")
+                .addToAnnotations("jenkins.io/credentials-keybinding-username", "user")
+                .endMetadata()
+                .addToData("user", encode("bob")).build();
+        assertThat(SCHEMA.convert(new SecretConversionContext(s)).getUsername(), is("bob"));
+    }
+
+    @Test
+    public void noData() {
+        Secret s = secret().build();
+        s.setData(null);
+        assertConversionFails(s, "test thing definition contains no data");
+    }
+
+    @Test
+    public void missingRequiredField() {
+        assertConversionFails(secret().addToData("password", encode("s3cr3t")).build(), "test thing credential is missing the username");
+    }
+
+    @Test
+    public void missingMappedField() {
+        Secret s = new SecretBuilder().withNewMetadata().withName("a-secret")
+                .addToAnnotations("jenkins.io/credentials-keybinding-password", "pass")
+                .endMetadata()
+                .addToData("username", encode("bob"))
+                .addToData("password", encode("s3cr3t")).build();
+        assertConversionFails(s, "test thing credential is missing the password (mapped to pass)");
+    }
+
+    @Test
+    public void invalidField() {
+        assertConversionFails(secret().addToData("username", "this_is_invalid_base64!").build(),
+                "test thing credential has an invalid username (must be base64 encoded UTF-8)");
+        assertConversionFails(secret().addToData("username", encode("bob")).addToData("blob", "this_is_invalid_base64!").build(),
+                "test thing credential has an invalid blob (must be base64 encoded data)");
+    }
+
+    @Test
+    public void sharedPayloadsKeepOnlyTheMaterial() throws CredentialsConvertionException {
+        AtomicReference<CredentialSchema.Values> kept = new AtomicReference<>();
+        CredentialSchema<StringCredentialsImpl> schema = CredentialSchema.builder("test")
+                .required("text", UTF8)
+                .build((context, values) -> {
+                    kept.set(values);
+                    return new StringCredentialsImpl(context.getScope(), context.getId(), context.getDescription(), values.getRequiredSecret("text"));
+                });
+        SharedPayloads payloads = new SharedPayloads();
+        Secret s = secret().addToData("text", encode("s3cr3t")).build();
+
+        StringCredentialsImpl first = schema.convert(new SecretConversionContext(s, payloads));
+        StringCredentialsImpl second = schema.convert(new SecretConversionContext(s, payloads));
+        assertThat(first.getSecret(), sameInstance(second.getSecret()));
+        assertThat(payloads.size(), is(1));
+        assertThat("the decoded fields are dropped once the credential is created", kept.get().getString("text"), nullValue());
+    }
+
+    @Test
+    public void decodedBytesAreZeroed() throws CredentialsConvertionException {
+        AtomicReference<byte[]> decoded = new AtomicReference<>();
+        CredentialSchema<StringCredentialsImpl> schema = CredentialSchema.builder("test")
+                .required("data", BYTES)
+                .build((context, values) -> {
+                    decoded.set(values.getRequiredBytes("data"));
+                    assertArrayEquals("s3cr3t".getBytes(StandardCharsets.UTF_8), decoded.get());
+                    return new StringCredentialsImpl(context.getScope(), context.getId(), context.getDescription(), hudson.util.Secret.fromString("unused"));
+                });
+        schema.convert(new SecretConversionContext(secret().addToData("data", encode("s3cr3t")).build()));
+        assertArrayEquals("the plaintext is zeroed once the credential is created", new byte[6], decoded.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void duplicateField() {
+        CredentialSchema.builder("test").required("username", UTF8).optional("username", UTF8)
+                .build((context, values) -> null);
+    }
+
+    private static SecretBuilder secret() {
+        return new SecretBuilder().withNewMetadata().withName("a-secret").endMetadata();
+    }
+
+    private static String encode(String s) {
+        return Base64.getEncoder().encodeToString(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void assertConversionFails(Secret s, String message) {
+        try {
+            SCHEMA.convert(new SecretConversionContext(s));
+            fail("no exception thrown");
+        } catch (CredentialsConvertionException cce) {
+            assertThat(cce.getMessage(), is(message));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+public class CredentialUsageTest {
+
+    private final CredentialUsage usage = new CredentialUsage();
+
+    @Test
+    public void neverUsed() {
+        CredentialUsage.Entry entry = usage.get("a");
+        assertThat(entry.getId(), is("a"));
+        assertThat(entry.getUses(), is(0L));
+        assertThat(entry.getLastUsed(), is(0L));
+        assertThat(entry.getLastUsedDate(), nullValue());
+    }
+
+    @Test
+    public void lastUseTimeIsRelaxed() {
+        usage.used("a", 10_000);
+        usage.used("a", 10_500);
+        assertThat(usage.get("a").getUses(), is(2L));
+        assertThat("within the resolution", usage.get("a").getLastUsed(), is(10_000L));
+        usage.used("a", 11_000);
+        assertThat(usage.get("a").getLastUsed(), is(11_000L));
+    }
+
+    @Test
+    public void removedWithTheCredential() {
+        usage.used("a", 1_000);
+        usage.used("b", 1_000);
+        usage.used("c", 1_000);
+        usage.remove("a");
+        usage.retainAll(Set.of("b"));
+        assertThat(usage.get("a").getUses(), is(0L));
+        assertThat(usage.get("b").getUses(), is(1L));
+        assertThat(usage.get("c").getUses(), is(0L));
+    }
+
+    @Test
+    public void leastUsedFirst() {
+        usage.used("popular", 5_000);
+        usage.used("popular", 5_000);
+        usage.used("stale", 1_000);
+        usage.used("recent", 9_000);
+        List<CredentialUsage.Entry> entries = new ArrayList<>();
+        for (String id : List.of("popular", "recent", "unused", "stale")) {
+            entries.add(usage.get(id));
+        }
+        entries.sort(CredentialUsage.LEAST_USED_FIRST);
+        assertThat(entries.stream().map(CredentialUsage.Entry::getId).collect(Collectors.toList()),
+                contains("unused", "stale", "recent", "popular"));
+    }
+
+    @Test
+    public void concurrentUses() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 4; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    usage.used("a", System.currentTimeMillis());
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS), is(true));
+        assertThat(usage.get("a").getUses(), is(40_000L));
+    }
+}
@@ -0,0 +1,157 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.cloudbees.plugins.credentials.common.IdCredentials;
+import org.junit.Test;
+
+public class CredentialValidationsTest {
+
+    @Test
+    public void validCredential() {
+        KubernetesSourcedCredential credential = credential();
+        new CredentialValidations(Runnable::run, 1000).submit(credential, c -> {});
+        assertThat(credential.getValidation().getStatus(), is(CredentialValidation.Status.VALID));
+        assertThat(credential.getValidation().getMessage(), nullValue());
+        assertThat(credential.getValidation().isFailed(), is(false));
+    }
+
+    @Test
+    public void invalidCredential() {
+        KubernetesSourcedCredential credential = credential();
+        new CredentialValidations(Runnable::run, 1000).submit(credential, c -> {
+            throw new CredentialsConvertionException("bad key");
+        });
+        assertThat(credential.getValidation().getStatus(), is(CredentialValidation.Status.INVALID));
+        assertThat(credential.getValidation().getMessage(), is("bad key"));
+        assertThat(credential.getValidation().isFailed(), is(true));
+    }
+
+    @Test
+    public void validationIsNotBlocking() {
+        List<Runnable> queued = new ArrayList<>();
+        KubernetesSourcedCredential credential = credential();
+        new CredentialValidations(queued::add, 1000).submit(credential, c -> {});
+        assertThat(credential.getValidation().getStatus(), is(CredentialValidation.Status.PENDING));
+        queued.get(0).run();
+        assertThat(credential.getValidation().getStatus(), is(CredentialValidation.Status.VALID));
+    }
+
+    @Test
+    public void validationOverBudgetTimesOut() {
+        KubernetesSourcedCredential credential = credential();
+        new CredentialValidations(Runnable::run, 0).submit(credential, c -> {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            assertThat(credential.getValidation().getStatus(), is(CredentialValidation.Status.TIMED_OUT));
+            assertThat(credential.getValidation().isFailed(), is(true));
+        });
+        assertThat("the outcome is recorded once it completes", credential.getValidation().getStatus(), is(CredentialValidation.Status.VALID));
+    }
+
+    @Test
+    public void saturatedPoolSkipsValidation() {
+        KubernetesSourcedCredential credential = credential();
+        new CredentialValidations(r -> {
+            throw new RejectedExecutionException();
+        }, 1000).submit(credential, c -> {});
+        assertThat(credential.getValidation().getStatus(), is(CredentialValidation.Status.SKIPPED));
+        assertThat(credential.getValidation().getMessage(), containsString("queue"));
+        assertThat(credential.getValidation().isFailed(), is(false));
+    }
+
+    @Test
+    public void failedValidationsAreTracked() {
+        CredentialValidations validations = new CredentialValidations(Runnable::run, 1000);
+        KubernetesSourcedCredential credential = credential();
+        validations.submit(credential, c -> {
+            throw new CredentialsConvertionException("bad key");
+        });
+        assertThat(validations.hasFailures(), is(true));
+        assertThat(validations.getFailures(), hasEntry("s1", credential.getValidation()));
+
+        KubernetesSourcedCredential replacement = credential();
+        validations.forget(replacement);
+        assertThat("only the failure of the same credential is forgotten", validations.hasFailures(), is(true));
+        validations.submit(replacement, c -> {});
+        assertThat("a replaced credential is validated again", validations.hasFailures(), is(false));
+
+        validations.submit(credential, c -> {
+            throw new CredentialsConvertionException("bad key");
+        });
+        validations.forget(credential);
+        assertThat(validations.getFailures().isEmpty(), is(true));
+    }
+
+    @Test
+    public void runningValidationOverBudgetIsReported() {
+        CredentialValidations validations = new CredentialValidations(Runnable::run, 0);
+        KubernetesSourcedCredential credential = credential();
+        validations.submit(credential, c -> {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            assertThat(validations.hasFailures(), is(true));
+            assertThat(validations.getFailures(), hasEntry("s1", credential.getValidation()));
+        });
+        assertThat("a late valid outcome is not a failure", validations.hasFailures(), is(false));
+
+        validations.submit(credential, c -> {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new CredentialsConvertionException("bad key");
+        });
+        assertThat(validations.getFailures(), hasEntry("s1", credential.getValidation()));
+    }
+
+    @Test
+    public void outcomeOfReplacedCredentialsIsNotRecorded() {
+        List<Runnable> queued = new ArrayList<>();
+        CredentialValidations validations = new CredentialValidations(queued::add, 1000);
+        KubernetesSourcedCredential credential = credential();
+        validations.submit(credential, c -> {
+            throw new CredentialsConvertionException("bad key");
+        });
+        KubernetesSourcedCredential replacement = credential();
+        validations.submit(replacement, c -> {});
+        validations.forget(credential);
+        queued.get(0).run();
+        assertThat("the replaced credential is no longer reported", validations.hasFailures(), is(false));
+        queued.get(1).run();
+        assertThat(validations.hasFailures(), is(false));
+
+        KubernetesSourcedCredential removed = credential();
+        validations.submit(removed, c -> {
+            throw new CredentialsConvertionException("bad key");
+        });
+        validations.forget(removed);
+        queued.get(2).run();
+        assertThat("the removed credential is no longer reported", validations.hasFailures(), is(false));
+        assertThat(validations.getFailures().isEmpty(), is(true));
+    }
+
+    private static KubernetesSourcedCredential credential() {
+        IdCredentials credentials = mock(IdCredentials.class);
+        when(credentials.getId()).thenReturn("s1");
+        return new KubernetesSourcedCredential(credentials, Collections.emptySet());
+    }
+}
@@ -0,0 +1,179 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.cloudbees.plugins.credentials.common.IdCredentials;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FolderLabelSelectorsTest {
+
+    private final Map<String, String> selectors = new HashMap<>();
+    private final FolderLabelSelectors folderSelectors = new FolderLabelSelectors(this::resolve);
+    private final KubernetesCredentialIndex index = new KubernetesCredentialIndex();
+
+    private ItemGroup<?> payments;
+    private ItemGroup<?> paymentsProd;
+    private ItemGroup<?> other;
+
+    @Before
+    public void setUp() {
+        payments = folder("payments", null);
+        paymentsProd = folder("payments/prod", payments);
+        other = folder("other", null);
+        index.put(credential("a", Map.of("team", "payments", "env", "prod")));
+        index.put(credential("b", Map.of("team", "payments", "env", "dev")));
+        index.put(credential("c", Map.of("team", "search")));
+        index.put(credential("d", Collections.emptyMap()));
+    }
+
+    @Test
+    public void unrestrictedFolder() {
+        assertThat(folderSelectors.get(other, index), nullValue());
+        assertThat(folderSelectors.get(null, index), nullValue());
+    }
+
+    @Test
+    public void folderSeesMatchingSecrets() {
+        selectors.put("payments", "team=payments");
+        FolderLabelSelectors.View view = folderSelectors.get(payments, index);
+        assertThat(view, notNullValue());
+        assertThat(view.getIds(), containsInAnyOrder("a", "b"));
+    }
+
+    @Test
+    public void selectorsOfAncestorsApply() {
+        selectors.put("payments", "team=payments");
+        selectors.put("payments/prod", "env=prod");
+        assertThat(folderSelectors.get(paymentsProd, index).getIds(), containsInAnyOrder("a"));
+    }
+
+    @Test
+    public void viewsAreUpdatedIncrementally() {
+        selectors.put("payments", "team=payments");
+        FolderLabelSelectors.View view = folderSelectors.get(payments, index);
+
+        KubernetesSourcedCredential moved = credential("c", Map.of("team", "payments"));
+        index.put(moved);
+        folderSelectors.added(moved);
+        assertThat(view.getIds(), containsInAnyOrder("a", "b", "c"));
+
+        KubernetesSourcedCredential relabelled = credential("a", Map.of("team", "search"));
+        index.put(relabelled);
+        folderSelectors.added(relabelled);
+        assertThat(view.getIds(), containsInAnyOrder("b", "c"));
+
+        index.remove("b");
+        folderSelectors.removed("b");
+        assertThat(view.getIds(), containsInAnyOrder("c"));
+        // served from the cache
+        assertThat(folderSelectors.get(payments, index), is(view));
+    }
+
+    @Test
+    public void invalidateDiscardsDescendants() {
+        selectors.put("payments", "team=payments");
+        FolderLabelSelectors.View view = folderSelectors.get(paymentsProd, index);
+        folderSelectors.get(other, index);
+        assertThat(folderSelectors.size(), is(2));
+
+        selectors.put("payments", "team=search");
+        folderSelectors.invalidate("payments");
+        assertThat(folderSelectors.size(), is(1));
+        FolderLabelSelectors.View updated = folderSelectors.get(paymentsProd, index);
+        assertThat(updated.getIds(), containsInAnyOrder("c"));
+        assertThat(view.getIds(), containsInAnyOrder("a", "b"));
+    }
+
+    @Test
+    public void foldersWithTheSameSelectorsShareTheirView() {
+        ItemGroup<?> search = folder("search", null);
+        ItemGroup<?> searchProd = folder("search/prod", search);
+        selectors.put("payments", "team=payments");
+        selectors.put("other", "team=payments");
+        selectors.put("search/prod", "team=payments");
+        FolderLabelSelectors.View view = folderSelectors.get(payments, index);
+        assertThat(folderSelectors.get(other, index), sameInstance(view));
+        assertThat(folderSelectors.get(searchProd, index), sameInstance(view));
+        assertThat(folderSelectors.get(search, index), nullValue());
+        assertThat(folderSelectors.getSelectorCount(), is(1));
+
+        KubernetesSourcedCredential added = credential("e", Map.of("team", "payments"));
+        index.put(added);
+        folderSelectors.added(added);
+        assertThat(view.getIds(), containsInAnyOrder("a", "b", "e"));
+
+        folderSelectors.invalidate("payments");
+        folderSelectors.invalidate("other");
+        assertThat("still used by search/prod", folderSelectors.getSelectorCount(), is(1));
+        folderSelectors.invalidate("search");
+        assertThat("views no longer used are not kept up to date", folderSelectors.getSelectorCount(), is(0));
+    }
+
+    @Test
+    public void quotedValuesAreNotConfusedWithSeveralValues() {
+        index.put(credential("e", Map.of("team", "a")));
+        selectors.put("payments", "team in (\"a,b\")");
+        selectors.put("other", "team in (a,b)");
+        FolderLabelSelectors.View view = folderSelectors.get(payments, index);
+        assertThat(folderSelectors.get(other, index), not(sameInstance(view)));
+        assertThat(view.getIds(), empty());
+        assertThat(folderSelectors.get(other, index).getIds(), containsInAnyOrder("e"));
+    }
+
+    @Test
+    public void newIndexIsReevaluated() {
+        selectors.put("payments", "team=payments");
+        folderSelectors.get(payments, index);
+        KubernetesCredentialIndex relisted = new KubernetesCredentialIndex();
+        assertThat(folderSelectors.get(payments, relisted).getIds(), empty());
+    }
+
+    @Test
+    public void invalidSelectorMatchesNothing() {
+        selectors.put("payments", "team in (payments");
+        assertThat(folderSelectors.get(payments, index).getIds(), empty());
+    }
+
+    private CompiledLabelSelector resolve(ItemGroup<?> itemGroup) {
+        String selector = selectors.get(itemGroup.getFullName());
+        if (selector == null) {
+            return null;
+        }
+        try {
+            return LabelSelectorExpressions.compile(selector);
+        } catch (LabelSelectorParseException e) {
+            return CompiledLabelSelector.nothing();
+        }
+    }
+
+    private static ItemGroup<?> folder(String fullName, ItemGroup<?> parent) {
+        ItemGroup<?> folder = mock(ItemGroup.class, withSettings().extraInterfaces(Item.class).lenient());
+        when(folder.getFullName()).thenReturn(fullName);
+        when(((Item) folder).getParent()).thenReturn((ItemGroup) parent);
+        return folder;
+    }
+
+    private static KubernetesSourcedCredential credential(String id, Map<String, String> labels) {
+        IdCredentials credentials = mock(IdCredentials.class);
+        when(credentials.getId()).thenReturn(id);
+        return new KubernetesSourcedCredential(credentials, Collections.emptySet(), Collections.emptySet(),
+                Collections.emptySet(), null, new CredentialValidation(), labels, null);
+    }
+}
@@ -0,0 +1,65 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.Set;
+
+import org.junit.Test;
+
+public class ItemPathRelocationsTest {
+
+    private final ItemPathRelocations relocations = new ItemPathRelocations();
+
+    @Test
+    public void resolvesMovedItemsAndTheirDescendants() {
+        relocations.record("team-a", "team-b");
+        assertThat(relocations.resolve("team-a"), is("team-b"));
+        assertThat(relocations.resolve("team-a/job"), is("team-b/job"));
+        assertThat(relocations.resolve("team-ab"), nullValue());
+    }
+
+    @Test
+    public void successiveMovesResolveInOneStep() {
+        relocations.record("team-a", "team-b");
+        relocations.record("team-b", "team-c");
+        assertThat(relocations.resolve("team-a"), is("team-c"));
+        assertThat(relocations.resolve("team-b"), is("team-c"));
+    }
+
+    @Test
+    public void createdItemsEndTheRelocation() {
+        relocations.record("team-a", "team-b");
+        relocations.created("team-a");
+        assertThat(relocations.resolve("team-a"), nullValue());
+        assertThat(relocations.resolve("team-a/job"), nullValue());
+    }
+
+    @Test
+    public void deletedItemsEndTheRelocation() {
+        relocations.record("team-a", "team-b");
+        relocations.forget("team-b");
+        assertThat(relocations.resolve("team-a"), nullValue());
+    }
+
+    @Test
+    public void oldestRelocationsAreForgottenFirst() {
+        for (int i = 0; i < ItemPathRelocations.MAX_RELOCATIONS + 10; i++) {
+            relocations.record("job-" + i, "moved-" + i);
+        }
+        assertThat(relocations.size(), is(ItemPathRelocations.MAX_RELOCATIONS));
+        assertThat(relocations.resolve("job-0"), nullValue());
+        assertThat(relocations.resolve("job-10"), is("moved-10"));
+    }
+
+    @Test
+    public void relocateOnlyCopiesAffectedPaths() {
+        Set<String> unaffected = Set.of("other", "team-ab");
+        assertThat(ItemPathRelocations.relocate(unaffected, "team-a", "team-b"), sameInstance(unaffected));
+        assertThat(ItemPathRelocations.relocate(Set.of("team-a/job", "other"), "team-a", "team-b"),
+                containsInAnyOrder("team-b/job", "other"));
+    }
+}
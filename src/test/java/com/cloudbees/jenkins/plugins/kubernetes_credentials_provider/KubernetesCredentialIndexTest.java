@@ -0,0 +1,68 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.anEmptyMap;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import com.cloudbees.plugins.credentials.common.IdCredentials;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import org.junit.Test;
+
+public class KubernetesCredentialIndexTest {
+
+    private final KubernetesCredentialIndex index = new KubernetesCredentialIndex();
+    private final SharedPayloads payloads = new SharedPayloads();
+
+    @Test
+    public void countsByType() {
+        index.put(credential("a", "secretText", "x"));
+        index.put(credential("b", "secretText", "y"));
+        index.put(credential("c", "usernamePassword", "z"));
+        assertThat(index.getCountsByType(), is(Map.of("secretText", 2, "usernamePassword", 1)));
+
+        // replaced with another type
+        index.put(credential("b", "usernamePassword", "y"));
+        assertThat(index.getCountsByType(), is(Map.of("secretText", 1, "usernamePassword", 2)));
+
+        index.remove("a");
+        index.remove("b");
+        index.remove("c");
+        assertThat(index.getCountsByType(), anEmptyMap());
+    }
+
+    @Test
+    public void largestPayloadsFirst() {
+        index.put(credential("small", "secretText", "1"));
+        index.put(credential("large", "secretText", "1234567890"));
+        index.put(credential("medium", "secretText", "12345"));
+        index.put(credential("none", "secretText", null));
+        assertThat(ids(2), contains("large", "medium"));
+
+        index.put(credential("small", "secretText", "1234567890123"));
+        assertThat(ids(10), contains("small", "large", "medium"));
+
+        index.remove("large");
+        assertThat(ids(10), contains("small", "medium"));
+    }
+
+    private List<String> ids(int limit) {
+        return index.getLargest(limit).stream().map(KubernetesSourcedCredential::getId).collect(Collectors.toList());
+    }
+
+    private KubernetesSourcedCredential credential(String id, String type, @CheckForNull String text) {
+        IdCredentials credentials = mock(IdCredentials.class);
+        when(credentials.getId()).thenReturn(id);
+        SharedPayloads.Payload payload = text == null ? null : payloads.acquire(type, new String[] {"text"}, new Object[] {text});
+        return new KubernetesSourcedCredential(credentials, Collections.emptySet(), Collections.emptySet(),
+                Collections.emptySet(), payload, new CredentialValidation(),
+                Map.of(SecretUtils.JENKINS_IO_CREDENTIALS_TYPE_LABEL, type), null);
+    }
+}
@@ -0,0 +1,101 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.is;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.convertors.CertificateCredentialsConvertor;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.fabric8.kubernetes.client.Watcher;
+import org.junit.Test;
+
+public class KubernetesCredentialProviderMetricsTest {
+
+    private final MetricRegistry registry = new MetricRegistry();
+    private final KubernetesCredentialProviderMetrics metrics = new KubernetesCredentialProviderMetrics(() -> registry);
+
+    @Test
+    public void noopIsDisabled() {
+        assertThat(ProviderMetrics.NOOP.isEnabled(), is(false));
+        assertThat(metrics.isEnabled(), is(true));
+    }
+
+    @Test
+    public void eventsAreCountedByAction() {
+        Map<String, Metric> set = metrics.getMetricSet().getMetrics();
+        assertThat(((Gauge<?>) set.get(name("events", "lastAgeMillis"))).getValue(), is(-1L));
+
+        metrics.eventReceived(Watcher.Action.ADDED);
+        metrics.eventReceived(Watcher.Action.ADDED);
+        metrics.eventReceived(Watcher.Action.DELETED);
+
+        assertThat(((Counter) set.get(name("events", "added"))).getCount(), is(2L));
+        assertThat(((Counter) set.get(name("events", "deleted"))).getCount(), is(1L));
+        assertThat(((Counter) set.get(name("events", "modified"))).getCount(), is(0L));
+        assertThat((Long) ((Gauge<?>) set.get(name("events", "lastAgeMillis"))).getValue(), greaterThanOrEqualTo(0L));
+    }
+
+    @Test
+    public void conversionsAreRecordedByType() {
+        metrics.converted("usernamePassword", TimeUnit.MILLISECONDS.toNanos(3));
+        metrics.converted("usernamePassword", TimeUnit.MILLISECONDS.toNanos(5));
+        metrics.conversionFailed("secretFile");
+
+        Timer timer = registry.getTimers().get(name("conversion", "usernamePassword", "duration"));
+        assertThat(timer.getCount(), is(2L));
+        assertThat(registry.getGauges(), hasKey(name("credentials", "usernamePassword")));
+        assertThat(registry.getCounters().get(name("conversion", "secretFile", "failures")).getCount(), is(1L));
+        assertThat(((Counter) metrics.getMetricSet().getMetrics().get(name("conversion", "failures"))).getCount(), is(1L));
+    }
+
+    @Test
+    public void lookupsAndReconnects() {
+        metrics.credentialsLookedUp(TimeUnit.MICROSECONDS.toNanos(40), 12);
+        metrics.reconnecting();
+
+        Map<String, Metric> set = metrics.getMetricSet().getMetrics();
+        assertThat(((Timer) set.get(name("lookup", "duration"))).getCount(), is(1L));
+        assertThat(((Histogram) set.get(name("lookup", "size"))).getSnapshot().getMax(), is(12L));
+        assertThat(((Counter) set.get(name("reconnects"))).getCount(), is(1L));
+    }
+
+    @Test
+    public void propagationLagByAction() {
+        metrics.propagated(Watcher.Action.MODIFIED, 1_500);
+        metrics.propagated(Watcher.Action.MODIFIED, 2_500);
+
+        Map<String, Metric> set = metrics.getMetricSet().getMetrics();
+        assertThat(((Histogram) set.get(name("propagation", "modified", "lagMillis"))).getSnapshot().getMax(), is(2_500L));
+        assertThat(((Histogram) set.get(name("propagation", "added", "lagMillis"))).getCount(), is(0L));
+    }
+
+    @Test
+    public void storeCacheGauges() {
+        Map<String, Metric> set = metrics.getMetricSet().getMetrics();
+        assertThat(set, hasKey(name("storeCache", "size")));
+        assertThat(set, hasKey(name("storeCache", "hitRate")));
+        assertThat(set, hasKey(name("storeCache", "evictions")));
+    }
+
+    @Test
+    public void keyStoreCacheGauges() {
+        Map<String, Metric> set = metrics.getMetricSet().getMetrics();
+        assertThat(((Gauge<?>) set.get(name("keyStoreCache", "hits"))).getValue(), is(CertificateCredentialsConvertor.getKeyStoreCacheStats().hitCount()));
+        assertThat(((Gauge<?>) set.get(name("keyStoreCache", "misses"))).getValue(), is(CertificateCredentialsConvertor.getKeyStoreCacheStats().missCount()));
+        assertThat(set, hasKey(name("keyStoreCache", "loadTimeMillis")));
+        assertThat(set, hasKey(name("keyStoreCache", "size")));
+    }
+
+    private static String name(String... names) {
+        return MetricRegistry.name(KubernetesCredentialProviderMetrics.PREFIX, names);
+    }
+}
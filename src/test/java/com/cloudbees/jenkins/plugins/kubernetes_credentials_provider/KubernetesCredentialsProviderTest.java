@@ -1,8 +1,17 @@
 package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
 
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasProperty;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.mock;
@@ -10,6 +19,8 @@ import static org.mockito.Mockito.when;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
 import io.fabric8.kubernetes.client.WatcherException;
 import java.io.IOException;
 import java.util.Collections;
@@ -20,22 +31,37 @@ import java.util.Map;
 import java.util.Locale;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.convertors.StringCredentialConvertor;
 import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.convertors.UsernamePasswordCredentialsConvertor;
+import com.cloudbees.plugins.credentials.Credentials;
+import com.cloudbees.plugins.credentials.CredentialsMatchers;
+import com.cloudbees.plugins.credentials.CredentialsProvider;
 import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.cloudbees.plugins.credentials.CredentialsStore;
+import com.cloudbees.plugins.credentials.common.IdCredentials;
+import com.cloudbees.plugins.credentials.common.StandardCertificateCredentials;
 import com.cloudbees.plugins.credentials.common.UsernamePasswordCredentials;
+import com.cloudbees.plugins.credentials.domains.Domain;
+import org.jenkinsci.plugins.plaincredentials.StringCredentials;
 import com.cloudbees.plugins.credentials.impl.UsernamePasswordCredentialsImpl;
 import hudson.ExtensionList;
 import hudson.model.AdministrativeMonitor;
 import hudson.model.Item;
 import hudson.model.ItemGroup;
 import hudson.security.ACL;
+import hudson.security.AccessControlled;
+import hudson.util.ListBoxModel;
 import io.fabric8.kubernetes.api.model.*;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.server.mock.KubernetesServer;
 import jenkins.model.Jenkins;
 import jenkins.util.Timer;
 import okhttp3.mockwebserver.RecordedRequest;
+import org.acegisecurity.Authentication;
+import org.acegisecurity.GrantedAuthority;
+import org.acegisecurity.GrantedAuthorityImpl;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -64,7 +90,7 @@ public class KubernetesCredentialsProviderTest {
         ExtensionList<AdministrativeMonitor> monitors = ExtensionList.create((Jenkins) null, AdministrativeMonitor.class);
         // mocked to validate start watching for secrets
         ExtensionList<SecretToCredentialConverter> converters = ExtensionList.create((Jenkins) null, SecretToCredentialConverter.class);
-        converters.addAll(Collections.singleton(new UsernamePasswordCredentialsConvertor()));
+        converters.addAll(List.of(new UsernamePasswordCredentialsConvertor(), new StringCredentialConvertor()));
         extensionList.when(() -> ExtensionList.lookup(AdministrativeMonitor.class)).thenReturn(monitors);
         extensionList.when(() -> ExtensionList.lookup(SecretToCredentialConverter.class)).thenReturn(converters);
         timer.when(Timer::get).thenReturn(jenkinsTimer);
@@ -85,6 +111,32 @@ public class KubernetesCredentialsProviderTest {
                 .andReturn(200, null).always();
     }
 
+    @Test
+    public void restartingTheWatchClosesThePreviousOne() {
+        defaultMockKubernetesResponses();
+        List<Watch> watches = new LinkedList<>();
+        KubernetesCredentialProvider provider = new MockedKubernetesCredentialProvider() {
+            @Override
+            Watch watchSecrets(KubernetesClient client, LabelSelector selector, String resourceVersion) {
+                Watch watch = mock(Watch.class);
+                watches.add(watch);
+                return watch;
+            }
+        };
+        provider.startWatchingForSecrets();
+        provider.onClose(new WatcherException("connection lost"));
+        assertEquals(2, watches.size());
+        verify(watches.get(0)).close();
+        verify(watches.get(1), never()).close();
+
+        provider.startWatchingForSecrets();
+        assertEquals(3, watches.size());
+        verify(watches.get(1)).close();
+
+        provider.stopWatchingForSecrets();
+        verify(watches.get(2)).close();
+    }
+
     @Test
     public void startWatchingForSecrets_Scoped() throws IOException {
         Map<String, String> s4Annotations = new HashMap<>();
@@ -111,6 +163,51 @@ public class KubernetesCredentialsProviderTest {
         assertTrue("secret s4 exists", credentials.stream().anyMatch(c -> "s4".equals(((UsernamePasswordCredentialsImpl) c).getId())));
     }
 
+    @Test
+    public void diagnostics() {
+        Map<String, String> s4Annotations = new HashMap<>();
+        s4Annotations.put(SecretUtils.JENKINS_IO_CREDENTIALS_ITEM_GROUP_ANNOTATION, "['my-item-group']");
+        Secret s4 = createSecret("s4", Map.of(), s4Annotations);
+
+        server.expect().withPath("/api/v1/namespaces/test/secrets?labelSelector=jenkins.io%2Fcredentials-type")
+                .andReturn(200, new SecretListBuilder()
+                        .withNewMetadata()
+                        .withResourceVersion("7")
+                        .endMetadata()
+                        .addToItems(s4)
+                        .build())
+                .once();
+        server.expect().withPath("/api/v1/namespaces/test/secrets?labelSelector=jenkins.io%2Fcredentials-type&resourceVersion=7&allowWatchBookmarks=true&watch=true")
+                .andUpgradeToWebSocket()
+                    .open()
+                    .done()
+                .once();
+
+        KubernetesCredentialProvider provider = new MockedKubernetesCredentialProvider();
+        assertThat(provider.getSyncStatus().getWatchState(), is(SyncStatus.WatchState.NOT_STARTED));
+        provider.startWatchingForSecrets();
+
+        SyncStatus status = provider.getSyncStatus();
+        assertThat(status.getWatchState(), is(SyncStatus.WatchState.WATCHING));
+        assertThat(status.getResourceVersion(), is("7"));
+        assertThat(status.getListedSecrets(), is(1));
+        assertThat(status.getLastListed(), notNullValue());
+        assertThat(provider.getCredentialCounts(), is(Map.of("usernamePassword", 1)));
+        assertThat(provider.getLargestCredentials(10).get(0).getPayloadSize(), greaterThan(0L));
+
+        ItemGroup group = mock(ItemGroup.class);
+        when(group.getFullName()).thenReturn("my-item-group");
+        provider.getCredentials(UsernamePasswordCredentials.class, group, ACL.SYSTEM);
+        provider.getCredentials(UsernamePasswordCredentials.class, group, ACL.SYSTEM);
+        LookupHotSpots.HotSpot hotSpot = provider.getLookupHotSpots(1).get(0);
+        assertThat(hotSpot.getContext(), is("my-item-group"));
+        assertThat(hotSpot.getLookups(), is(2L));
+        assertThat(hotSpot.getScanned(), is(2L));
+
+        provider.stopWatchingForSecrets();
+        assertThat(status.getWatchState(), is(SyncStatus.WatchState.STOPPED));
+    }
+
     @Test
     public void startWatchingForSecrets() {
         Secret s1 = createSecret("s1", (CredentialsScope) null);
@@ -199,6 +296,446 @@ public class KubernetesCredentialsProviderTest {
 
     }
 
+    @Test
+    public void getCredentialIdsAppliesMatcher() {
+        Secret s1 = createSecret("s1", CredentialsScope.GLOBAL);
+        Secret s2 = createSecret("s2", CredentialsScope.SYSTEM);
+        Secret s3 = createSecret("s3", CredentialsScope.GLOBAL);
+
+        server.expect().withPath("/api/v1/namespaces/test/secrets?labelSelector=jenkins.io%2Fcredentials-type")
+                .andReturn(200, new SecretListBuilder()
+                        .withNewMetadata()
+                        .withResourceVersion("1")
+                        .endMetadata()
+                        .addToItems(s1, s2, s3)
+                        .build())
+                .once();
+
+        KubernetesCredentialProvider provider = new MockedKubernetesCredentialProvider();
+        provider.startWatchingForSecrets();
+
+        ListBoxModel ids = provider.getCredentialIds(UsernamePasswordCredentials.class, (ItemGroup) null, ACL.SYSTEM,
+                Collections.emptyList(), CredentialsMatchers.always());
+        assertThat("system scoped credentials (s2) are *not* listed", values(ids), containsInAnyOrder("s1", "s3"));
+
+        ids = provider.getCredentialIds(UsernamePasswordCredentials.class, mock(Jenkins.class), ACL.SYSTEM,
+                Collections.emptyList(), CredentialsMatchers.withId("s2"));
+        assertThat("only the matching credential is listed", values(ids), contains("s2"));
+
+        ids = provider.getCredentialIds(UsernamePasswordCredentials.class, mock(Item.class), ACL.SYSTEM,
+                Collections.emptyList(), CredentialsMatchers.withId("s2"));
+        assertThat("items do not have access to system scoped credentials (s2)", values(ids), is(empty()));
+    }
+
+    @Test
+    public void getCredentialById() {
+        Secret s1 = createSecret("s1", CredentialsScope.GLOBAL);
+        Secret s2 = createSecret("s2", CredentialsScope.SYSTEM);
+        Map<String, String> s3Annotations = new HashMap<>();
+        s3Annotations.put(SecretUtils.JENKINS_IO_CREDENTIALS_ITEM_GROUP_ANNOTATION, "['my-item-group']");
+        Secret s3 = createSecret("s3", Map.of(), s3Annotations);
+
+        server.expect().withPath("/api/v1/namespaces/test/secrets?labelSelector=jenkins.io%2Fcredentials-type")
+                .andReturn(200, new SecretListBuilder()
+                        .withNewMetadata()
+                        .withResourceVersion("1")
+                        .endMetadata()
+                        .addToItems(s1, s2, s3)
+                        .build())
+                .once();
+
+        KubernetesCredentialProvider provider = new MockedKubernetesCredentialProvider();
+        provider.startWatchingForSecrets();
+
+        ItemGroup group = mock(ItemGroup.class);
+        when(group.getFullName()).thenReturn("my-item-group");
+
+        assertThat(provider.getCredentialById("s1", UsernamePasswordCredentials.class, (ItemGroup) null, ACL.SYSTEM), hasProperty("id", is("s1")));
+        assertThat("unknown id", provider.getCredentialById("missing", UsernamePasswordCredentials.class, (ItemGroup) null, ACL.SYSTEM), nullValue());
+        assertThat("wrong type", provider.getCredentialById("s1", StandardCertificateCredentials.class, (ItemGroup) null, ACL.SYSTEM), nullValue());
+        assertThat("system scope outside of Jenkins", provider.getCredentialById("s2", UsernamePasswordCredentials.class, mock(Item.class), ACL.SYSTEM), nullValue());
+        assertThat("system scope in Jenkins", provider.getCredentialById("s2", UsernamePasswordCredentials.class, mock(Jenkins.class), ACL.SYSTEM), hasProperty("id", is("s2")));
+        assertThat("folder scoped in other folder", provider.getCredentialById("s3", UsernamePasswordCredentials.class, mock(ItemGroup.class), ACL.SYSTEM), nullValue());
+        assertThat("folder scoped in folder", provider.getCredentialById("s3", UsernamePasswordCredentials.class, group, ACL.SYSTEM), hasProperty("id", is("s3")));
+    }
+
+    @Test
+    public void principalScopedCredentials() {
+        Secret s1 = createSecret("s1", CredentialsScope.GLOBAL);
+        Secret s2 = createSecret("s2", Map.of(), Map.of(SecretUtils.JENKINS_IO_CREDENTIALS_PRINCIPALS_ANNOTATION, "['user:alice']"));
+        Secret s3 = createSecret("s3", Map.of(), Map.of(SecretUtils.JENKINS_IO_CREDENTIALS_PRINCIPALS_ANNOTATION, "['user:bob', 'group:devs']"));
+
+        server.expect().withPath("/api/v1/namespaces/test/secrets?labelSelector=jenkins.io%2Fcredentials-type")
+                .andReturn(200, new SecretListBuilder()
+                        .withNewMetadata()
+                        .withResourceVersion("1")
+                        .endMetadata()
+                        .addToItems(s1, s2, s3)
+                        .build())
+                .once();
+
+        KubernetesCredentialProvider provider = new MockedKubernetesCredentialProvider();
+        provider.startWatchingForSecrets();
+
+        Authentication alice = mock(Authentication.class);
+        when(alice.getName()).thenReturn("alice");
+        when(alice.getAuthorities()).thenReturn(new GrantedAuthority[] {new GrantedAuthorityImpl("devs")});
+
+        List<UsernamePasswordCredentials> credentials;
+
+        credentials = provider.getCredentials(UsernamePasswordCredentials.class, (ItemGroup) null, ACL.SYSTEM);
+        assertThat("principal restricted credentials are not available to the system", credentials,
+                containsInAnyOrder(hasProperty("id", is("s1"))));
+
+        credentials = provider.getCredentials(UsernamePasswordCredentials.class, (ItemGroup) null, alice);
+        assertThat("credentials restricted to the user or one of its groups are available", credentials,
+                containsInAnyOrder(hasProperty("id", is("s2")), hasProperty("id", is("s3"))));
+
+        assertThat(provider.getCredentialById("s3", UsernamePasswordCredentials.class, (ItemGroup) null, alice), hasProperty("id", is("s3")));
+        assertThat(provider.getCredentialById("s1", UsernamePasswordCredentials.class, (ItemGroup) null, alice), nullValue());
+        assertThat(provider.getCredentialById("s2", UsernamePasswordCredentials.class, (ItemGroup) null, ACL.SYSTEM), nullValue());
+    }
+
+    @Test
+    public void principalsAreQualifiedAndComparedWithTheIdStrategy() {
+        Secret admins = createSecret("admins-only", Map.of(), Map.of(SecretUtils.JENKINS_IO_CREDENTIALS_PRINCIPALS_ANNOTATION, "['group:admins']"));
+        Secret alice = createSecret("alice-only", Map.of(), Map.of(SecretUtils.JENKINS_IO_CREDENTIALS_PRINCIPALS_ANNOTATION, "['user:Alice']"));
+        Secret unqualified = createSecret("unqualified", Map.of(), Map.of(SecretUtils.JENKINS_IO_CREDENTIALS_PRINCIPALS_ANNOTATION, "['alice']"));
+
+        server.expect().withPath("/api/v1/namespaces/test/secrets?labelSelector=jenkins.io%2Fcredentials-type")
+                .andReturn(200, new SecretListBuilder()
+                        .withNewMetadata()
+                        .withResourceVersion("1")
+                        .endMetadata()
+                        .addToItems(admins, alice, unqualified)
+                        .build())
+                .once();
+
+        KubernetesCredentialProvider provider = new MockedKubernetesCredentialProvider();
+        provider.startWatchingForSecrets();
+
+        Authentication userNamedAdmins = mock(Authentication.class);
+        when(userNamedAdmins.getName()).thenReturn("admins");
+        when(userNamedAdmins.getAuthorities()).thenReturn(new GrantedAuthority[0]);
+        assertThat("a user named like a group does not get the credentials of the group",
+                provider.getCredentials(UsernamePasswordCredentials.class, (ItemGroup) null, userNamedAdmins), empty());
+
+        Authentication admin = mock(Authentication.class);
+        when(admin.getName()).thenReturn("bob");
+        when(admin.getAuthorities()).thenReturn(new GrantedAuthority[] {new GrantedAuthorityImpl("ADMINS")});
+        assertThat("group names are compared with the group ID strategy",
+                provider.getCredentials(UsernamePasswordCredentials.class, (ItemGroup) null, admin),
+                contains(hasProperty("id", is("admins-only"))));
+
+        Authentication lowerCaseAlice = mock(Authentication.class);
+        when(lowerCaseAlice.getName()).thenReturn("alice");
+        when(lowerCaseAlice.getAuthorities()).thenReturn(new GrantedAuthority[] {new GrantedAuthorityImpl("alice")});
+        assertThat("user IDs are compared with the user ID strategy",
+                provider.getCredentials(UsernamePasswordCredentials.class, (ItemGroup) null, lowerCaseAlice),
+                contains(hasProperty("id", is("alice-only"))));
+
+        assertThat("principals without user: or group: are rejected", provider.getConversionFailures(),
+                contains(hasProperty("name", is("unqualified"))));
+    }
+
+    @Test
+    public void itemScopedCredentials() {
+        Secret s1 = createSecret("s1", CredentialsScope.GLOBAL);
+        Secret s2 = createSecret("s2", Map.of(), Map.of(SecretUtils.JENKINS_IO_CREDENTIALS_ITEMS_ANNOTATION, "['folder/job-a']"));
+
+        server.expect().withPath("/api/v1/namespaces/test/secrets?labelSelector=jenkins.io%2Fcredentials-type")
+                .andReturn(200, new SecretListBuilder()
+                        .withNewMetadata()
+                        .withResourceVersion("1")
+                        .endMetadata()
+                        .addToItems(s1, s2)
+                        .build())
+                .once();
+
+        KubernetesCredentialProvider provider = new MockedKubernetesCredentialProvider();
+        provider.startWatchingForSecrets();
+
+        Item jobA = mock(Item.class);
+        when(jobA.getFullName()).thenReturn("folder/job-a");
+        Item jobB = mock(Item.class);
+        when(jobB.getFullName()).thenReturn("folder/job-b");
+
+        List<UsernamePasswordCredentials> credentials;
+
+        credentials = provider.getCredentials(UsernamePasswordCredentials.class, jobA, ACL.SYSTEM);
+        assertThat("item scoped credentials are available to the item", credentials,
+                containsInAnyOrder(hasProperty("id", is("s1")), hasProperty("id", is("s2"))));
+
+        credentials = provider.getCredentials(UsernamePasswordCredentials.class, jobB, ACL.SYSTEM);
+        assertThat("item scoped credentials are not available to other items", credentials,
+                containsInAnyOrder(hasProperty("id", is("s1"))));
+
+        credentials = provider.getCredentials(UsernamePasswordCredentials.class, (ItemGroup) null, ACL.SYSTEM);
+        assertThat("item scoped credentials are not available to item groups", credentials,
+                containsInAnyOrder(hasProperty("id", is("s1"))));
+    }
+
+    @Test
+    public void itemScopedCredentialsFollowMovedItems() {
+        Secret s1 = createSecret("s1", Map.of(), Map.of(SecretUtils.JENKINS_IO_CREDENTIALS_ITEMS_ANNOTATION, "['folder/job-a']"));
+
+        server.expect().withPath("/api/v1/namespaces/test/secrets?labelSelector=jenkins.io%2Fcredentials-type")
+                .andReturn(200, new SecretListBuilder()
+                        .withNewMetadata()
+                        .withResourceVersion("1")
+                        .endMetadata()
+                        .addToItems(s1)
+                        .build())
+                .once();
+
+        KubernetesCredentialProvider provider = new MockedKubernetesCredentialProvider();
+        provider.startWatchingForSecrets();
+
+        Item jobA = mock(Item.class);
+        when(jobA.getFullName()).thenReturn("renamed/job-a");
+
+        assertThat("credentials are not available before the move", provider.getCredentials(UsernamePasswordCredentials.class, jobA, ACL.SYSTEM), empty());
+
+        provider.onItemLocationChanged("folder", "renamed");
+        assertThat("credentials follow the moved folder", provider.getCredentials(UsernamePasswordCredentials.class, jobA, ACL.SYSTEM),
+                contains(hasProperty("id", is("s1"))));
+        assertThat(provider.getCredentialIndex().getIdsForItem("folder/job-a"), empty());
+
+        provider.eventReceived(Watcher.Action.MODIFIED, s1);
+        assertThat("secrets converted after the move are not redirected", provider.getCredentials(UsernamePasswordCredentials.class, jobA, ACL.SYSTEM), empty());
+        assertThat(provider.getCredentialIndex().getIdsForItem("folder/job-a"), contains("s1"));
+    }
+
+    @Test
+    public void itemCreatedAtThePreviousLocationGetsTheCredentials() {
+        KubernetesCredentialProvider provider = new MockedKubernetesCredentialProvider();
+        provider.eventReceived(Watcher.Action.ADDED, createSecret("s1", Map.of(), Map.of(SecretUtils.JENKINS_IO_CREDENTIALS_ITEM_GROUP_ANNOTATION, "['team-a']")));
+        ItemGroup<?> teamA = mock(ItemGroup.class);
+        when(teamA.getFullName()).thenReturn("team-a");
+        ItemGroup<?> teamB = mock(ItemGroup.class);
+        when(teamB.getFullName()).thenReturn("team-b");
+
+        provider.onItemLocationChanged("team-a", "team-b");
+        assertThat(provider.getCredentials(UsernamePasswordCredentials.class, teamB, ACL.SYSTEM), contains(hasProperty("id", is("s1"))));
+
+        provider.onItemCreated("team-a");
+        provider.eventReceived(Watcher.Action.ADDED, createSecret("s2", Map.of(), Map.of(SecretUtils.JENKINS_IO_CREDENTIALS_ITEM_GROUP_ANNOTATION, "['team-a']")));
+        assertThat("secrets written for the new item are not given to the moved item",
+                provider.getCredentials(UsernamePasswordCredentials.class, teamA, ACL.SYSTEM), contains(hasProperty("id", is("s2"))));
+        assertThat(provider.getCredentials(UsernamePasswordCredentials.class, teamB, ACL.SYSTEM), contains(hasProperty("id", is("s1"))));
+    }
+
+    @Test
+    public void identicalPayloadsAreShared() {
+        KubernetesCredentialProvider provider = new MockedKubernetesCredentialProvider();
+        provider.eventReceived(Watcher.Action.ADDED, createSecret("s1", CredentialsScope.GLOBAL));
+        provider.eventReceived(Watcher.Action.ADDED, createSecret("s2", CredentialsScope.GLOBAL));
+
+        List<UsernamePasswordCredentials> credentials = provider.getCredentials(UsernamePasswordCredentials.class, (ItemGroup) null, ACL.SYSTEM);
+        assertThat(credentials, containsInAnyOrder(hasProperty("id", is("s1")), hasProperty("id", is("s2"))));
+        assertEquals(1, provider.getSharedPayloadCount());
+        assertEquals(2, provider.getSharedPayloadReferences());
+        assertEquals("the passwords are not created from the pool", 0, provider.getSharedPayloadBytesSaved());
+
+        provider.eventReceived(Watcher.Action.MODIFIED, createSecret("s1", CredentialsScope.GLOBAL));
+        assertEquals("replaced credentials release their payload", 2, provider.getSharedPayloadReferences());
+
+        provider.eventReceived(Watcher.Action.DELETED, createSecret("s1", CredentialsScope.GLOBAL));
+        assertEquals(1, provider.getSharedPayloadCount());
+        assertEquals(1, provider.getSharedPayloadReferences());
+        assertEquals(0, provider.getSharedPayloadBytesSaved());
+
+        provider.eventReceived(Watcher.Action.DELETED, createSecret("s2", CredentialsScope.GLOBAL));
+        assertEquals(0, provider.getSharedPayloadCount());
+        assertEquals(0, provider.getSharedPayloadReferences());
+    }
+
+    @Test
+    public void identicalSecretTextsShareTheirSecret() {
+        KubernetesCredentialProvider provider = new MockedKubernetesCredentialProvider();
+        provider.eventReceived(Watcher.Action.ADDED, createSecretText("t1"));
+        provider.eventReceived(Watcher.Action.ADDED, createSecretText("t2"));
+
+        StringCredentials t1 = provider.getCredentialById("t1", StringCredentials.class, (ItemGroup) null, ACL.SYSTEM);
+        StringCredentials t2 = provider.getCredentialById("t2", StringCredentials.class, (ItemGroup) null, ACL.SYSTEM);
+        assertThat(t2.getSecret(), sameInstance(t1.getSecret()));
+        assertThat(provider.getSharedPayloadBytesSaved(), greaterThan(0L));
+
+        provider.eventReceived(Watcher.Action.DELETED, createSecretText("t1"));
+        assertEquals(0, provider.getSharedPayloadBytesSaved());
+    }
+
+    @Test
+    public void usageIsRecordedByLookups() {
+        KubernetesCredentialProvider provider = new MockedKubernetesCredentialProvider();
+        provider.eventReceived(Watcher.Action.ADDED, createSecret("s1", CredentialsScope.GLOBAL));
+        provider.eventReceived(Watcher.Action.ADDED, createSecret("s2", CredentialsScope.GLOBAL));
+        assertThat(provider.getCredentialUsage("s1").getUses(), is(0L));
+
+        List<UsernamePasswordCredentials> listed =
+                provider.getCredentials(UsernamePasswordCredentials.class, (ItemGroup) null, ACL.SYSTEM);
+        assertThat("listing the credentials is not a use", provider.getCredentialUsage("s1").getUses(), is(0L));
+
+        provider.getCredentialById("s1", UsernamePasswordCredentials.class, (ItemGroup) null, ACL.SYSTEM);
+        provider.getCredentialById("s2", StandardCertificateCredentials.class, (ItemGroup) null, ACL.SYSTEM);
+        assertThat(provider.getCredentialUsage("s1").getUses(), is(1L));
+        assertThat(provider.getCredentialUsage("s1").getLastUsedDate(), notNullValue());
+        assertThat("not returned for the wrong type", provider.getCredentialUsage("s2").getUses(), is(0L));
+
+        for (UsernamePasswordCredentials credential : listed) {
+            if (((IdCredentials) credential).getId().equals("s2")) {
+                provider.used(credential);
+            }
+        }
+        // a credential with the same ID from another provider
+        IdCredentials other = mock(IdCredentials.class);
+        when(other.getId()).thenReturn("s2");
+        provider.used(other);
+        assertThat("tracked uses of the credential", provider.getCredentialUsage("s2").getUses(), is(1L));
+
+        ItemGroup<?> group = mock(ItemGroup.class);
+        when(group.getFullName()).thenReturn("folder");
+        provider.listStoreCredentials(group);
+        assertThat("listing the store is not a use", provider.getCredentialUsage("s2").getUses(), is(1L));
+
+        provider.eventReceived(Watcher.Action.DELETED, createSecret("s1", CredentialsScope.GLOBAL));
+        provider.eventReceived(Watcher.Action.ADDED, createSecret("s1", CredentialsScope.GLOBAL));
+        assertThat("recreated secrets start unused", provider.getCredentialUsage("s1").getUses(), is(0L));
+    }
+
+    @Test
+    public void startWatchingForSecretsConvertsInBatches() {
+        Secret s1 = createSecret("s1", CredentialsScope.GLOBAL);
+        Secret s2 = new SecretBuilder(createSecret("s2", CredentialsScope.GLOBAL)).removeFromData("password").build();
+        Secret s3 = createSecret("s3", CredentialsScope.GLOBAL);
+
+        server.expect().withPath("/api/v1/namespaces/test/secrets?labelSelector=jenkins.io%2Fcredentials-type")
+                .andReturn(200, new SecretListBuilder()
+                        .withNewMetadata()
+                        .withResourceVersion("1")
+                        .endMetadata()
+                        .addToItems(s1, s2, s3)
+                        .build())
+                .once();
+
+        KubernetesCredentialProvider provider = new MockedKubernetesCredentialProvider();
+        provider.startWatchingForSecrets();
+
+        assertThat("failures do not prevent the rest of the batch from being converted",
+                provider.getCredentials(UsernamePasswordCredentials.class, (ItemGroup) null, ACL.SYSTEM),
+                containsInAnyOrder(hasProperty("id", is("s1")), hasProperty("id", is("s3"))));
+        assertThat(provider.getConversionFailures(), contains(hasProperty("name", is("s2"))));
+    }
+
+    @Test
+    public void failedConversionsAreNotRetriedUntilModified() {
+        KubernetesCredentialProvider provider = new MockedKubernetesCredentialProvider();
+        Secret broken = new SecretBuilder(createSecret("s1", CredentialsScope.GLOBAL))
+                .editMetadata().withResourceVersion("1").endMetadata()
+                .removeFromData("password")
+                .build();
+
+        provider.eventReceived(Watcher.Action.ADDED, broken);
+        assertThat(provider.getConversionFailures(), contains(allOf(hasProperty("name", is("s1")), hasProperty("resourceVersion", is("1")))));
+        assertThat(provider.getConversionFailures().get(0).getReason(), containsString("missing the password"));
+
+        provider.eventReceived(Watcher.Action.MODIFIED, broken);
+        assertEquals("unchanged secrets are not converted again", 1, provider.getConversionFailures().get(0).getOccurrences());
+
+        Secret fixed = new SecretBuilder(createSecret("s1", CredentialsScope.GLOBAL))
+                .editMetadata().withResourceVersion("2").endMetadata()
+                .build();
+        provider.eventReceived(Watcher.Action.MODIFIED, fixed);
+        assertThat(provider.getCredentials(UsernamePasswordCredentials.class, (ItemGroup) null, ACL.SYSTEM), contains(hasProperty("id", is("s1"))));
+        assertThat("converted secrets are no longer failing", provider.getConversionFailures(), empty());
+        assertFalse(provider.hasConversionFailures());
+
+        provider.eventReceived(Watcher.Action.MODIFIED, new SecretBuilder(broken).editMetadata().withResourceVersion("3").endMetadata().build());
+        assertTrue(provider.hasConversionFailures());
+        provider.eventReceived(Watcher.Action.DELETED, broken);
+        assertFalse("deleted secrets are forgotten", provider.hasConversionFailures());
+    }
+
+    @Test
+    public void getStoreIsCached() {
+        KubernetesCredentialProvider provider = new MockedKubernetesCredentialProvider();
+        ItemGroup group = mock(ItemGroup.class);
+        ItemGroup other = mock(ItemGroup.class);
+
+        CredentialsStore store = provider.getStore(group);
+        assertThat(store, notNullValue());
+        assertThat("the store is only created once", provider.getStore(group), sameInstance(store));
+        assertThat("each context has its own store", provider.getStore(other), not(sameInstance(store)));
+        assertThat(provider.getStore(mock(Item.class)), nullValue());
+        assertEquals(2, provider.getStoreCacheSize());
+        assertEquals(1, provider.getStoreCacheStats().hitCount());
+    }
+
+    @Test
+    public void storeCredentialsAreUpdatedIncrementally() {
+        KubernetesCredentialProvider provider = new MockedKubernetesCredentialProvider();
+        provider.eventReceived(Watcher.Action.ADDED, createSecret("s1", CredentialsScope.GLOBAL));
+        provider.eventReceived(Watcher.Action.ADDED, createSecret("s2", Map.of(), Map.of(SecretUtils.JENKINS_IO_CREDENTIALS_ITEM_GROUP_ANNOTATION, "['folder']")));
+
+        CredentialsStore store = provider.getStore(folder("folder"));
+        List<Credentials> credentials = store.getCredentials(Domain.global());
+        assertThat(credentials, containsInAnyOrder(hasProperty("id", is("s1")), hasProperty("id", is("s2"))));
+        assertThat("the credentials are only listed once", store.getCredentials(Domain.global()), sameInstance(credentials));
+
+        provider.eventReceived(Watcher.Action.ADDED, createSecret("s3", Map.of(), Map.of(SecretUtils.JENKINS_IO_CREDENTIALS_ITEM_GROUP_ANNOTATION, "['other']")));
+        assertThat("changes not visible in the folder leave its credentials untouched", store.getCredentials(Domain.global()), sameInstance(credentials));
+
+        provider.eventReceived(Watcher.Action.ADDED, createSecret("s4", Map.of(), Map.of(SecretUtils.JENKINS_IO_CREDENTIALS_ITEM_GROUP_ANNOTATION, "['folder']")));
+        provider.eventReceived(Watcher.Action.DELETED, createSecret("s1", CredentialsScope.GLOBAL));
+        assertThat(store.getCredentials(Domain.global()), containsInAnyOrder(hasProperty("id", is("s2")), hasProperty("id", is("s4"))));
+
+        provider.eventReceived(Watcher.Action.MODIFIED, createSecret("s2", Map.of(), Map.of(SecretUtils.JENKINS_IO_CREDENTIALS_ITEM_GROUP_ANNOTATION, "['other']")));
+        assertThat("credentials moved to another folder are removed", store.getCredentials(Domain.global()),
+                contains(hasProperty("id", is("s4"))));
+    }
+
+    @Test
+    public void storeCredentialsAreInvalidatedWhenItemsMove() {
+        KubernetesCredentialProvider provider = new MockedKubernetesCredentialProvider();
+        provider.eventReceived(Watcher.Action.ADDED, createSecret("s1", Map.of(), Map.of(SecretUtils.JENKINS_IO_CREDENTIALS_ITEM_GROUP_ANNOTATION, "['folder']")));
+
+        CredentialsStore store = provider.getStore(folder("renamed"));
+        assertThat(store.getCredentials(Domain.global()), empty());
+
+        provider.onItemLocationChanged("folder", "renamed");
+        assertThat(store.getCredentials(Domain.global()), contains(hasProperty("id", is("s1"))));
+    }
+
+    @Test
+    public void onlyTheStoresOfTheChangedSubtreeAreInvalidated() {
+        KubernetesCredentialProvider provider = new MockedKubernetesCredentialProvider();
+        provider.eventReceived(Watcher.Action.ADDED, createSecret("s1", CredentialsScope.GLOBAL));
+        CredentialsStore store = provider.getStore(folder("folder"));
+        List<Credentials> credentials = store.getCredentials(Domain.global());
+
+        provider.onItemCreated("other");
+        provider.onItemDeleted("folder-b");
+        provider.onItemLocationChanged("team-a", "team-b");
+        assertThat("changes outside the folder leave its credentials untouched", store.getCredentials(Domain.global()), sameInstance(credentials));
+
+        provider.onItemGroupUpdated("folder");
+        assertThat(store.getCredentials(Domain.global()), not(sameInstance(credentials)));
+    }
+
+    /**
+     * A folder whose credentials can be viewed.
+     */
+    private static ItemGroup<?> folder(String fullName) {
+        ItemGroup<?> folder = mock(ItemGroup.class, withSettings().extraInterfaces(AccessControlled.class));
+        when(folder.getFullName()).thenReturn(fullName);
+        when(((AccessControlled) folder).hasPermission(CredentialsProvider.VIEW)).thenReturn(true);
+        return folder;
+    }
+
+    private static List<String> values(ListBoxModel model) {
+        return model.stream().map(option -> option.value).collect(Collectors.toList());
+    }
+
     private Secret createSecret(String name, CredentialsScope scope) {
         Map<String, String> labels = Map.of(
                 "jenkins.io/credentials-scope", scope == null ? "global" : scope.name().toLowerCase(Locale.ROOT)
@@ -226,6 +763,17 @@ public class KubernetesCredentialsProviderTest {
                 .build();
     }
 
+    private Secret createSecretText(String name) {
+        return new SecretBuilder()
+                .withNewMetadata()
+                .withNamespace("test")
+                .withName(name)
+                .addToLabels("jenkins.io/credentials-type", "secretText")
+                .endMetadata()
+                .addToData("text", "c2VjcmV0")
+                .build();
+    }
+
     @Test
     public void startWatchingForSecretsKubernetesClientException() throws IOException {
         KubernetesCredentialProvider provider = new MockedKubernetesCredentialProvider();
@@ -306,6 +854,74 @@ public class KubernetesCredentialsProviderTest {
         }
     }
 
+    @Test
+    public void applyLabelSelectorOnlyConvertsTheDelta() {
+        Secret s1 = createSecret("s1", (CredentialsScope) null);
+        Secret s2 = createSecret("s2", (CredentialsScope) null);
+        Secret s3 = createSecret("s3", (CredentialsScope) null);
+        for (Secret s : List.of(s1, s2, s3)) {
+            s.getMetadata().setResourceVersion("1");
+        }
+        server.expect().withPath("/api/v1/namespaces/test/secrets?labelSelector=jenkins.io%2Fcredentials-type")
+                .andReturn(200, new SecretListBuilder()
+                        .withNewMetadata()
+                        .withResourceVersion("1")
+                        .endMetadata()
+                        .addToItems(s1, s2, s3)
+                        .build())
+                .once();
+        server.expect().withPath("/api/v1/namespaces/test/secrets?labelSelector=jenkins.io%2Fcredentials-type&resourceVersion=1&allowWatchBookmarks=true&watch=true")
+                .andUpgradeToWebSocket().open().done().always();
+
+        KubernetesCredentialProvider provider = new MockedKubernetesCredentialProvider();
+        provider.startWatchingForSecrets();
+        UsernamePasswordCredentials c2 = provider.getCredentialById("s2", UsernamePasswordCredentials.class, (ItemGroup) null, ACL.SYSTEM);
+        UsernamePasswordCredentials c3 = provider.getCredentialById("s3", UsernamePasswordCredentials.class, (ItemGroup) null, ACL.SYSTEM);
+        assertThat(c2, notNullValue());
+
+        // s1 is no longer selected, s3 changed and s4 is newly selected
+        Secret s3Modified = createSecret("s3", (CredentialsScope) null);
+        s3Modified.getMetadata().setResourceVersion("2");
+        Secret s4 = createSecret("s4", (CredentialsScope) null);
+        s4.getMetadata().setResourceVersion("2");
+        server.expect().withPath("/api/v1/namespaces/test/secrets?labelSelector=jenkins.io%2Fcredentials-type%2Cenv%20in%20%28prod%29")
+                .andReturn(200, new SecretListBuilder()
+                        .withNewMetadata()
+                        .withResourceVersion("2")
+                        .endMetadata()
+                        .addToItems(s2, s3Modified, s4)
+                        .build())
+                .once();
+        server.expect().withPath("/api/v1/namespaces/test/secrets?labelSelector=jenkins.io%2Fcredentials-type%2Cenv%20in%20%28prod%29&resourceVersion=2&allowWatchBookmarks=true&watch=true")
+                .andUpgradeToWebSocket().open().done().always();
+
+        provider.applyLabelSelector("env in (prod)");
+
+        List<UsernamePasswordCredentials> credentials = provider.getCredentials(UsernamePasswordCredentials.class, (ItemGroup) null, ACL.SYSTEM);
+        assertThat(credentials, containsInAnyOrder(hasProperty("id", is("s2")), hasProperty("id", is("s3")), hasProperty("id", is("s4"))));
+        assertThat("unchanged secret is not converted again",
+                provider.getCredentialById("s2", UsernamePasswordCredentials.class, (ItemGroup) null, ACL.SYSTEM), sameInstance(c2));
+        assertThat("modified secret is converted again",
+                provider.getCredentialById("s3", UsernamePasswordCredentials.class, (ItemGroup) null, ACL.SYSTEM), not(sameInstance(c3)));
+        assertEquals("all the credentials loaded are reported", 3, provider.getSyncStatus().getConvertedSecrets());
+    }
+
+    @Test
+    public void failedLabelSelectorChangeIsReported() {
+        defaultMockKubernetesResponses();
+        KubernetesCredentialProvider provider = new MockedKubernetesCredentialProvider();
+        provider.startWatchingForSecrets();
+        assertEquals(0, getInitAdministrativeMonitorCount());
+        try {
+            System.setProperty(KubernetesCredentialProviderConfiguration.RECONNECT_CLIENT_ON_EXCEPTION, "false");
+            // the secrets of this selector are not served by the mock
+            provider.applyLabelSelector("env in (prod)");
+            assertEquals("expect administrative error", 1, getInitAdministrativeMonitorCount());
+        } finally {
+            System.clearProperty(KubernetesCredentialProviderConfiguration.RECONNECT_CLIENT_ON_EXCEPTION);
+        }
+    }
+
     private long getLabelSelectorAdministrativeMonitorCount() {
         return AdministrativeMonitor.all().stream()
                 .filter(am -> am.id.equals(MockedKubernetesCredentialProvider.class.getName() + ".labelSelector"))
@@ -0,0 +1,51 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import java.util.Map;
+
+import jenkins.benchmark.jmh.JmhBenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Parsing label selectors, done when the selector of the provider or of a folder changes, and matching the labels of a
+ * secret, done for every secret event, run by {@link BenchmarkRunner}.
+ */
+@JmhBenchmark
+public class LabelSelectorBenchmark {
+
+    static final String SELECTOR = "mycompany.com/partition in (customerA, customerB), environment!=qa, !foo, bar, color=blue, owner notin (john, mary)";
+
+    @State(Scope.Benchmark)
+    public static class SelectorState {
+
+        CompiledLabelSelector selector;
+        Map<String, String> matching;
+        Map<String, String> notMatching;
+
+        @Setup
+        public void setup() throws LabelSelectorParseException {
+            selector = LabelSelectorExpressions.compile(SELECTOR);
+            matching = Map.of("mycompany.com/partition", "customerB", "environment", "prod", "bar", "", "color", "blue",
+                    "jenkins.io/credentials-type", "usernamePassword");
+            notMatching = Map.of("mycompany.com/partition", "customerB", "environment", "prod", "bar", "", "color", "blue",
+                    "owner", "mary");
+        }
+    }
+
+    @Benchmark
+    public CompiledLabelSelector compile() throws LabelSelectorParseException {
+        return LabelSelectorExpressions.compile(SELECTOR);
+    }
+
+    @Benchmark
+    public boolean matches(SelectorState state) {
+        return state.selector.matches(state.matching);
+    }
+
+    @Benchmark
+    public boolean doesNotMatch(SelectorState state) {
+        return state.selector.matches(state.notMatching);
+    }
+}
@@ -61,7 +61,81 @@ public class LabelSelectorExpressionsTest {
     @Test
     public void parseInvalidExpressionTokenCountTwo() throws LabelSelectorParseException {
         thrown.expect(LabelSelectorParseException.class);
-        thrown.expectMessage("Invalid selector expression 'partition  in'. Expected 1 or 3 tokens, got 2: [partition, in]");
+        thrown.expectMessage("Invalid selector expression 'partition  in'. Expected key, !key, key=value, key!=value, key in (values) or key notin (values), got [partition, in]");
         LabelSelectorExpressions.parse("partition  in");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void parseUnparenthesizedSet() throws LabelSelectorParseException {
+        thrown.expect(LabelSelectorParseException.class);
+        thrown.expectMessage("Invalid selector expression 'partition notin customerA'. The values of 'notin' must be in parentheses");
+        LabelSelectorExpressions.parse("env=prod, partition notin customerA");
+    }
+
+    @Test
+    public void parseDoubleEqualsAndQuotedValues() throws LabelSelectorParseException {
+        LabelSelector selector = LabelSelectorExpressions.parse("tier==backend, owner = 'jane doe', team in (\"a, b\", c), color=blue, color=green, env!=");
+
+        LabelSelector expected = new LabelSelectorBuilder()
+                .addToMatchLabels("tier", "backend")
+                .addToMatchLabels("owner", "jane doe")
+                .addToMatchLabels("color", "blue")
+                .addNewMatchExpression()
+                    .withKey("team")
+                    .withOperator("In")
+                    .withValues("a, b", "c")
+                    .endMatchExpression()
+                .addNewMatchExpression()
+                    .withKey("color")
+                    .withOperator("In")
+                    .withValues("green")
+                    .endMatchExpression()
+                .addNewMatchExpression()
+                    .withKey("env")
+                    .withOperator("NotIn")
+                    .withValues("")
+                    .endMatchExpression()
+                .build();
+
+        assertEquals(expected, selector);
+    }
+
+    @Test
+    public void parseValueWithSpaces() throws LabelSelectorParseException {
+        LabelSelector selector = LabelSelectorExpressions.parse("env in (iat uat)");
+        assertEquals(new LabelSelectorBuilder()
+                .addNewMatchExpression()
+                    .withKey("env")
+                    .withOperator("In")
+                    .withValues("iat uat")
+                    .endMatchExpression()
+                .build(), selector);
+    }
+
+    @Test
+    public void parseEmpty() throws LabelSelectorParseException {
+        assertEquals(new LabelSelectorBuilder().build(), LabelSelectorExpressions.parse(null));
+        assertEquals(new LabelSelectorBuilder().build(), LabelSelectorExpressions.parse(" , "));
+    }
+
+    @Test
+    public void parseUnbalancedParenthesis() throws LabelSelectorParseException {
+        thrown.expect(LabelSelectorParseException.class);
+        thrown.expectMessage("Unbalanced '('");
+        LabelSelectorExpressions.parse("partition in (customerA, customerB");
+    }
+
+    @Test
+    public void parseEmptySet() throws LabelSelectorParseException {
+        thrown.expect(LabelSelectorParseException.class);
+        thrown.expectMessage("Empty set of values");
+        LabelSelectorExpressions.parse("partition notin ()");
+    }
+
+    @Test
+    public void parseUnterminatedQuote() throws LabelSelectorParseException {
+        thrown.expect(LabelSelectorParseException.class);
+        thrown.expectMessage("Unterminated quote");
+        LabelSelectorExpressions.parse("owner = 'jane");
+    }
+}
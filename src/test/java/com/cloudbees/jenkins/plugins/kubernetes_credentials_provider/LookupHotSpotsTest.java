@@ -0,0 +1,41 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+public class LookupHotSpotsTest {
+
+    private final LookupHotSpots hotSpots = new LookupHotSpots();
+
+    @Test
+    public void contextsScanningTheMostFirst() {
+        hotSpots.record("", 3);
+        hotSpots.record("payments", 40);
+        hotSpots.record("payments", 40);
+        hotSpots.record("payments/deploy", 50);
+
+        List<LookupHotSpots.HotSpot> top = hotSpots.getTop(2);
+        assertThat(top.stream().map(LookupHotSpots.HotSpot::getContext).collect(Collectors.toList()),
+                contains("payments", "payments/deploy"));
+        assertThat(top.get(0).getLookups(), is(2L));
+        assertThat(top.get(0).getScanned(), is(80L));
+        assertThat(top.get(0).getAverageScanned(), is(40L));
+    }
+
+    @Test
+    public void contextsAreBounded() {
+        for (int i = 0; i < LookupHotSpots.MAX_CONTEXTS + 10; i++) {
+            hotSpots.record("job-" + i, 1);
+        }
+        List<LookupHotSpots.HotSpot> all = hotSpots.getTop(Integer.MAX_VALUE);
+        assertThat(all.size(), is(LookupHotSpots.MAX_CONTEXTS + 1));
+        assertThat(all.get(0).getContext(), is(LookupHotSpots.OTHER));
+        assertThat(all.get(0).getLookups(), is(10L));
+    }
+}
@@ -0,0 +1,101 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.time.Instant;
+import java.util.List;
+
+import io.fabric8.kubernetes.api.model.ManagedFieldsEntryBuilder;
+import io.fabric8.kubernetes.api.model.Secret;
+import io.fabric8.kubernetes.api.model.SecretBuilder;
+import io.fabric8.kubernetes.client.Watcher;
+import org.junit.Test;
+
+public class PropagationLagTest {
+
+    private final PropagationLag lag = new PropagationLag();
+
+    @Test
+    public void percentilesOfRecentChanges() {
+        assertThat(lag.getPercentile(Watcher.Action.MODIFIED, 50), is(-1L));
+        assertThat(lag.getSummaries(), empty());
+
+        for (int i = 1; i <= 100; i++) {
+            lag.record(Watcher.Action.MODIFIED, i * 10);
+        }
+        assertThat(lag.getPercentile(Watcher.Action.MODIFIED, 50), is(500L));
+        assertThat(lag.getPercentile(Watcher.Action.MODIFIED, 99), is(990L));
+        assertThat(lag.getPercentile(Watcher.Action.ADDED, 50), is(-1L));
+
+        List<PropagationLag.Summary> summaries = lag.getSummaries();
+        assertThat(summaries.size(), is(1));
+        PropagationLag.Summary summary = summaries.get(0);
+        assertThat(summary.getAction(), is("MODIFIED"));
+        assertThat(summary.getCount(), is(100));
+        assertThat(summary.getP90(), is(900L));
+        assertThat(summary.getMax(), is(1000L));
+    }
+
+    @Test
+    public void onlyTheLastChangesAreKept() {
+        for (int i = 0; i < PropagationLag.WINDOW; i++) {
+            lag.record(Watcher.Action.ADDED, 60_000);
+        }
+        for (int i = 0; i < PropagationLag.WINDOW; i++) {
+            lag.record(Watcher.Action.ADDED, 100);
+        }
+        assertThat(lag.getPercentile(Watcher.Action.ADDED, 100), is(100L));
+        assertThat(lag.getSummaries().get(0).getCount(), is(PropagationLag.WINDOW));
+    }
+
+    @Test
+    public void breach() {
+        lag.record(Watcher.Action.ADDED, 1_000);
+        lag.record(Watcher.Action.DELETED, 2_000);
+        assertThat(lag.getBreach(5_000), nullValue());
+        lag.record(Watcher.Action.DELETED, 90_000);
+        assertThat(lag.getBreach(5_000), is(Watcher.Action.DELETED));
+    }
+
+    @Test
+    public void unmeasuredChangesAreCounted() {
+        lag.unmeasured(Watcher.Action.DELETED);
+        lag.unmeasured(Watcher.Action.DELETED);
+        assertThat(lag.getUnmeasured(Watcher.Action.DELETED), is(2L));
+        assertThat(lag.getUnmeasured(Watcher.Action.MODIFIED), is(0L));
+        assertThat("unmeasured changes do not count against the objective", lag.getBreach(0), nullValue());
+    }
+
+    @Test
+    public void changeTime() {
+        Secret secret = new SecretBuilder().withNewMetadata()
+                .withCreationTimestamp("2024-03-01T10:00:00Z")
+                .withManagedFields(
+                        new ManagedFieldsEntryBuilder().withManager("kubectl").withTime("2024-03-01T10:00:00Z").build(),
+                        new ManagedFieldsEntryBuilder().withManager("operator").withTime("2024-03-02T08:30:00Z").build())
+                .endMetadata().build();
+        long modified = Instant.parse("2024-03-02T08:30:00Z").toEpochMilli();
+        assertThat(PropagationLag.changeTime(Watcher.Action.ADDED, secret), is(modified));
+        assertThat(PropagationLag.changeTime(Watcher.Action.MODIFIED, secret), is(modified));
+        // deleted without grace period
+        assertThat(PropagationLag.changeTime(Watcher.Action.DELETED, secret), is(-1L));
+
+        secret.getMetadata().setDeletionTimestamp("2024-03-03T00:00:00Z");
+        assertThat(PropagationLag.changeTime(Watcher.Action.DELETED, secret),
+                is(Instant.parse("2024-03-03T00:00:00Z").toEpochMilli()));
+    }
+
+    @Test
+    public void changeTimeWithoutManagedFields() {
+        Secret secret = new SecretBuilder().withNewMetadata().withCreationTimestamp("2024-03-01T10:00:00Z").endMetadata().build();
+        assertThat(PropagationLag.changeTime(Watcher.Action.ADDED, secret), is(Instant.parse("2024-03-01T10:00:00Z").toEpochMilli()));
+        assertThat(PropagationLag.changeTime(Watcher.Action.MODIFIED, secret), is(-1L));
+
+        secret.getMetadata().setCreationTimestamp("yesterday");
+        assertThat(PropagationLag.changeTime(Watcher.Action.ADDED, secret), is(-1L));
+        assertThat(PropagationLag.changeTime(Watcher.Action.BOOKMARK, secret), is(-1L));
+    }
+}
@@ -0,0 +1,86 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ProviderEventsTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void disabledByDefault() throws IOException {
+        try (Recording recording = new Recording()) {
+            recording.start();
+            ProviderEvents.watch("open", "42", null);
+            assertThat(events(recording), empty());
+        }
+    }
+
+    @Test
+    public void watchEvent() throws IOException {
+        try (Recording recording = new Recording()) {
+            recording.enable(ProviderEvents.Watch.class);
+            recording.start();
+            ProviderEvents.watch("close", null, new IllegalStateException("too old resource version"));
+            List<RecordedEvent> events = events(recording);
+            assertThat(events.size(), is(1));
+            RecordedEvent event = events.get(0);
+            assertThat(event.getEventType().getName(), is(ProviderEvents.PREFIX + "Watch"));
+            assertThat(event.getString("action"), is("close"));
+            assertThat(event.getString("cause"), is("too old resource version"));
+        }
+    }
+
+    @Test
+    public void lookupEventOnlyFilledWhenEnabled() throws IOException {
+        try (Recording recording = new Recording()) {
+            recording.enable(ProviderEvents.Lookup.class);
+            recording.start();
+            ProviderEvents.Lookup event = new ProviderEvents.Lookup();
+            event.begin();
+            event.end();
+            assertThat(event.shouldCommit(), is(true));
+            event.type = "com.cloudbees.plugins.credentials.common.StandardUsernamePasswordCredentials";
+            event.context = "payments/prod";
+            event.scanned = 12;
+            event.results = 3;
+            event.commit();
+            RecordedEvent recorded = events(recording).get(0);
+            assertThat(recorded.getString("context"), is("payments/prod"));
+            assertThat(recorded.getInt("scanned"), is(12));
+            assertThat(recorded.getInt("results"), is(3));
+        }
+    }
+
+    @Test
+    public void lookupEventNotCreatedWhenDisabled() {
+        assertThat(ProviderEvents.beginLookup(), nullValue());
+        try (Recording recording = new Recording()) {
+            recording.enable(ProviderEvents.Lookup.class);
+            recording.start();
+            assertThat(ProviderEvents.beginLookup(), notNullValue());
+        }
+    }
+
+    private List<RecordedEvent> events(Recording recording) throws IOException {
+        recording.stop();
+        Path file = tmp.newFile("recording.jfr").toPath();
+        recording.dump(file);
+        return RecordingFile.readAllEvents(file);
+    }
+}
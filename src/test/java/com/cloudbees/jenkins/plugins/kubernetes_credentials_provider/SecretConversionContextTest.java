@@ -0,0 +1,116 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import java.util.Optional;
+
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import io.fabric8.kubernetes.api.model.Secret;
+import io.fabric8.kubernetes.api.model.SecretBuilder;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class SecretConversionContextTest {
+
+    @Test
+    public void resolvesMetadata() throws CredentialsConvertionException {
+        Secret s = new SecretBuilder()
+                .withNewMetadata()
+                    .withName("a-secret")
+                    .addToLabels("jenkins.io/credentials-type", "usernamePassword")
+                    .addToLabels("jenkins.io/credentials-scope", "system")
+                    .addToAnnotations("jenkins.io/credentials-description", "a description")
+                    .addToAnnotations("jenkins.io/credentials-principals", "['user:alice', 'group:devs']")
+                    .addToAnnotations("jenkins.io/credentials-items", "['folder/job']")
+                .endMetadata()
+                .build();
+        SecretConversionContext context = new SecretConversionContext(s);
+        assertThat(context.getId(), is("a-secret"));
+        assertThat(context.getType(), is("usernamePassword"));
+        assertThat(context.getScope(), is(CredentialsScope.SYSTEM));
+        assertThat(context.getDescription(), is("a description"));
+        assertThat(context.getPrincipals(), containsInAnyOrder("user:alice", "group:devs"));
+        assertThat(context.getItems(), containsInAnyOrder("folder/job"));
+        assertThat(context.getItemGroups(), empty());
+    }
+
+    @Test
+    public void defaults() throws CredentialsConvertionException {
+        Secret s = new SecretBuilder().withNewMetadata().withName("a-secret").endMetadata().build();
+        s.getMetadata().setAnnotations(null);
+        SecretConversionContext context = new SecretConversionContext(s);
+        assertThat(context.getScope(), is(CredentialsScope.GLOBAL));
+        assertThat(context.getDescription(), nullValue());
+        assertThat(context.getItemGroups(), empty());
+        assertThat(context.getKeyName("theKey"), is("theKey"));
+    }
+
+    @Test
+    public void invalidScope() {
+        Secret s = new SecretBuilder().withNewMetadata().addToLabels("jenkins.io/credentials-scope", "bogus").endMetadata().build();
+        try {
+            new SecretConversionContext(s).getScope();
+            fail("no exception thrown");
+        } catch (CredentialsConvertionException cce) {
+            assertThat(cce.getMessage(), is("jenkins.io/credentials-scope is set to an invalid scope: bogus"));
+        }
+    }
+
+    @Test
+    public void scopeWithItemGroups() {
+        Secret s = new SecretBuilder().withNewMetadata()
+                .addToLabels("jenkins.io/credentials-scope", "global")
+                .addToAnnotations("jenkins.io/credentials-store-locations", "['folder']")
+                .endMetadata().build();
+        try {
+            new SecretConversionContext(s).getScope();
+            fail("no exception thrown");
+        } catch (CredentialsConvertionException cce) {
+            assertThat(cce.getMessage(), is("jenkins.io/credentials-scope can not be combined with jenkins.io/credentials-store-locations"));
+        }
+    }
+
+    @Test
+    public void keyBindings() throws CredentialsConvertionException {
+        Secret s = new SecretBuilder().withNewMetadata()
+                .addToAnnotations("jenkins.io/credentials-keybinding-theKey", "mappedKey")
+                .addToAnnotations("jenkins.io/credentials-keybinding-incomplete", "")
+                .endMetadata()
+                .addToData("mappedKey", "some-data")
+                .addToData("incomplete", "other-data")
+                .build();
+        SecretConversionContext context = new SecretConversionContext(s);
+        assertThat(context.getKeyName("theKey"), is("mappedKey"));
+        assertThat(context.getKeyName("incomplete"), is("incomplete"));
+        assertThat(context.getNonNullSecretData("theKey", "ignored"), is("some-data"));
+        assertThat(context.getNonNullSecretData("incomplete", "ignored"), is("other-data"));
+        assertThat(context.getOptionalSecretData("theKey", "ignored"), is(Optional.of("some-data")));
+        assertThat(context.getOptionalSecretData("missing", "ignored"), is(Optional.empty()));
+    }
+
+    @Test
+    public void missingMappedData() {
+        Secret s = new SecretBuilder().withNewMetadata()
+                .addToAnnotations("jenkins.io/credentials-keybinding-theKey", "mappedKey")
+                .endMetadata()
+                .addToData("theKey", "some-data")
+                .build();
+        SecretConversionContext context = new SecretConversionContext(s);
+        try {
+            context.getNonNullSecretData("theKey", "oops");
+            fail("no exception thrown");
+        } catch (CredentialsConvertionException cce) {
+            assertThat(cce.getMessage(), is("oops (mapped to mappedKey)"));
+        }
+        try {
+            context.getOptionalSecretData("theKey", "oops");
+            fail("no exception thrown");
+        } catch (CredentialsConvertionException cce) {
+            assertThat(cce.getMessage(), is("oops (mapped to mappedKey)"));
+        }
+    }
+}
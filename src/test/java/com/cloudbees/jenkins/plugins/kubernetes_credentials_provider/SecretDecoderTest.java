@@ -0,0 +1,77 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class SecretDecoderTest {
+
+    @Test
+    public void decodeMatchesJavaDecoder() {
+        Random random = new Random(42);
+        for (int length = 0; length < 100; length++) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            String padded = Base64.getEncoder().encodeToString(bytes);
+            String unpadded = Base64.getEncoder().withoutPadding().encodeToString(bytes);
+            assertArrayEquals(padded, bytes, SecretDecoder.decode(padded));
+            assertArrayEquals(unpadded, bytes, SecretDecoder.decode(unpadded));
+        }
+    }
+
+    @Test
+    public void decodeLargeValue() {
+        byte[] bytes = new byte[200 * 1024];
+        new Random(42).nextBytes(bytes);
+        assertArrayEquals(bytes, SecretDecoder.decode(Base64.getEncoder().encodeToString(bytes)));
+    }
+
+    @Test
+    public void decodeRejectsWhatJavaDecoderRejects() {
+        for (String invalid : new String[] {"A", "=", "A=", "AB=", "ABC==", "A===", "AB=C", "AB C", "this_is_invalid_base64!", "QUJD\n", "QUJé"}) {
+            try {
+                Base64.getDecoder().decode(invalid);
+                fail("java decoder accepts " + invalid);
+            } catch (IllegalArgumentException expected) {
+                // test the test
+            }
+            try {
+                SecretDecoder.decode(invalid);
+                fail("no exception thrown for " + invalid);
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void decodeToString() throws CharacterCodingException {
+        for (String value : new String[] {"", "a", "Hello, World", "héllo wörld € 😀"}) {
+            assertThat(SecretDecoder.decodeToString(Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8))), is(value));
+        }
+        StringBuilder large = new StringBuilder();
+        while (large.length() < 100 * 1024) {
+            large.append("é😀abc");
+        }
+        String value = large.toString();
+        assertThat(SecretDecoder.decodeToString(Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8))), is(value));
+    }
+
+    @Test(expected = CharacterCodingException.class)
+    public void decodeToStringWithInvalidUTF8() throws CharacterCodingException {
+        SecretDecoder.decodeToString(Base64.getEncoder().encodeToString(new byte[] {(byte) 0xff, (byte) 0xff, (byte) 0xff}));
+    }
+
+    @Test(expected = CharacterCodingException.class)
+    public void decodeToStringWithTruncatedUTF8() throws CharacterCodingException {
+        SecretDecoder.decodeToString(Base64.getEncoder().encodeToString(new byte[] {'a', (byte) 0xe2, (byte) 0x82}));
+    }
+}
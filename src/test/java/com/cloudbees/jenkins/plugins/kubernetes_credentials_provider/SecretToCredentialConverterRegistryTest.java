@@ -0,0 +1,97 @@
+package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider;
+
+import java.util.Arrays;
+
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.convertors.StringCredentialConvertor;
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.convertors.UsernamePasswordCredentialsConvertor;
+import com.cloudbees.plugins.credentials.common.IdCredentials;
+import hudson.ExtensionList;
+import io.fabric8.kubernetes.api.model.Secret;
+import jenkins.model.Jenkins;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.Matchers.aMapWithSize;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+
+public class SecretToCredentialConverterRegistryTest {
+
+    @Test
+    public void lookup() {
+        SecretToCredentialConverter usernamePassword = new UsernamePasswordCredentialsConvertor();
+        SecretToCredentialConverter secretText = new StringCredentialConvertor();
+        SecretToCredentialConverter undeclared = new UndeclaredConverter("custom");
+        SecretToCredentialConverterRegistry registry = registry(usernamePassword, undeclared, secretText);
+
+        assertThat(registry.lookup("usernamePassword"), sameInstance(usernamePassword));
+        assertThat(registry.lookup("secretText"), sameInstance(secretText));
+        assertThat("converters without declared types are asked", registry.lookup("custom"), sameInstance(undeclared));
+        assertThat(registry.lookup("unknown"), nullValue());
+        assertThat(registry.lookup(null), nullValue());
+        assertThat(registry.getConflicts(), aMapWithSize(0));
+    }
+
+    @Test
+    public void conflicts() {
+        SecretToCredentialConverter first = new UsernamePasswordCredentialsConvertor();
+        SecretToCredentialConverter second = new UsernamePasswordCredentialsConvertor();
+        SecretToCredentialConverterRegistry registry = registry(first, second);
+
+        assertThat("the first converter in extension order is used", registry.lookup("usernamePassword"), sameInstance(first));
+        assertThat(registry.getConflicts(), aMapWithSize(1));
+        assertThat(registry.getConflicts().get("usernamePassword"), contains(sameInstance(first), sameInstance(second)));
+    }
+
+    @Test
+    public void extensionOrderIsKept() {
+        SecretToCredentialConverter undeclared = new UndeclaredConverter("usernamePassword");
+        SecretToCredentialConverter declared = new UsernamePasswordCredentialsConvertor();
+
+        assertThat("a higher ranked converter overrides a declared type", registry(undeclared, declared).lookup("usernamePassword"), is(undeclared));
+        assertThat(registry(declared, undeclared).lookup("usernamePassword"), is(declared));
+    }
+
+    @Test
+    public void resolvedConvertersAreCached() {
+        UndeclaredConverter undeclared = new UndeclaredConverter("custom");
+        SecretToCredentialConverterRegistry registry = registry(undeclared, new UsernamePasswordCredentialsConvertor());
+
+        registry.lookup("custom");
+        registry.lookup("custom");
+        registry.lookup("usernamePassword");
+        registry.lookup("usernamePassword");
+        registry.lookup("unknown");
+        registry.lookup("unknown");
+        assertThat(undeclared.asked, is(3));
+    }
+
+    private static SecretToCredentialConverterRegistry registry(SecretToCredentialConverter... converters) {
+        ExtensionList<SecretToCredentialConverter> list = ExtensionList.create((Jenkins) null, SecretToCredentialConverter.class);
+        list.addAll(Arrays.asList(converters));
+        return new SecretToCredentialConverterRegistry(list);
+    }
+
+    private static class UndeclaredConverter extends SecretToCredentialConverter {
+
+        private final String type;
+        private int asked;
+
+        UndeclaredConverter(String type) {
+            this.type = type;
+        }
+
+        @Override
+        public boolean canConvert(String type) {
+            asked++;
+            return this.type.equals(type);
+        }
+
+        @Override
+        public IdCredentials convert(Secret secret) throws CredentialsConvertionException {
+            throw new CredentialsConvertionException("not implemented");
+        }
+    }
+}
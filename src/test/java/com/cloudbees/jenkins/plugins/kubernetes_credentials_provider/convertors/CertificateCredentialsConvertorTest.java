@@ -25,6 +25,8 @@ package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.convertors
 
 import java.io.InputStream;
 import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.List;
 import java.security.cert.X509Certificate;
 
 import io.fabric8.kubernetes.api.model.Secret;
@@ -38,6 +40,7 @@ import org.mockito.junit.MockitoJUnitRunner;
 import hudson.util.HistoricalSecrets;
 import jenkins.security.ConfidentialStore;
 import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialsConvertionException;
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SecretConversionResult;
 import com.cloudbees.plugins.credentials.CredentialsScope;
 import com.cloudbees.plugins.credentials.impl.CertificateCredentialsImpl;
 import static org.hamcrest.CoreMatchers.containsString;
@@ -139,6 +142,59 @@ public class CertificateCredentialsConvertorTest {
         }
     }
 
+    @Test
+    public void unchangedCertificateIsNotLoadedAgain() throws Exception {
+        CertificateCredentialsConvertor convertor = new CertificateCredentialsConvertor();
+
+        try (InputStream is = get("valid.yaml"); InputStream mapped = get("validMapped.yaml")) {
+            Secret secret = Serialization.unmarshal(is, Secret.class);
+            Secret mappedSecret = Serialization.unmarshal(mapped, Secret.class);
+            convertor.convert(secret);
+            long hits = CertificateCredentialsConvertor.getKeyStoreCacheStats().hitCount();
+            long loads = CertificateCredentialsConvertor.getKeyStoreCacheStats().loadCount();
+            // same certificate and password, under a different key
+            CertificateCredentialsImpl credential = convertor.convert(mappedSecret);
+            assertThat("keystore validation is reused", CertificateCredentialsConvertor.getKeyStoreCacheStats().hitCount(), is(hits + 1));
+            assertThat("keystore is not loaded again", CertificateCredentialsConvertor.getKeyStoreCacheStats().loadCount(), is(loads));
+            assertThat("credential still loads its keystore", credential.getKeyStore().containsAlias("myKey"), is(true));
+        }
+    }
+
+    @Test
+    public void convertAllReportsEachSecret() throws Exception {
+        CertificateCredentialsConvertor convertor = new CertificateCredentialsConvertor();
+
+        try (InputStream valid = get("valid.yaml"); InputStream mapped = get("validMapped.yaml"); InputStream corrupt = get("corruptCertificatePKCS12.yaml")) {
+            List<SecretConversionResult> results = convertor.convertAll(Arrays.asList(Serialization.unmarshal(valid, Secret.class),
+                    Serialization.unmarshal(corrupt, Secret.class), Serialization.unmarshal(mapped, Secret.class)));
+            assertThat(results.size(), is(3));
+            assertThat(results.get(0).getCredential(), notNullValue());
+            assertThat(results.get(1).getError().getMessage(), containsString("invalid certificate"));
+            assertThat(results.get(2).getCredential(), notNullValue());
+        }
+    }
+
+    @Test
+    public void invalidCertificateIsNotLoadedAgain() throws Exception {
+        CertificateCredentialsConvertor convertor = new CertificateCredentialsConvertor();
+
+        for (int i = 0; i < 2; i++) {
+            try (InputStream is = get("corruptCertificatePKCS12.yaml")) {
+                Secret secret = Serialization.unmarshal(is, Secret.class);
+                long loads = CertificateCredentialsConvertor.getKeyStoreCacheStats().loadCount();
+                try {
+                    convertor.convert(secret);
+                    fail("Exception should have been thrown");
+                } catch (CredentialsConvertionException cex) {
+                    assertThat(cex.getMessage(), allOf(containsString("invalid certificate"), containsString("PKCS#12")));
+                }
+                if (i > 0) {
+                    assertThat("failure is cached", CertificateCredentialsConvertor.getKeyStoreCacheStats().loadCount(), is(loads));
+                }
+            }
+        }
+    }
+
     @Test
     public void failsToConvertWhenCertificateMissing() throws Exception {
         CertificateCredentialsConvertor convertor = new CertificateCredentialsConvertor();
@@ -24,17 +24,21 @@
 package com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.convertors;
 
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
 import io.fabric8.kubernetes.api.model.Secret;
 import io.fabric8.kubernetes.client.utils.Serialization;
 import org.junit.Test;
 import org.jvnet.hudson.test.Issue;
 
 import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.CredentialsConvertionException;
+import com.cloudbees.jenkins.plugins.kubernetes_credentials_provider.SecretConversionResult;
 import com.cloudbees.plugins.credentials.CredentialsScope;
 import com.cloudbees.plugins.credentials.impl.UsernamePasswordCredentialsImpl;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.Matchers.emptyString;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
@@ -86,6 +90,21 @@ public class UsernamePasswordCredentialsConvertorTest {
         }
     }
 
+    @Test
+    public void convertAllReportsEachSecret() throws Exception {
+        UsernamePasswordCredentialsConvertor convertor = new UsernamePasswordCredentialsConvertor();
+
+        try (InputStream valid = get("valid.yaml"); InputStream missing = get("missingPassword.yaml")) {
+            List<SecretConversionResult> results = convertor.convertAll(Arrays.asList(
+                    Serialization.unmarshal(valid, Secret.class), Serialization.unmarshal(missing, Secret.class)));
+            assertThat(results.size(), is(2));
+            assertThat("valid secret is converted", results.get(0).getCredential().getId(), is("a-test-usernamepass"));
+            assertThat(results.get(0).getError(), nullValue());
+            assertThat("invalid secret reports its error", results.get(1).getCredential(), nullValue());
+            assertThat(results.get(1).getError().getMessage(), containsString("missing the password"));
+        }
+    }
+
     @Issue("JENKINS-54313")
     @Test
     public void canConvertAValidSecretWithNoDescription() throws Exception {